@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.bench;
+/*
+ * A Benchmark times one operation (run()) over and over. After a warmup period
+ * so that the JIT has compiled it, it is measured for a number of fixed-length
+ * iterations, reporting the throughput in operations per second and how many
+ * bytes the calling thread allocated per operation.
+ *
+ * Evan Radkoff
+ */
+
+import java.lang.management.ManagementFactory;
+
+public abstract class Benchmark {
+	private String name, map;
+	protected long sink = 0;	// Results of run() are folded in here so the JIT can't skip the work
+
+	public Benchmark(String n, String m) {
+		name = n;
+		map = m;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getMap() {
+		return map;
+	}
+
+	// Called once before the warmup. Expensive fixtures belong here rather than in run().
+	public void setUp() { }
+
+	// One operation. The returned value should depend on the work done.
+	public abstract long run();
+
+	/*
+	 * Warms up for warmup_millis, then measures iterations iterations of iteration_millis each.
+	 */
+	public Result measure(long warmup_millis, int iterations, long iteration_millis) {
+		setUp();
+		int batch = 1;	// Operations between checks of the clock, grown to take around a millisecond
+		long warmup_end = System.nanoTime() + warmup_millis * 1000000L;
+		while(System.nanoTime() < warmup_end) {
+			long start = System.nanoTime();
+			for(int i=0;i<batch;i++)
+				sink += run();
+			if(System.nanoTime() - start < 1000000L && batch < (1 << 20))
+				batch *= 2;
+		}
+
+		double ops_per_second[] = new double[iterations];
+		long total_ops = 0, total_bytes = 0;
+		for(int it=0;it<iterations;it++) {
+			long ops = 0;
+			long bytes_before = allocatedBytes();
+			long start = System.nanoTime(), end = start + iteration_millis * 1000000L, now = start;
+			while(now < end) {
+				for(int i=0;i<batch;i++)
+					sink += run();
+				ops += batch;
+				now = System.nanoTime();
+			}
+			total_bytes += allocatedBytes() - bytes_before;
+			total_ops += ops;
+			ops_per_second[it] = ops / ((now - start) / 1e9);
+		}
+		double mean = 0.0;
+		for(int it=0;it<iterations;it++)
+			mean += ops_per_second[it] / iterations;
+		double variance = 0.0;
+		for(int it=0;it<iterations;it++)
+			variance += (ops_per_second[it] - mean) * (ops_per_second[it] - mean) / Math.max(1, iterations - 1);
+		double bytes_per_op = allocation_supported ? total_bytes / (double)total_ops : Double.NaN;
+		return new Result(this, mean, Math.sqrt(variance), bytes_per_op);
+	}
+
+	/*
+	 * Bytes allocated so far by the current thread, if the JVM can tell us (HotSpot can).
+	 */
+	private static final boolean allocation_supported = allocationSupported();
+
+	private static boolean allocationSupported() {
+		try {
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+			return bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled();
+		} catch(Throwable e) {
+			return false;
+		}
+	}
+
+	private static long allocatedBytes() {
+		if(!allocation_supported)
+			return 0;
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	// The outcome of measuring a Benchmark
+	public static class Result {
+		public Benchmark benchmark;
+		public double ops_per_second, error;	// error is the standard deviation between iterations
+		public double bytes_per_op;	// NaN if allocation can't be measured
+
+		public Result(Benchmark b, double ops, double err, double bytes) {
+			benchmark = b;
+			ops_per_second = ops;
+			error = err;
+			bytes_per_op = bytes;
+		}
+
+		// Megabytes allocated per second
+		public double allocationRate() {
+			return bytes_per_op * ops_per_second / (1024.0 * 1024.0);
+		}
+	}
+}
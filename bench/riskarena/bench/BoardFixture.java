@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.bench;
+/*
+ * A BoardFixture is a realistic mid-game board state, used by the benchmarks so that
+ * they don't measure a freshly claimed (or finished) board. A map is loaded through
+ * GameData/MapReader, territories are claimed and initial armies placed at random,
+ * and then a number of rounds are played out with simple rules: each player places
+ * its reinforcements on a frontier territory and attacks from territories that
+ * outnumber a neighbor, rolling real Dice. The same seed always gives the same board.
+ *
+ * Evan Radkoff
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import riskarena.Bot;
+import riskarena.Deck;
+import riskarena.Dice;
+import riskarena.GameData;
+import riskarena.Player;
+import riskarena.Risk;
+
+public class BoardFixture {
+	public final GameData data;
+	public final Player players[];
+	public final Deck deck;
+	private Random rand;
+
+	/*
+	 * @param String map_file - file path to the map file
+	 * @param String bots[] - the RiskBots of the players (they are constructed but never asked anything)
+	 * @param int rounds - how many rounds of turns to play out after the initial placement
+	 * @param long seed - seeds every random choice and dice roll
+	 */
+	public BoardFixture(String map_file, String bots[], int rounds, long seed) {
+		rand = new Random(seed);
+		players = new Player[bots.length];
+		for(int i=0;i<bots.length;i++)
+			players[i] = new Bot(bots[i], Risk.getPlayerColor(i), i, true);
+		data = new GameData(players, map_file);
+		deck = new Deck(rand);
+		claimAndPlace();
+		for(int r=0;r<rounds && !data.over();r++) {
+			data.incrementTurn();
+			for(int p=0;p<players.length && !data.over();p++) {
+				if(!players[p].getStillIn())
+					continue;
+				data.setCurrentPlayerID(p);
+				reinforce(p);
+				attack(p);
+			}
+		}
+		data.setCurrentPlayerID(0);
+	}
+
+	// Claims every territory in a random order, then places the rest of each player's initial armies at random
+	private void claimAndPlace() {
+		int armies[] = { 45, 35, 30, 25, 20 };
+		int pile = armies[players.length - Risk.MIN_PLAYERS];
+		ArrayList<Integer> order = new ArrayList<Integer>();
+		for(int i=0;i<data.NUM_COUNTRIES;i++)
+			order.add(i);
+		Collections.shuffle(order, rand);
+		for(int i=0;i<order.size();i++) {
+			data.setOwner(order.get(i), i % players.length);
+			data.setArmies(order.get(i), 1);
+		}
+		for(int p=0;p<players.length;p++) {
+			int owned[] = ownedBy(p);
+			for(int a=owned.length;a<pile;a++)
+				data.addArmies(owned[rand.nextInt(owned.length)], 1);
+		}
+	}
+
+	// Places the usual reinforcements (territories and continents, but no cards) on one random frontier territory
+	private void reinforce(int p) {
+		int owned[] = ownedBy(p);
+		int reinforcements = Math.max(owned.length / 3, 3);
+		for(int cont=0;cont<data.NUM_CONTINENTS;cont++) {
+			boolean all = true;
+			for(int i=0;i<data.NUM_COUNTRIES;i++) {
+				if(data.getCountry(i).getCont() == cont && data.getOwner(i) != p)
+					all = false;
+			}
+			if(all)
+				reinforcements += data.getContinentBonus(cont);
+		}
+		ArrayList<Integer> frontier = new ArrayList<Integer>();
+		for(int i=0;i<owned.length;i++) {
+			if(hasEnemyNeighbor(owned[i], p))
+				frontier.add(owned[i]);
+		}
+		data.addArmies(frontier.isEmpty() ? owned[0] : frontier.get(rand.nextInt(frontier.size())), reinforcements);
+	}
+
+	// Attacks the weakest neighbor of every territory that outnumbers it, until the attack is won or lost
+	private void attack(int p) {
+		boolean gained_territory = false;
+		int owned[] = ownedBy(p);
+		for(int i=0;i<owned.length;i++) {
+			int adj[] = data.getAdjacencies(owned[i]);
+			int weakest = -1;
+			for(int j=0;j<adj.length;j++) {
+				if(data.getOwner(adj[j]) != p && (weakest == -1 || data.getArmies(adj[j]) < data.getArmies(weakest)))
+					weakest = adj[j];
+			}
+			if(weakest == -1 || data.getArmies(owned[i]) <= data.getArmies(weakest) + 1)
+				continue;
+			while(data.getArmies(owned[i]) > 2 && data.getArmies(weakest) > 0) {
+				Dice dice = new Dice(rand, Math.min(3, data.getArmies(owned[i]) - 1), data.getArmies(weakest) == 1 ? 1 : 2);
+				data.addArmies(owned[i], dice.attackerArmyChange);
+				data.addArmies(weakest, dice.defenderArmyChange);
+			}
+			if(data.getArmies(weakest) == 0) {
+				int loser = data.getOwner(weakest);
+				int moving = data.getArmies(owned[i]) / 2;
+				data.setOwner(weakest, p);
+				data.setArmies(weakest, moving);
+				data.addArmies(owned[i], -moving);
+				gained_territory = true;
+				if(data.getTerritoryCount(loser) == 0)
+					data.eliminatePlayer(loser);
+			}
+		}
+		if(gained_territory) {
+			int drawn = deck.drawCard();
+			if(drawn != -1)
+				players[p].incrementCardType(drawn);
+			int sets[][] = deck.possibleCardTriples(players[p].getCards());
+			if(players[p].getNumCards() >= 5 && sets.length > 0) {	// Keep hands realistic by turning in sets
+				for(int k=0;k<3;k++)
+					players[p].decrementCardType(sets[0][k]);
+				deck.addCards(sets[0]);
+			}
+		}
+	}
+
+	private boolean hasEnemyNeighbor(int country, int p) {
+		int adj[] = data.getAdjacencies(country);
+		for(int j=0;j<adj.length;j++) {
+			if(data.getOwner(adj[j]) != p)
+				return true;
+		}
+		return false;
+	}
+
+	// The IDs of the territories owned by player p
+	public int[] ownedBy(int p) {
+		int count = 0;
+		for(int i=0;i<data.NUM_COUNTRIES;i++) {
+			if(data.getOwner(i) == p)
+				count++;
+		}
+		int owned[] = new int[count];
+		count = 0;
+		for(int i=0;i<data.NUM_COUNTRIES;i++) {
+			if(data.getOwner(i) == p)
+				owned[count++] = i;
+		}
+		return owned;
+	}
+}
@@ -0,0 +1,365 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.bench;
+/*
+ * EngineBenchmarks measures the hot paths of the game engine, the evaluators and
+ * the decision makers on both included maps, and prints the throughput and
+ * allocation rate of each. Usage:
+ * java riskarena.bench.EngineBenchmarks [-warmup ms] [-iterations n] [-time ms] [name filter]
+ * See README.txt for how to compile the benchmarks.
+ *
+ * Evan Radkoff
+ */
+
+import java.util.ArrayList;
+
+import riskarena.Bot;
+import riskarena.Game;
+import riskarena.GameInfo;
+import riskarena.Player;
+import riskarena.Risk;
+import riskarena.World;
+import riskarena.riskbots.evaluation.ArmyChange;
+import riskarena.riskbots.evaluation.AttackPlanner;
+import riskarena.riskbots.evaluation.BattleMath;
+import riskarena.riskbots.evaluation.CardIndicator;
+import riskarena.riskbots.evaluation.Evaluation;
+import riskarena.riskbots.evaluation.FortifyArmiesDecision;
+import riskarena.riskbots.evaluation.OccupationChange;
+import riskarena.sim.Controller;
+import riskarena.sim.SimState;
+import riskarena.sim.Simulator;
+
+public class EngineBenchmarks {
+	private static final String maps[] = { "Earth.map", "NorthAmerica.map" };
+	private static final int FIXTURE_ROUNDS = 6;	// Rounds played out to reach a mid-game board
+	private static final long SEED = 12;
+
+	public static void main(String args[]) {
+		long warmup = 2000, time = 1000;
+		int iterations = 5;
+		String filter = "";
+		for(int i=0;i<args.length;i++) {
+			if(args[i].equals("-warmup"))
+				warmup = Long.parseLong(args[++i]);
+			else if(args[i].equals("-iterations"))
+				iterations = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-time"))
+				time = Long.parseLong(args[++i]);
+			else
+				filter = args[i];
+		}
+
+		ArrayList<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		addBattleBenchmarks(benchmarks);
+		for(int m=0;m<maps.length;m++)
+			addBenchmarks(benchmarks, Risk.MAPS_DIR_NAME + maps[m], maps[m]);
+
+		System.out.println(String.format("%-40s %-18s %14s %12s %14s %12s", "Benchmark", "Map", "ops/s", "error", "bytes/op", "MB/s"));
+		for(Benchmark b : benchmarks) {
+			if(b.getName().indexOf(filter) == -1)
+				continue;
+			Benchmark.Result r = b.measure(warmup, iterations, time);
+			System.out.println(String.format("%-40s %-18s %14.2f %12.2f %14.1f %12.2f", b.getName(), b.getMap(),
+					r.ops_per_second, r.error, r.bytes_per_op, r.allocationRate()));
+		}
+		System.exit(0);
+	}
+
+	/*
+	 * Adds every benchmark for a particular map
+	 */
+	private static void addBenchmarks(ArrayList<Benchmark> benchmarks, final String map_file, final String map) {
+		benchmarks.add(new FullGame("Game.play (Random x3)", map, map_file, new String[] { "Random", "Random", "Random" }));
+		benchmarks.add(new FullGame("Game.play (Awesome, Random x2)", map, map_file, new String[] { "Awesome", "Random", "Random" }));
+
+		benchmarks.add(new Benchmark("Simulator.play (greedy x3)", map) {
+			private Simulator sim;
+			private long seed = SEED;
+			public void setUp() {
+				sim = new Simulator(map_file, new Controller[] { new GreedyController(), new GreedyController(), new GreedyController() });
+			}
+			public long run() {
+				return sim.play(seed++);
+			}
+		});
+
+		benchmarks.add(new Benchmark("Evaluation.score(ArmyChanges)", map) {
+			private Evaluation eval;
+			private ArrayList<ArrayList<ArmyChange>> changes = new ArrayList<ArrayList<ArmyChange>>();
+			private int next = 0;
+			public void setUp() {
+				BoardFixture fixture = fixture(map_file);
+				int me = perspective(fixture);
+				eval = evaluation(fixture, me);
+				int owned[] = fixture.ownedBy(me);
+				for(int i=0;i<owned.length;i++) {	// Consider placing 3 armies on each territory
+					ArrayList<ArmyChange> change = new ArrayList<ArmyChange>();
+					change.add(new ArmyChange(owned[i], 3));
+					changes.add(change);
+				}
+			}
+			public long run() {
+				next = (next + 1) % changes.size();
+				return (long)(1000 * eval.score(changes.get(next)));
+			}
+		});
+
+		benchmarks.add(new Benchmark("Evaluation.score(OccupationChange)", map) {
+			private Evaluation eval;
+			private ArrayList<OccupationChange> changes = new ArrayList<OccupationChange>();
+			private int next = 0;
+			public void setUp() {
+				BoardFixture fixture = fixture(map_file);
+				int me = perspective(fixture);
+				eval = evaluation(fixture, me);
+				int owned[] = fixture.ownedBy(me);
+				for(int i=0;i<owned.length;i++) {	// Consider winning every possible attack, losing one army
+					int adj[] = fixture.data.getAdjacencies(owned[i]);
+					for(int j=0;j<adj.length;j++) {
+						if(fixture.data.getOwner(adj[j]) != me && fixture.data.getArmies(owned[i]) > 1)
+							changes.add(new OccupationChange(owned[i], adj[j], 1, fixture.data.getArmies(adj[j])));
+					}
+				}
+			}
+			public long run() {
+				next = (next + 1) % changes.size();
+				return (long)(1000 * eval.score(changes.get(next)));
+			}
+		});
+
+		benchmarks.add(new Benchmark("FortifyArmiesDecision.decideAll", map) {
+			private FortifyArmiesDecision decision;
+			public void setUp() {
+				BoardFixture fixture = fixture(map_file);
+				int me = perspective(fixture);
+				GameInfo game = new GameInfo(fixture.data, fixture.players[me]);
+				Evaluation eval = new Evaluation(game, new CardIndicator(), false);
+				eval.refresh("benchmark set up");
+				decision = new FortifyArmiesDecision(game, eval);
+			}
+			public long run() {
+				return decision.decideAll(5).get(0).ID();
+			}
+		});
+
+		benchmarks.add(new Benchmark("AttackPlanner.decide", map) {
+			private AttackPlanner planner;
+			public void setUp() {
+				BoardFixture fixture = fixture(map_file);
+				int me = perspective(fixture);
+				GameInfo game = new GameInfo(fixture.data, fixture.players[me]);
+				Evaluation eval = new Evaluation(game, new CardIndicator(), false);
+				eval.refresh("benchmark set up");
+				planner = new AttackPlanner(game, eval, Integer.MAX_VALUE);	// No budget, so the whole plan is timed
+			}
+			public long run() {
+				return planner.decide().get(0);
+			}
+		});
+
+		benchmarks.add(new Benchmark("World.getAdjacencies", map) {
+			private World world;
+			private int next = 0;
+			public void setUp() {
+				world = fixture(map_file).data.getWorldCopy();
+			}
+			public long run() {
+				next = (next + 1) % world.getNumCountries();
+				return world.getAdjacencies(next).length;
+			}
+		});
+
+		benchmarks.add(new Benchmark("GameData.getCountryInfo", map) {
+			private BoardFixture fixture;
+			public void setUp() {
+				fixture = fixture(map_file);
+			}
+			public long run() {
+				return fixture.data.getCountryInfo().length;
+			}
+		});
+
+		benchmarks.add(new Benchmark("GameData.getBoardView", map) {
+			private BoardFixture fixture;
+			private int country = 0, calls = 0;
+			public void setUp() {
+				fixture = fixture(map_file);
+			}
+			public long run() {	// Change the board every other call, so half of the views are new
+				if((calls++ & 1) == 0) {
+					country = (country + 1) % fixture.data.NUM_COUNTRIES;
+					fixture.data.addArmies(country, 0);
+				}
+				return fixture.data.getBoardView().getArmies(country);
+			}
+		});
+
+		benchmarks.add(new Benchmark("Deck.possibleCardTriples", map) {
+			private BoardFixture fixture;
+			private int hands[][];
+			private int next = 0;
+			public void setUp() {
+				fixture = fixture(map_file);
+				hands = new int[5*5*5*3][];	// Every hand of up to 4 of each regular card and up to 2 wildcards
+				int h = 0;
+				for(int a=0;a<5;a++)
+					for(int b=0;b<5;b++)
+						for(int c=0;c<5;c++)
+							for(int w=0;w<3;w++)
+								hands[h++] = new int[] { a, b, c, w };
+			}
+			public long run() {
+				next = (next + 1) % hands.length;
+				return fixture.deck.possibleCardTriples(hands[next]).length;
+			}
+		});
+	}
+
+	/*
+	 * Adds the benchmarks of battle predictions, which don't depend on the map
+	 */
+	private static void addBattleBenchmarks(ArrayList<Benchmark> benchmarks) {
+		benchmarks.add(new Benchmark("BattleMath.winProbability", "-") {
+			private int next = 0;
+			public long run() {	// Every battle of up to 99 vs 99
+				next = (next + 1) % (99 * 99);
+				return (long)(1000 * BattleMath.get().winProbability(1 + next / 99, 1 + next % 99));
+			}
+		});
+
+		benchmarks.add(new Benchmark("BattleMath.distribution (30 vs 20)", "-") {
+			private double on_win[] = new double[31], on_loss[] = new double[21];
+			public long run() {
+				BattleMath.get().distribution(30, 20, on_win, on_loss);
+				return (long)(1000 * on_win[15]);
+			}
+		});
+	}
+
+	private static BoardFixture fixture(String map_file) {
+		return new BoardFixture(map_file, new String[] { "Awesome", "Random", "Random" }, FIXTURE_ROUNDS, SEED);
+	}
+
+	// The first player of the fixture that is still in the game
+	private static int perspective(BoardFixture fixture) {
+		for(int i=0;i<fixture.players.length;i++) {
+			if(fixture.players[i].getStillIn())
+				return i;
+		}
+		return 0;
+	}
+
+	// An Evaluation from the point of view of player me, like the one a RiskBotAwesome would use
+	private static Evaluation evaluation(BoardFixture fixture, int me) {
+		Evaluation eval = new Evaluation(new GameInfo(fixture.data, fixture.players[me]), new CardIndicator(), false);
+		eval.refresh("benchmark set up");
+		return eval;
+	}
+
+	/*
+	 * A Controller for Simulator games that claims territories in order, reinforces and attacks
+	 * where it has the most armies to spare, moves half its armies in after a victory (all of
+	 * them if nothing else borders the territory it attacked from) and moves the armies of one
+	 * territory away from the front to a neighbor each turn
+	 */
+	private static class GreedyController implements Controller {
+		public int claimTerritory(SimState state) {
+			int id = 0;
+			while(state.getOwner(id) != -1)
+				id++;
+			return id;
+		}
+
+		public void fortifyTerritory(SimState state, int num_to_place, int answer[]) {
+			bestAttack(state, answer);
+			if(answer[0] == -1) {	// Nothing to attack, so anywhere will do
+				answer[0] = 0;
+				while(state.getOwner(answer[0]) != state.getCurrentPlayer())
+					answer[0]++;
+			}
+			answer[1] = num_to_place;
+		}
+
+		public void launchAttack(SimState state, int answer[]) {
+			bestAttack(state, answer);
+			if(answer[0] != -1 && state.getArmies(answer[0]) - 1 <= state.getArmies(answer[1]))
+				answer[0] = -1;		// Only attack with more armies than the defender
+		}
+
+		// Sets answer to the attack from a territory of the current player with the most armies over its neighbor
+		private void bestAttack(SimState state, int answer[]) {
+			World world = state.getWorld();
+			int me = state.getCurrentPlayer(), best = Integer.MIN_VALUE;
+			answer[0] = -1;
+			for(int id=0;id<state.getNumCountries();id++) {
+				if(state.getOwner(id) != me)
+					continue;
+				for(int k=0;k<world.getDegree(id);k++) {
+					int to = world.getAdjacency(id, k);
+					if(state.getOwner(to) != me && state.getArmies(id) - state.getArmies(to) > best) {
+						best = state.getArmies(id) - state.getArmies(to);
+						answer[0] = id;
+						answer[1] = to;
+						answer[2] = Math.max(1, Math.min(state.getArmies(id) - 1, 3));
+					}
+				}
+			}
+		}
+
+		public int fortifyAfterVictory(SimState state, int attacker, int defender, int min, int max) {
+			return state.isFrontier(attacker) ? Math.max(min, max / 2) : max;
+		}
+
+		public boolean chooseToTurnInSet(SimState state) {
+			return true;
+		}
+
+		public int chooseCardSet(SimState state, int sets[], int num_sets) {
+			return 0;
+		}
+
+		public void fortifyPosition(SimState state, int answer[]) {
+			World world = state.getWorld();
+			answer[0] = -1;
+			for(int id=0;id<state.getNumCountries();id++) {
+				if(state.getOwner(id) == state.getCurrentPlayer() && state.getArmies(id) > 1 && world.getDegree(id) > 0 && !state.isFrontier(id)) {
+					answer[0] = id;
+					answer[1] = world.getAdjacency(id, 0);
+					answer[2] = state.getArmies(id) - 1;
+					return;
+				}
+			}
+		}
+
+		public void endGame(SimState state, int place) { }
+	}
+
+	// Plays out entire seeded games between bots in direct mode, without graphics or logs
+	private static class FullGame extends Benchmark {
+		private String map_file, bots[];
+		private long seed = SEED;
+
+		public FullGame(String name, String map, String mf, String b[]) {
+			super(name, map);
+			map_file = mf;
+			bots = b;
+		}
+
+		public long run() {
+			Player players[] = new Player[bots.length];
+			for(int i=0;i<bots.length;i++)
+				players[i] = new Bot(bots[i], Risk.getPlayerColor(i), i, true);
+			Game game = new Game(players, map_file, false, false, seed++);
+			game.init();
+			game.play();
+			game.close(false);
+			return game.getResults().get(0);
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * BoardState holds the part of the game state that changes: who occupies each
+ * territory and with how many armies, in int arrays indexed by country ID.
+ * Alongside them it keeps running totals that the engine needs all the time
+ * (territories and armies of each player, and territories of each player in each
+ * continent). These are updated as the board changes, so reading them never
+ * requires a scan of the board. Only GameData uses it directly.
+ *
+ * Evan Radkoff
+ */
+
+import java.util.Arrays;
+
+class BoardState {
+	private final int NUM_PLAYERS;
+	private final int NUM_CONTINENTS;
+
+	private final int owners[];	// owners[i] is the player ID occupying country i, or -1 if unclaimed
+	private final int armies[];	// armies[i] is the number of armies on country i
+	private final int continents[];	// continents[i] is the continent ID of country i. Never changes.
+	private final int continent_sizes[];	// Number of countries in each continent
+
+	private final int territory_counts[];	// territory_counts[p] is how many countries player p occupies
+	private final int army_totals[];	// army_totals[p] is how many armies player p has on the board
+	private final int continent_counts[];	// continent_counts[c*NUM_PLAYERS + p] is how many countries of continent c player p occupies
+	private long version = 0;	// Incremented by every change
+
+	// conts[i] is the continent ID of country i
+	BoardState(int conts[], int num_continents, int num_players) {
+		NUM_PLAYERS = num_players;
+		NUM_CONTINENTS = num_continents;
+		continents = conts.clone();
+		owners = new int[continents.length];
+		armies = new int[continents.length];
+		Arrays.fill(owners, -1);
+		continent_sizes = new int[NUM_CONTINENTS];
+		for(int i=0;i<continents.length;i++)
+			continent_sizes[continents[i]]++;
+		territory_counts = new int[NUM_PLAYERS];
+		army_totals = new int[NUM_PLAYERS];
+		continent_counts = new int[NUM_CONTINENTS * NUM_PLAYERS];
+	}
+
+	/********************* Changes **********************/
+
+	// Gives country id to player_id (-1 to make it unclaimed), moving its armies along with it
+	void setOwner(int id, int player_id) {
+		int old_owner = owners[id];
+		if(old_owner != player_id) {
+			if(old_owner != -1) {
+				territory_counts[old_owner]--;
+				army_totals[old_owner] -= armies[id];
+				continent_counts[continents[id] * NUM_PLAYERS + old_owner]--;
+			}
+			if(player_id != -1) {
+				territory_counts[player_id]++;
+				army_totals[player_id] += armies[id];
+				continent_counts[continents[id] * NUM_PLAYERS + player_id]++;
+			}
+			owners[id] = player_id;
+		}
+		version++;
+	}
+
+	void setArmies(int id, int num_armies) {
+		if(owners[id] != -1)
+			army_totals[owners[id]] += num_armies - armies[id];
+		armies[id] = num_armies;
+		version++;
+	}
+
+	void addArmies(int id, int amount) {
+		setArmies(id, armies[id] + amount);
+	}
+
+	/********************* Getters **********************/
+
+	int getNumCountries() {
+		return owners.length;
+	}
+
+	int getOwner(int id) {
+		return owners[id];
+	}
+
+	int getArmies(int id) {
+		return armies[id];
+	}
+
+	int getCont(int id) {
+		return continents[id];
+	}
+
+	long getVersion() {
+		return version;
+	}
+
+	// Number of countries occupied by player_id
+	int getTerritoryCount(int player_id) {
+		return territory_counts[player_id];
+	}
+
+	// Number of armies player_id has on the board
+	int getArmyTotal(int player_id) {
+		return army_totals[player_id];
+	}
+
+	// Number of countries of continent cont occupied by player_id
+	int getContinentCount(int cont, int player_id) {
+		return continent_counts[cont * NUM_PLAYERS + player_id];
+	}
+
+	// Number of countries in continent cont
+	int getContinentSize(int cont) {
+		return continent_sizes[cont];
+	}
+
+	// The player ID of whoever occupies all of continent cont, or -1 if nobody does
+	int getContinentOwner(int cont) {
+		for(int p=0;p<NUM_PLAYERS;p++) {
+			if(continent_counts[cont * NUM_PLAYERS + p] == continent_sizes[cont])
+				return p;
+		}
+		return -1;
+	}
+
+	// A snapshot of the board as it is now
+	BoardView view() {
+		return new BoardView(version, owners.clone(), armies.clone(), continents);
+	}
+}
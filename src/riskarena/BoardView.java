@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * A BoardView is a read-only snapshot of who occupies each territory and with how
+ * many armies. It never changes once made, so it is safe to give to bots without
+ * copying. Every change to the board increments the game's version number, and
+ * GameData only makes a new BoardView when the version has changed, so a bot can
+ * compare getVersion() with the last view it saw to know if anything happened.
+ *
+ * Evan Radkoff
+ */
+
+public final class BoardView {
+	private final long version;	// The version of the board this is a snapshot of
+	private final int owners[];	// owners[i] is the ID of the player occupying territory i (-1 if unclaimed)
+	private final int armies[];	// armies[i] is the number of armies on territory i
+	private final int continents[];	// continents[i] is the ID of the continent territory i belongs to
+
+	// The arrays are kept, not copied, so they must not be modified afterwards
+	BoardView(long v, int o[], int a[], int c[]) {
+		version = v;
+		owners = o;
+		armies = a;
+		continents = c;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public int getNumCountries() {
+		return owners.length;
+	}
+
+	// The ID of the player that occupies territory id
+	public int getOwner(int id) {
+		return owners[id];
+	}
+
+	// How many armies are occupying territory id
+	public int getArmies(int id) {
+		return armies[id];
+	}
+
+	// The ID of the continent territory id belongs to
+	public int getCont(int id) {
+		return continents[id];
+	}
+
+	// Returns true if territory id has been claimed
+	public boolean isTaken(int id) {
+		return armies[id] > 0;
+	}
+}
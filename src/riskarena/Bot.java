@@ -9,29 +9,71 @@ package riskarena;
 /*
  * The Bot class is the player type of all AI. It passes requests for
  * choices from the game engine to a RiskBot instance (called skynet).
+ * Normally each decision is made by skynet on a thread of a pool shared by
+ * all bots, with a time limit, but in "direct" mode trusted RiskBots are called
+ * on the game engine's own thread and their answers are kept in a simple int
+ * buffer instead of a blocking queue.
  * 
  * Evan Radkoff
  */
 
 import java.awt.Color;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import riskarena.riskbots.*;
 
 public class Bot extends Player {
 	public static final String ICON_URL = Risk.IMAGES_PATH + "robot.png";
 	private final String BOT_PACKAGE = "riskarena.riskbots.";
+	// Threads shared by every Bot not in direct mode to make decisions on. Bots that time out are interrupted
+	// to give their thread back, and the pool is big enough that a few that ignore it can't hold up the rest.
+	private static final ExecutorService decision_pool = Executors.newFixedThreadPool(
+			4 * Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				private AtomicInteger thread_count = new AtomicInteger(1);
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "RiskBot-" + thread_count.getAndIncrement());
+					t.setDaemon(true);
+					return t;
+				}
+			});
 	private RiskBot skynet;		// The bot itself
+	private String bot_name;	// Name of the RiskBot being used (the class name without the RiskBot prefix)
 	private RiskListener risk_listener;	// Very simple object given to skynet that adds choices to from_bot
 	private LinkedBlockingQueue<Integer> from_bot = new LinkedBlockingQueue<Integer>();	// A Queue of answers given by skynet
-	private long timeout = 5;	// Max seconds to wait for an answer
+	private long timeout = 5;	// Max seconds to wait for a decision to start, and then for its answers
+	private static final long DONE_CHECK = 1000000;	// Nanoseconds between checks of whether a decision has finished without answering
+	private Future<?> decision = null;	// The decision skynet is making (or last made) on decision_pool
+	private long decision_submitted;	// When decision was given to decision_pool, from System.nanoTime()
+	private volatile long decision_started = 0;	// When decision started, or 0 if it hasn't yet
+	private AtomicInteger num_decisions = new AtomicInteger(0);
+	private AtomicLong queue_time = new AtomicLong(0);	// Nanoseconds decisions spent waiting for a thread of decision_pool
+	private AtomicLong compute_time = new AtomicLong(0);	// Nanoseconds skynet spent making decisions
+	private boolean direct;	// If true, skynet is called on the game engine's thread (see above)
+	private int answers[] = new int[8];	// In direct mode, a circular buffer of answers given by skynet
+	private int answers_start = 0, num_answers = 0;
+	private volatile RuntimeException failure = null;	// The exception thrown by skynet's last decision, if it threw one
 	private GameData data;
-	private boolean debug = false;
+	private ReplayWriter replay = null;	// If the game is being recorded, every answer is written to this
+	private final boolean debug = false;	// If true, each request for an answer is printed with where it came from
 
 	// Constructs a Bot object given its name, color, and player id
 	public Bot(String bot_name, Color c, int id) {
+		this(bot_name, c, id, false);
+	}
+
+	// Same as above, but if d is true the Bot runs in direct mode. Only use this for
+	// RiskBots that can be trusted to answer promptly, as there is no time limit.
+	public Bot(String bot_name, Color c, int id, boolean d) {
 		super(1, bot_name, c, id);	// Player constructor
+		this.bot_name = bot_name;
+		direct = d;
 		try {
 			// Loads the class of the RiskBot file being used.
 			Class dynamic_class = Class.forName(BOT_PACKAGE + Risk.RISKBOT_PREFIX + bot_name);
@@ -51,6 +93,20 @@ public class Bot extends Player {
 		risk_listener = new RiskListener();
 	}
 
+	// Constructs a Bot in direct mode around a RiskBot that has already been made
+	protected Bot(String bot_name, Color c, int id, RiskBot bot) {
+		super(1, bot_name, c, id);
+		this.bot_name = bot_name;
+		direct = true;
+		skynet = bot;
+		risk_listener = new RiskListener();
+	}
+
+	// Returns the name of the RiskBot being used, which stays the same even if the player is renamed
+	public String getBotName() {
+		return bot_name;
+	}
+
 	// This is called once in order to pass along a GameInfo object
 	// and the RiskListener to skynet so that it may communicate with the game.
 	public void initializeBot(GameData game_data) {
@@ -71,7 +127,18 @@ public class Bot extends Player {
 		skynet.endGame(place);
 	}
 
+	public boolean isDirect() {
+		return direct;
+	}
+
+	// Has every answer (or failure to give one) from now on written to r
+	public void setReplayWriter(ReplayWriter r) {
+		replay = r;
+	}
+
 	private void sleep() {
+		if(data.getBotPlayingSpeed() == 0)
+			return;
 		try {
 			Thread.sleep(data.getBotPlayingSpeed());
 		} catch (InterruptedException e) {
@@ -79,100 +146,258 @@ public class Bot extends Player {
 		}
 	}
 
-	// Starts a new thread, calls skynet's implemented claimTerritory method
-	public void claimTerritory() {
+	// Has skynet make a decision. In direct mode this happens right away on the calling
+	// thread, otherwise on a thread of decision_pool.
+	private void decide(final Runnable to_decide) {
 		sleep();
-		new Thread() {
+		if(direct) {
+			long start = System.nanoTime();
+			try {
+				to_decide.run();
+			} catch(RuntimeException e) {
+				failure = e;	// askInt will find no answer and report this
+			}
+			num_decisions.incrementAndGet();
+			compute_time.addAndGet(System.nanoTime() - start);
+			return;
+		}
+		final Game game = Risk.getCurrentGame();	// pool threads don't inherit the game whose output to use
+		failure = null;
+		decision_started = 0;
+		decision_submitted = System.nanoTime();
+		decision = decision_pool.submit(new Runnable() {
+			public void run() {
+				long start = System.nanoTime();
+				decision_started = start;
+				queue_time.addAndGet(start - decision_submitted);
+				Risk.setCurrentGame(game);
+				try {
+					to_decide.run();
+				} catch(RuntimeException e) {
+					e.printStackTrace();
+					failure = e;	// takeAnswer will find no answer and report this
+				} finally {
+					Risk.setCurrentGame(null);
+					num_decisions.incrementAndGet();
+					compute_time.addAndGet(System.nanoTime() - start);
+				}
+			}
+		});
+	}
+
+	// Interrupts the decision skynet is making, if there is one. Called when it has run out of time
+	// or the game can't go on, so that it stops using a thread of the pool.
+	public void cancelDecision() {
+		Future<?> d = decision;
+		if(d != null)
+			d.cancel(true);
+	}
+
+	// The number of decisions skynet has made, and the total nanoseconds they spent waiting
+	// for a thread and being computed
+	public int getNumDecisions() {
+		return num_decisions.get();
+	}
+
+	public long getQueueTime() {
+		return queue_time.get();
+	}
+
+	public long getComputeTime() {
+		return compute_time.get();
+	}
+
+	// Calls skynet's implemented claimTerritory method
+	public void claimTerritory() {
+		decide(new Runnable() {
 			public void run () {
 				skynet.claimTerritory();
 			}
-		}.start();
+		});
 	}
 
-	// Within a new thread, calls skynet's implemented forifyTerritory method
+	// Calls skynet's implemented forifyTerritory method, unless it has already given an answer.
+	// A decision that is still being made may yet give more answers, so it is waited for first.
 	public void fortifyTerritory(final int num_to_place) {
-		if(from_bot.isEmpty()) {
-			sleep();
-			new Thread() {
+		awaitDecision();
+		if(!hasAnswer()) {
+			decide(new Runnable() {
 				public void run () {
 					skynet.fortifyTerritory(num_to_place);
 				}
-			}.start();
+			});
 		}
 	}
 
-	// Within a new thread, calls skynet's implemented launchAttack method
+	// Calls skynet's implemented launchAttack method
 	public void launchAttack() {
-		sleep();
-		new Thread() {
+		decide(new Runnable() {
 			public void run () {
 				skynet.launchAttack();
 			}
-		}.start();
+		});
 	}
 
-	// Within a new thread, calls skynet's implemented forifyAfterVictory method
+	// Calls skynet's implemented forifyAfterVictory method
 	public void fortifyAfterVictory(final int attacker, final int defender, final int min, final int max) {
-		sleep();
-		new Thread() {
+		decide(new Runnable() {
 			public void run () {
 				skynet.fortifyAfterVictory(attacker, defender, min, max);
 			}
-		}.start();
+		});
 	}
 
-	// Within a new thread, calls skynet's implemented chooseCardSet method
+	// Calls skynet's implemented chooseCardSet method
 	public void chooseCardSet(final int[][] possible_sets) {
-		sleep();
-		new Thread() {
+		decide(new Runnable() {
 			public void run () {
 				skynet.chooseCardSet(possible_sets);
 			}
-		}.start();
+		});
 	}
 
-	// Within a new thread, calls skynet's implemented chooseToTurnInSet method
+	// Calls skynet's implemented chooseToTurnInSet method
 	public void chooseToTurnInSet() {
-		sleep();
-		new Thread() {
+		decide(new Runnable() {
 			public void run () {
 				skynet.chooseToTurnInSet();
 			}
-		}.start();
+		});
 	}
 
-	// Within a new thread, calls skynet's implemented forifyPosition method
+	// Calls skynet's implemented forifyPosition method
 	public void fortifyPosition() {
-		sleep();
-		new Thread() {
+		decide(new Runnable() {
 			public void run () {
 				skynet.fortifyPosition();
 			}
-		}.start();
+		});
 	}
 
-	// When the game engine is expecting the bot to provide an integer, this method
-	// grabs the int in the front of the LinkedBlockingQueue
-	public int askInt() throws RiskBotException {
-		if(debug) {
-			System.out.println("Requesting number from " + getName());
-			StackTraceElement z[] = Thread.currentThread().getStackTrace();
-			System.out.println("\t"+z[2].toString());
+	// Waits (until its deadline) for the decision skynet is making on decision_pool, if there is one, to finish
+	private void awaitDecision() {
+		Future<?> d = decision;
+		if(direct || d == null)
+			return;
+		long timeout_nanos = TimeUnit.SECONDS.toNanos(timeout);
+		while(!d.isDone()) {
+			long started = decision_started;
+			long wait = (started == 0 ? decision_submitted : started) + timeout_nanos - System.nanoTime();
+			if(wait <= 0)
+				return;
+			try {
+				d.get(wait, TimeUnit.NANOSECONDS);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch(Exception e) {
+				// Timed out, failed or cancelled: takeAnswer will find out which
+			}
+		}
+	}
+
+	// Whether or not skynet has given an answer that has yet to be asked for
+	private boolean hasAnswer() {
+		if(direct)
+			return num_answers > 0;
+		return !from_bot.isEmpty();
+	}
+
+	// Returns the next answer given by skynet, recording it if the game is being recorded
+	protected int nextAnswer() throws RiskBotException {
+		if(replay == null)
+			return takeAnswer();
+		try {
+			int answer = takeAnswer();
+			replay.answer(getId(), answer);
+			return answer;
+		} catch(RiskBotException e) {
+			replay.failure(getId(), e.getMessage());
+			throw e;
+		}
+	}
+
+	// Takes the next answer given by skynet. In direct mode skynet has already
+	// made its decision, so if there is no answer it never gave one. Otherwise this
+	// waits for an answer in the LinkedBlockingQueue until the decision's deadline,
+	// or until the decision has finished without giving one.
+	private int takeAnswer() throws RiskBotException {
+		if(direct) {
+			if(num_answers == 0)
+				throw noAnswer();
+			int answer = answers[answers_start];
+			answers_start = (answers_start + 1) % answers.length;
+			num_answers--;
+			return answer;
 		}
-		Integer answer = null;
+		// The decision has timeout seconds to start, and then timeout seconds to give its answers
+		long timeout_nanos = TimeUnit.SECONDS.toNanos(timeout);
+		Integer answer = from_bot.poll();
 		try {
-			answer = from_bot.poll(timeout, TimeUnit.SECONDS);
+			while(answer == null) {
+				long started = decision_started;
+				long deadline = (started == 0 ? decision_submitted : started) + timeout_nanos;
+				long wait = deadline - System.nanoTime();
+				if(wait <= 0)
+					break;
+				Future<?> d = decision;
+				if(d != null && d.isDone()) {
+					answer = from_bot.poll();	// Anything it sent was queued before it finished
+					if(answer == null)
+						throw noAnswer();
+					break;
+				}
+				answer = from_bot.poll(Math.min(wait, DONE_CHECK), TimeUnit.NANOSECONDS);
+			}
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
-		if(answer == null)
+		if(answer == null) {
+			cancelDecision();
+			if(decision_started == 0)
+				throw new RiskBotException("Decision could not be started within " + timeout + " seconds.");
 			throw new RiskBotException(timeout + " second time limit exceeded.");
-
+		}
 		return answer;
 	}
 
+	// The exception for a decision that finished without giving an answer
+	private RiskBotException noAnswer() {
+		RuntimeException e = failure;
+		if(e == null)
+			return new RiskBotException("Did not give an answer.");
+		failure = null;
+		RiskBotException thrown = new RiskBotException("Failed to give an answer: " + e);
+		thrown.initCause(e);
+		return thrown;
+	}
+
+	// Adds an answer to the end of the circular buffer used in direct mode, growing it if full
+	private void addAnswer(int answer) {
+		if(num_answers == answers.length) {
+			int bigger[] = new int[answers.length * 2];
+			for(int i=0;i<num_answers;i++)
+				bigger[i] = answers[(answers_start + i) % answers.length];
+			answers = bigger;
+			answers_start = 0;
+		}
+		answers[(answers_start + num_answers) % answers.length] = answer;
+		num_answers++;
+	}
+
 	// When the game engine is expecting the bot to provide an integer, this method
-	// grabs the int in the front of the LinkedBlockingQueue and verifies that it's
+	// grabs the next answer given by skynet
+	public int askInt() throws RiskBotException {
+		if(debug) {
+			System.out.println("Requesting number from " + getName());
+			StackTraceElement z[] = Thread.currentThread().getStackTrace();
+			System.out.println("\t"+z[2].toString());
+		}
+		return nextAnswer();
+	}
+
+	// When the game engine is expecting the bot to provide an integer, this method
+	// grabs the next answer given by skynet and verifies that it's
 	// above MIN (otherwise it throws a RiskBotException)
 	public int askInt(int MIN) throws RiskBotException {
 		if(debug) {
@@ -180,15 +405,7 @@ public class Bot extends Player {
 			StackTraceElement z[] = Thread.currentThread().getStackTrace();
 			System.out.println("\t"+z[2].toString());
 		}
-		Integer answer = null;
-		try {
-			answer = from_bot.poll(timeout, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		if(answer == null)
-			throw new RiskBotException(timeout + " second time limit exceeded.");
+		int answer = nextAnswer();
 		if(answer < MIN)
 			throw new RiskBotException(answer + " is not bigger than or equal to " + MIN);
 
@@ -196,7 +413,7 @@ public class Bot extends Player {
 	}
 
 	// When the game engine is expecting the bot to provide an integer, this method
-	// grabs the int in the front of the LinkedBlockingQueue and verifies that it's
+	// grabs the next answer given by skynet and verifies that it's
 	// above MIN and below MAX (otherwise it throws a RiskBotException)
 	public int askInt(int MIN, int MAX) throws RiskBotException {
 		if(debug) {
@@ -204,14 +421,7 @@ public class Bot extends Player {
 			StackTraceElement z[] = Thread.currentThread().getStackTrace();
 			System.out.println("\t"+z[2].toString());
 		}
-		Integer answer = null;
-		try {
-			answer = from_bot.poll(timeout, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		if(answer == null)
-			throw new RiskBotException(timeout + " second time limit exceeded.");
+		int answer = nextAnswer();
 		if(answer < MIN || answer > MAX)
 			throw new RiskBotException(answer + " is not in the range of " + MIN + " to " + MAX);
 		return answer;
@@ -223,6 +433,7 @@ public class Bot extends Player {
 	}
 
 	// A simply object capable of adding new Integers to the LinkedBlockingQueue "from_bot"
+	// (or in direct mode, the answers buffer).
 	// An instance of RiskListener is passed to skynet, allowing it to supply this
 	// class with its game time decisions.
 	public class RiskListener {
@@ -230,12 +441,18 @@ public class Bot extends Player {
 		public void sendInt(int to_send) {
 			if(debug)
 				System.out.println(to_send + " sent by " + getName());
-			from_bot.add(new Integer(to_send));
+			if(direct)
+				addAnswer(to_send);
+			else
+				from_bot.add(new Integer(to_send));
 		}
 		public void sendInt(Integer to_send) {
 			if(debug)
 				System.out.println(to_send + " sent by " + getName());
-			from_bot.add(to_send);
+			if(direct)
+				addAnswer(to_send);
+			else
+				from_bot.add(to_send);
 		}
 	}
 
@@ -8,19 +8,17 @@
 package riskarena;
 /*
  * This class represents a country/territory in Risk. It keeps track of its
- * name, the id of the player who occupies it, the number of occupying armies,
- * the position within the map, the CountryLabelVector (defined below) and the
- * continent id.
+ * name, the position within the map, the CountryLabelVector (defined below) and the
+ * continent id. None of these change during a game; who occupies a country and
+ * with how many armies is kept by GameData.
  * 
  */
 
 import java.awt.Point;
 
 
-public class Country implements CountryInterface {
+public class Country {
 	private String name;		// Name of territory
-	private int player;			// ID of the occupying player
-	private int armies;			// Number of armies currently occupying
 	private int continent;		// ID of the continent it belongs to
 
 	private Point position;
@@ -28,8 +26,6 @@ public class Country implements CountryInterface {
 
 	public Country(Country c) {
 		name = c.name;
-		player = c.player;
-		armies = c.armies;
 		position = c.getPosition();
 		continent = c.continent;
 		clv = c.clv;
@@ -37,8 +33,6 @@ public class Country implements CountryInterface {
 	public Country(String n, Point _position, int cont, CountryLabelVector _clv) {
 		name = n;
 		position = _position;
-		player = -1;
-		armies = 0;
 		continent = cont;
 		clv = _clv;
 	}
@@ -51,20 +45,6 @@ public class Country implements CountryInterface {
 	public int getCont() {
 		return continent;
 	}
-	public int getPlayer() {
-		return player;
-	}
-	public int getArmies() {
-		return armies;
-	}
-
-	// The metric for if a territory is claimed at the beginning of the game.
-	public boolean isTaken() {
-		if(armies <= 0)
-			return false;
-		else
-			return true;
-	}
 
 	public CountryLabelVector getCLV() {
 		return clv;
@@ -79,12 +59,6 @@ public class Country implements CountryInterface {
 	public void setCont(int c) {
 		continent = c;
 	}
-	public void setPlayer(int p) {
-		player = p;
-	}
-	public void setArmies(int a) {
-		armies = a;
-	}
 	public void setCLV(CountryLabelVector c) {
 		clv = c;
 	}
@@ -7,31 +7,38 @@
  ******************************************************************************/
 package riskarena;
 /*
- * The CountryInfo class is a way of hiding certain methods of Country from
- * bots, allowing them to only access some getters and isTaken().
+ * The CountryInfo class is a read-only look at one territory, safe to give to
+ * bots: its name and continent, and who occupies it and with how many armies.
+ * It reads the live game state, so it is always current.
  * 
  * Evan Radkoff
  */
 
 public class CountryInfo implements CountryInterface {
-	private final CountryInterface country;
-	public CountryInfo(CountryInterface wrapped) {
-		country = wrapped;
+	private final GameData data;
+	private final int id;
+	private final String name;
+	private final int cont;
+	CountryInfo(GameData g, int country_id) {
+		data = g;
+		id = country_id;
+		name = data.getCountry(id).getName();
+		cont = data.getCountry(id).getCont();
 	}
 	public String getName() {		// get the country's name. A bit useless for bots, but here it is.
-		return country.getName();
+		return name;
 	}
 	public int getCont() {			// get the ID on the continent it belongs to
-		return country.getCont();
+		return cont;
 	}
 	public int getPlayer() {		// get the ID of the player that occupies this territory
-		return country.getPlayer();
+		return data.getOwner(id);
 	}
 	public int getArmies() {		// get how many armies are occupying it
-		return country.getArmies();
+		return data.getArmies(id);
 	}
 	// returns true if this country has been claimed
 	public boolean isTaken() {
-		return country.isTaken();
+		return data.isTaken(id);
 	}
 }
@@ -11,6 +11,7 @@ package riskarena;
  * The constructor chooses a random float from 0-1, and uses the
  * probabilities found on wikipedia to determine how many armies are
  * lost. These results are set by change attackerArmyChange and defenderArmyChange.
+ * The probabilities are public so that bots can reason about battles exactly.
  * 
  * Evan Radkoff
  */
@@ -21,6 +22,19 @@ public class Dice {
 	public int attackerArmyChange;
 	public int defenderArmyChange;
 
+	// Probability that the defender loses an army when rolling against one die, or when one attacking die
+	// is rolled against two, by the number of attacking dice (otherwise the attacker loses one)
+	public static final double ONE_ATTACKER_VS_ONE = .4167;
+	public static final double ONE_ATTACKER_VS_TWO = .2546;
+	public static final double TWO_ATTACKERS_VS_ONE = .5787;
+	public static final double THREE_ATTACKERS_VS_ONE = .6597;
+	// When two or three attacking dice are rolled against two, the probabilities that the defender loses
+	// both armies and that the attacker loses both (otherwise each loses one)
+	public static final double TWO_VS_TWO_DEFENDER_LOSES_TWO = .2276;
+	public static final double TWO_VS_TWO_ATTACKER_LOSES_TWO = .4483;
+	public static final double THREE_VS_TWO_DEFENDER_LOSES_TWO = .3717;
+	public static final double THREE_VS_TWO_ATTACKER_LOSES_TWO = .2926;
+
 	/*
 	 * @param attack_dice The number of dice the attacker is rolling
 	 * @param def_dice The number of dice the defender is rolling
@@ -34,24 +48,24 @@ public class Dice {
 		switch(attack_dice) {
 		case 1:
 			if(def_dice == 1) {
-				if(dice_roll < .4167) {
+				if(dice_roll < ONE_ATTACKER_VS_ONE) {
 					defenderArmyChange = -1;
 				} else attackerArmyChange = -1;
 			} else {
-				if(dice_roll < .2546) {
+				if(dice_roll < ONE_ATTACKER_VS_TWO) {
 					defenderArmyChange = -1;
 				} else attackerArmyChange = -1;
 			}
 			break;
 		case 2:
 			if(def_dice == 1) {
-				if(dice_roll < .5787) {
+				if(dice_roll < TWO_ATTACKERS_VS_ONE) {
 					defenderArmyChange = -1;
 				} else attackerArmyChange = -1;
 			} else {
-				if(dice_roll < .2276) {
+				if(dice_roll < TWO_VS_TWO_DEFENDER_LOSES_TWO) {
 					defenderArmyChange = -2;
-				} else if(dice_roll < .6759) {
+				} else if(dice_roll < TWO_VS_TWO_DEFENDER_LOSES_TWO + TWO_VS_TWO_ATTACKER_LOSES_TWO) {
 					attackerArmyChange = -2;
 				} else {
 					defenderArmyChange = -1;
@@ -61,13 +75,13 @@ public class Dice {
 			break;
 		case 3:
 			if(def_dice == 1) {
-				if(dice_roll < .6597) {
+				if(dice_roll < THREE_ATTACKERS_VS_ONE) {
 					defenderArmyChange = -1;
 				} else attackerArmyChange = -1;
 			} else {
-				if(dice_roll < .3717) {
+				if(dice_roll < THREE_VS_TWO_DEFENDER_LOSES_TWO) {
 					defenderArmyChange = -2;
-				} else if(dice_roll < .6643) {
+				} else if(dice_roll < THREE_VS_TWO_DEFENDER_LOSES_TWO + THREE_VS_TWO_ATTACKER_LOSES_TWO) {
 					attackerArmyChange = -2;
 				} else {
 					defenderArmyChange = -1;
@@ -13,10 +13,9 @@ package riskarena;
  * Evan Radkoff
  */
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -36,12 +35,21 @@ public class Game {
 	
 	private int player_id_that_goes_first; // The index of PLAYER_NAMES that goes first. Randomly set in game initialization
 	private Random rand;
+	private long seed;	// The seed of rand
 
 	private boolean save_game_log; // If true, write game messages to log_path
-	private BufferedWriter log_writer;	// writes to log_path
+	private GameLog log = null;	// writes to log_path
 	private String log_path;
+	private static String last_log_date = null;	// The date and number in the file name of the last game log created
+	private static int last_log_number = 0;
+	private String map_file;
+	private ReplayWriter replay_writer = null;	// If not null, the game is being recorded to it
+	private ReplayReader replay_reader = null;	// If not null, the game is a replay of the one recorded in it
+	private GameListener events = null;	// Told of everything that happens in the game, or null if nobody is listening
+	private GameListenerList event_list = null;	// Becomes events once there's more than one listener
 
 	private ArrayList<Integer> game_results; // As players are eliminated, their IDs are added to this ArrayList
+	private int forfeit = -1;	// The ID of the player who forfeited the game, or -1 if nobody did
 	private long elapsed_time = 0;			// How long the game took
 
 	/* This is the primary Game constructor. It sets up the data
@@ -51,55 +59,85 @@ public class Game {
 	 * @param boolean w - whether or not this game is being watched graphically
 	 */
 	public Game(Player p[], String map_file, boolean w, boolean sgl) {
+		this(p, map_file, w, sgl, new Date().getTime());
+	}
+
+	/* Same as above, but the Random generator used for dice, cards, and choosing the
+	 * first player is seeded with the given seed.
+	 */
+	public Game(Player p[], String map_file, boolean w, boolean sgl, long s) {
 		data = new GameData(p, map_file);
+		this.map_file = map_file;
 		save_game_log = sgl;
 		watch = w; // whether or not to show the game
-		if(watch) {
+		if(watch)
 			initializeGraphics();
-			// Wait for the graphics to be initialized on its own thread.
-			while(board==null) {
-				try {
-					Thread.sleep(10);
-				} catch(Exception e) {
-					e.printStackTrace();
-				}
-			}
-		}
 		// If the game is not being watched, there's no need to have Bots pause before making decisions
 		if(!watch)
 			data.setBotPlayingSpeed(0);
 
 		if(save_game_log)	// If a game log is being written
 			setLogFilePath();
+		if(Risk.output_to_std || watch)	// Only describe the game if it's going to be seen (a game log describes it itself)
+			addGameListener(new GameText(this, data));
 
 		game_results = new ArrayList<Integer>();	// Initialize game results, keeping track of how players finish
 
-		// Initialize the Random generator with the current time
-		Date dat = new Date();
-		rand = new Random(dat.getTime());
-		//rand = new Random(12);
+		// Initialize the Random generator
+		seed = s;
+		rand = new Random(seed);
 
 		// initialize deck
 		deck = new Deck(rand);
 
 		setPlayerThatGoesFirst();
+		Risk.setCurrentGame(this);	// Output from this thread (and the threads it starts) now goes to this game
 	}
 
-	public void init() {
-		if(save_game_log) {		// If logs are being kept of this game
-			// Create the BufferedWriter that will write to log path
-			try {
-				File file = new File(log_path);
-				file.createNewFile();
-				FileWriter fstream = new FileWriter(log_path,true);
-				log_writer = new BufferedWriter(fstream);
-				// Write the beginnings of an HTML game report
-				log_writer.write("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\" \"http://www.w3.org/TR/html4/strict.dtd\"><html><head><title>Game at " + new Date().toString()
-						+ "</title><link rel=\"stylesheet\" type=\"text/css\" href=\"log_format.css\"></head><body>");
-			} catch(Exception e) {
-				Risk.sayError("Unable to create log file at " + log_path);
+	/*
+	 * Records the game to a replay file at path, from which it can be played again with Replay.
+	 * Must be called before init(). Only games between bots can be recorded.
+	 */
+	public void recordReplay(String path) {
+		for(int i=0;i<data.NUM_PLAYERS;i++) {
+			if(data.getPlayer(i).getType() != Player.BOT) {
+				Risk.sayError("Only games between bots can be recorded.");
+				return;
 			}
 		}
+		Player players[] = new Player[data.NUM_PLAYERS];
+		for(int i=0;i<players.length;i++)
+			players[i] = data.getPlayer(i);
+		replay_writer = new ReplayWriter(path, seed, map_file, players);
+		for(int i=0;i<players.length;i++)
+			((Bot)players[i]).setReplayWriter(replay_writer);
+	}
+
+	// l is told of every event of the game from now on (see GameListener)
+	public void addGameListener(GameListener l) {
+		if(events == null) {
+			events = l;
+		} else {
+			if(event_list == null) {
+				event_list = new GameListenerList();
+				event_list.add(events);
+				events = event_list;
+			}
+			event_list.add(l);
+		}
+	}
+
+	// Has the game check itself against the one recorded in r, which its players should be ReplayBots of
+	public void replayFrom(ReplayReader r) {
+		replay_reader = r;
+	}
+
+	public void init() {
+		if(save_game_log && log_path != null) {	// If logs are being kept of this game
+			log = new GameLog(log_path, "Game at " + new Date().toString(), data);
+			if(!Risk.output_to_std && !watch)	// Otherwise the GameText's messages reach the log through sayOutput
+				addGameListener(log);
+		}
 
 		data.sendGameDataToBots();
 		if(watch) {
@@ -110,47 +148,70 @@ public class Game {
 
 	public void play() {
 		long start_time = System.nanoTime();
-		placeInitialArmies();	// Game setup, involving players placing initial armies
+		try {
+			placeInitialArmies();	// Game setup, involving players placing initial armies
 
-		while(!data.over()) {	// over returns true when the game is done
-			pause();
-			sayOutput("=======================================");
-			sayOutput("Beginning " + data.getPlayerName() + "'s turn.");
-			data.incrementTurn();
-			data.notifyPlayerOfTurn();	// Informs bot players that their turn has started, allowing for optional initialization
-			fortifyArmies();  		// Step 1 of a player's turn
-			attackCountries();		// Step 2 of a player's turn
-			if(!data.over()) {
-				fortifyPosition();		// Step 3 of a player's turn
-				advanceTurn();
-				data.notifyPlayerOfTurnEnd();
+			while(!data.over()) {	// over returns true when the game is done
+				pause();
+				if(events != null)
+					events.turnStarted(data.getCurrentPlayerID());
+				data.incrementTurn();
+				data.notifyPlayerOfTurn();	// Informs bot players that their turn has started, allowing for optional initialization
+				fortifyArmies();  		// Step 1 of a player's turn
+				attackCountries();		// Step 2 of a player's turn
+				if(!data.over()) {
+					fortifyPosition();		// Step 3 of a player's turn
+					advanceTurn();
+					data.notifyPlayerOfTurnEnd();
+				}
 			}
+		} catch(Forfeit f) {
+			forfeit(f.player);
 		}
 		int winner = data.getWinner(); // get the winner from the game engine
+		if(replay_writer != null)
+			replay_writer.end(winner);
+		else if(replay_reader != null)
+			replay_reader.end(winner);
 		if(data.getPlayer(winner).getType() == Player.BOT)
 			((Bot)data.getPlayer(winner)).endGame(1);		// First place!
-		sayOutput("Congratulations " + data.getPlayer(winner).getName() + ", you win " + Risk.PROJECT_NAME + "!");
+		if(events != null)
+			events.gameWon(winner);
 		game_results.add(new Integer(winner));
 		elapsed_time = System.nanoTime() - start_time;
 	}
 	
 	private void pause() {
-		while(data.getPause()) {
-		
+		try {
+			data.waitWhilePaused();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
 	/*
-	 * This method creates and initializes the GameBoard object
+	 * This method creates and initializes the GameBoard object, returning once it has been
 	 */
 	private void initializeGraphics() {
-		SwingUtilities.invokeLater(new Runnable() {
+		Runnable create_board = new Runnable() {
 			@Override
 			public void run() {
 				board = new GameBoard();
 				board.setVisible(true);
 			}
-		});
+		};
+		if(SwingUtilities.isEventDispatchThread()) {
+			create_board.run();
+			return;
+		}
+		try {
+			SwingUtilities.invokeAndWait(create_board);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (InvocationTargetException e) {
+			Risk.sayError("Unable to create the game board: " + e.getCause());
+			System.exit(-1);
+		}
 	}
 
 	private void sendGameDataToBoard() {
@@ -174,6 +235,8 @@ public class Game {
 	 * toSay is the string wishing to be outputted
 	 */
 	public void sayOutput(final String toSay, final int output_format_style, boolean forced) {
+		if(!forced && !Risk.output_to_std && !watch && log == null)
+			return;		// Nobody to say it to
 		if( Risk.output_to_std || forced ) {
 			if(output_format_style == OutputFormat.TABBED)
 				System.out.println("\t" + toSay);
@@ -191,16 +254,8 @@ public class Game {
 				}
 			});
 		}
-		if(save_game_log && log_writer != null) {
-			// Append to the log_path file
-			try {
-				String HTMLtoSay = "<p class=\"" + OutputFormat.getClassName(output_format_style) + "\">" + toSay + "</p>";
-				log_writer.write(HTMLtoSay + '\n');
-			} catch (IOException e) {
-				Risk.sayError("Unable to write to " + log_path + ":");
-				Risk.sayError(e.getMessage());
-			}
-		}
+		if(log != null)
+			log.add(output_format_style, toSay);
 	}
 
 	/*
@@ -303,8 +358,8 @@ public class Game {
 					Risk.sayError("Territory already taken. Choose another.");
 					claimed = curr_player.askInt(1,data.NUM_COUNTRIES);
 				}
-				if(!human)
-					sayOutput(data.getPlayerName() + " has claimed " + data.getCountry(claimed-1).getName() + ".");
+				if(events != null)
+					events.territoryClaimed(data.getCurrentPlayerID(), claimed-1);
 				refreshGraphics();
 				pile[data.getCurrentPlayerID()]--;
 				advanceTurn();
@@ -323,7 +378,7 @@ public class Game {
 				}
 				if(human)
 					to_fortify--;
-				while(data.getCountry(to_fortify).getPlayer() != data.getCurrentPlayerID()) {
+				while(data.getOwner(to_fortify) != data.getCurrentPlayerID()) {
 					if(!human)
 						throw new Bot.RiskBotException("Tried to fortify a territory that wasn't his.");
 					Risk.sayError("Not your territory to fortify. Enter another.");
@@ -336,6 +391,8 @@ public class Game {
 
 				fortifyCountry(to_fortify, armies_added);
 				pile[data.getCurrentPlayerID()] -= armies_added;
+				if(events != null)
+					events.armiesPlaced(data.getCurrentPlayerID(), to_fortify, armies_added, -1);
 				refreshGraphics();
 
 				boolean done_fortifying = false;
@@ -387,7 +444,7 @@ public class Game {
 				}
 				if(human)
 					country_improving--;
-				while(data.getCountry(country_improving).getPlayer() != curr_player.getId()) {
+				while(data.getOwner(country_improving) != curr_player.getId()) {
 					if(!human)
 						throw new Bot.RiskBotException("Tried to place armies on a territory that wasn't his.");
 					Risk.sayError("Not your territory, enter another.");
@@ -405,15 +462,8 @@ public class Game {
 				fortifyCountry(country_improving, num_to_add);
 				armies_to_place -= num_to_add;
 				refreshGraphics();
-
-				if(human) {
-					String to_out = data.getCountry(country_improving).getName() + " fortified with " + num_to_add + " armies.";
-					if(armies_to_place > 0)
-						to_out += " " + armies_to_place + " remaining.";
-					sayOutput(to_out);
-				} else if(armies_to_place > 0) {
-					sayOutput(data.getPlayerName() + " has " + armies_to_place + " armies remaining.");
-				}
+				if(events != null)
+					events.armiesPlaced(curr_player.getId(), country_improving, num_to_add, armies_to_place);
 			}
 		} catch(Bot.RiskBotException e) {
 			BadRobot(data.getCurrentPlayerID(), "While placing armies:", e);
@@ -457,14 +507,14 @@ public class Game {
 							throw new Bot.RiskBotException("Tried to attack from a country that doesn't exist.");
 					}
 					from = data.getCountry(attacking_from);
-					if(from.getPlayer() != data.getCurrentPlayerID()) {
+					if(data.getOwner(attacking_from) != data.getCurrentPlayerID()) {
 						if(human)
 							Risk.sayError("Not your territory, enter another.");
 						else
 							throw new Bot.RiskBotException("Attempted to attack from " + from.getName() + ", but does not own it.");
 						continue;
 					}
-					if(from.getArmies() <= 1) {
+					if(data.getArmies(attacking_from) <= 1) {
 						if(human)
 							Risk.sayError("At least 2 armies are required to attack.");
 						else
@@ -475,18 +525,18 @@ public class Game {
 				}
 				if(done_attacking) break;
 				from = data.getCountry(attacking_from);
-				int adj[] = data.getAdjacencies(attacking_from);	// Get territory adjacency list from World class
-				if(adj.length == 0) {
+				World world = data.getWorld();
+				if(world.getDegree(attacking_from) == 0) {
 					Risk.sayError("According to the map file, " + from + " doesn't have any adjacencies.");
 					continue;
 				}
-				ArrayList<Integer> foreign_adjacencies = new ArrayList<Integer>();
 				// We are only interested in those surrounding territories that are of foreign ownership
-				for(int i=0 ; i<adj.length; i++) {
-					if(data.getCountry(adj[i]).getPlayer() != data.getCurrentPlayerID())
-						foreign_adjacencies.add(new Integer(adj[i]));
+				int num_foreign = 0;
+				for(int k=0; k<world.getDegree(attacking_from); k++) {
+					if(data.getOwner(world.getAdjacency(attacking_from, k)) != data.getCurrentPlayerID())
+						num_foreign++;
 				}
-				if(foreign_adjacencies.size() == 0) {
+				if(num_foreign == 0) {
 					if(human)
 						Risk.sayError("No foreign adjacencies found for " + from.getName() + ".");
 					else
@@ -494,6 +544,11 @@ public class Game {
 					continue;
 				}
 				if(human) {
+					ArrayList<Integer> foreign_adjacencies = new ArrayList<Integer>();
+					for(int k=0; k<world.getDegree(attacking_from); k++) {
+						if(data.getOwner(world.getAdjacency(attacking_from, k)) != data.getCurrentPlayerID())
+							foreign_adjacencies.add(new Integer(world.getAdjacency(attacking_from, k)));
+					}
 					if(foreign_adjacencies.size() == 1) {
 						sayOutput(data.getCountry(foreign_adjacencies.get(0)).getName() + " is the only foreign territory adjacent to " + from.getName() + ". Launching attack.");
 						attacking_to = foreign_adjacencies.get(0);
@@ -508,9 +563,10 @@ public class Game {
 					}
 				} else {
 					attacking_to = curr_player.askInt(0, data.NUM_COUNTRIES-1);
-					if(!foreign_adjacencies.contains(new Integer(attacking_to)))
+					if(!world.isAdjacent(attacking_from, attacking_to) || data.getOwner(attacking_to) == data.getCurrentPlayerID())
 						throw new Bot.RiskBotException("Tried to attack from " + from.getName() + " to " + data.getCountry(attacking_to).getName() + ", which is not a valid target.");
-					sayOutput(data.getPlayerName() + " is launching an attack from " + from.getName() + " to " + data.getCountry(attacking_to).getName() + ".");
+					if(events != null)
+						events.attackLaunched(data.getCurrentPlayerID(), attacking_from, attacking_to);
 				}
 				if(attack(attacking_from, attacking_to)) {		// attack() plays out the attack
 					gained_territory = true;
@@ -526,20 +582,8 @@ public class Game {
 				Risk.sayError("No cards left in deck.");
 			} else {
 				curr_player.incrementCardType(drawn); // give card to player for winning territory
-				if(human) {
-					switch(drawn) {
-					case 0:	sayOutput("As you have gained territory this turn, you get to draw a card. Picked up an infantry card.");
-					break;
-					case 1:	sayOutput("As you have gained territory this turn, you get to draw a card. Picked up a cavalry card.");
-					break;
-					case 2:	sayOutput("As you have gained territory this turn, you get to draw a card. Picked up an artillery card.");
-					break;
-					case 3:	sayOutput("As you have gained territory this turn, you get to draw a card. Picked up a wildcard.");
-					break;
-					}
-				} else {
-					sayOutput("As " + data.getPlayerName() + " has gained territory this turn, they get to draw a card. They are now holding " + curr_player.getNumCards() + ".");
-				}
+				if(events != null)
+					events.cardDrawn(curr_player.getId(), drawn, curr_player.getNumCards());
 			}
 		}
 	}
@@ -550,18 +594,18 @@ public class Game {
 	 */
 	private boolean attack(int attacker, int defender) {
 		boolean human = data.currentPlayerHuman();
-		Country from = data.getCountry(attacker), to = data.getCountry(defender);
-		Player curr_player = data.getCurrentPlayer(), being_attacked = data.getPlayer(to.getPlayer());
+		Country from = data.getCountry(attacker);
+		Player curr_player = data.getCurrentPlayer(), being_attacked = data.getPlayer(data.getOwner(defender));
 		try {
 			while(true) {
 				refreshGraphics();
 				int armies_attacking, armies_defending;
 				if(human) {
-					if(from.getArmies() == 1) {
+					if(data.getArmies(attacker) == 1) {
 						sayOutput("No more armies to attack with.", OutputFormat.TABBED);
 						return false;
 					}
-					if(from.getArmies() == 2) {
+					if(data.getArmies(attacker) == 2) {
 						sayOutput("Only 2 armies are left in " + from.getName() + ", continue the attack with one army? (Y)es or (n)o", OutputFormat.TABBED_QUESTION);
 						while(true) {
 							String answer = curr_player.askLine();
@@ -570,7 +614,7 @@ public class Game {
 							else Risk.sayError("Invalid input. Enter (y)es or (n)o.");
 						}
 						armies_attacking = 1;
-					} else if(from.getArmies() == 3) {
+					} else if(data.getArmies(attacker) == 3) {
 						sayOutput("How many armies do you send to battle - 1 or 2? 0 to cancel the attack.", OutputFormat.TABBED_QUESTION);
 						armies_attacking = curr_player.askInt(0, 2);
 					} else {
@@ -583,50 +627,33 @@ public class Game {
 				} else { // Bot
 					armies_attacking = curr_player.askInt(1, 3);
 				}
-				if(!human) {
-					sayOutput(from.getName() + " is sending " + armies_attacking + " armies to battle...", OutputFormat.TABBED);
-				}
-				if(to.getArmies() == 1)
+				if(data.getArmies(defender) == 1)
 					armies_defending = 1;
 				else
 					armies_defending = 2;
 
-				if(human)
-					sayOutput("Rolling dice...", OutputFormat.TABBED);
 				Dice dice = new Dice(rand, armies_attacking, armies_defending);
-				from.setArmies(from.getArmies() + dice.attackerArmyChange);
-				to.setArmies(to.getArmies() + dice.defenderArmyChange);
+				if(replay_writer != null)
+					replay_writer.dice(dice.attackerArmyChange, dice.defenderArmyChange);
+				else if(replay_reader != null)
+					replay_reader.dice(dice.attackerArmyChange, dice.defenderArmyChange);
+				data.addArmies(attacker, dice.attackerArmyChange);
+				data.addArmies(defender, dice.defenderArmyChange);
 				refreshGraphics();
-
-				switch(dice.attackerArmyChange) {
-				case 0:
-					if(dice.defenderArmyChange == -1)
-						sayOutput(to.getName() + " (" + being_attacked.getName() + ") loses 1 army.", OutputFormat.TABBED);
-					else sayOutput(to.getName() + " (" + being_attacked.getName() + ") loses 2 armies.", OutputFormat.TABBED);
-					break;
-				case -1:
-					if(dice.defenderArmyChange == -1)
-						sayOutput("Each player loses 1 army.", OutputFormat.TABBED);
-					else sayOutput(from.getName() + " (" + data.getPlayerName() + ") loses 1 army.", OutputFormat.TABBED);
-					break;
-				case -2:
-					sayOutput(from.getName() + " (" + data.getPlayerName() + ") loses 2 armies.", OutputFormat.TABBED);
-					break;
-				}
+				if(events != null)
+					events.battleRolled(curr_player.getId(), attacker, defender, being_attacked.getId(), armies_attacking, dice.attackerArmyChange, dice.defenderArmyChange);
 
 				// Territory captured
-				if(to.getArmies() == 0) {
-					if(human)
-						sayOutput("Congratulations " + from.getName() + ", you captured " + to.getName() + "!", OutputFormat.TABBED);
-					else
-						sayOutput(from.getName() + " has captured " + to.getName() + " (" + being_attacked.getName() + ")", OutputFormat.TABBED);
+				if(data.getArmies(defender) == 0) {
 					refreshGraphics();
-					to.setPlayer(data.getCurrentPlayerID());	// transfer ownership to the attacker
+					data.setOwner(defender, data.getCurrentPlayerID());	// transfer ownership to the attacker
+					if(events != null)
+						events.territoryConquered(curr_player.getId(), attacker, defender, being_attacked.getId());
 					if(playerEliminated(being_attacked.getId())) {
-						sayOutput("*** " + from.getName() + " has eliminated " + being_attacked.getName() + " ***", OutputFormat.TABBED);
+						if(events != null)
+							events.playerEliminated(attacker, being_attacked.getId(), data.over() ? 0 : being_attacked.getNumCards());
 						if(data.over()) return true;	// if the game is over
 						if(being_attacked.getNumCards() > 0) { // turn_player_id gets some free cards from defender
-							sayOutput("* " + from.getName() + " gets " + being_attacked.getNumCards() + " free cards. *", OutputFormat.TABBED);
 							curr_player.increaseCardType(0, being_attacked.getNumCardType(0));
 							curr_player.increaseCardType(1, being_attacked.getNumCardType(1));
 							curr_player.increaseCardType(2, being_attacked.getNumCardType(2));
@@ -652,17 +679,17 @@ public class Game {
 						}
 					}
 					int armies_to_move = 1;
-					if(from.getArmies() - armies_attacking > 1) {
+					if(data.getArmies(attacker) - armies_attacking > 1) {
 						if(human)
-							sayOutput("How many armies would you like to move in for occupation? Min " + armies_attacking + ", Max " + (from.getArmies()-1), OutputFormat.TABBED_QUESTION);
+							sayOutput("How many armies would you like to move in for occupation? Min " + armies_attacking + ", Max " + (data.getArmies(attacker)-1), OutputFormat.TABBED_QUESTION);
 						else
-							((Bot)curr_player).fortifyAfterVictory(attacker, defender, armies_attacking, (from.getArmies()-1));
-						armies_to_move = curr_player.askInt(armies_attacking, (from.getArmies()-1));
+							((Bot)curr_player).fortifyAfterVictory(attacker, defender, armies_attacking, (data.getArmies(attacker)-1));
+						armies_to_move = curr_player.askInt(armies_attacking, (data.getArmies(attacker)-1));
 					} else armies_to_move = armies_attacking;
-					if(!human)
-						sayOutput(curr_player.getName() + " moves " + armies_to_move + " armies into " + to.getName() + " for occupation.");
-					from.setArmies( from.getArmies() - armies_to_move );
-					to.setArmies( to.getArmies() + armies_to_move );
+					data.addArmies(attacker, -armies_to_move);
+					data.addArmies(defender, armies_to_move);
+					if(events != null)
+						events.armiesMovedIn(curr_player.getId(), defender, armies_to_move);
 
 					refreshGraphics();
 					return true;
@@ -705,7 +732,6 @@ public class Game {
 					int choice = curr_player.askInt();
 					if(choice != 1)
 						return armies;
-					sayOutput(data.getPlayerName() + " is turning in a set of cards for armies.");
 				}
 			}
 
@@ -733,10 +759,8 @@ public class Game {
 				deck.addCards(possible_triples[choice]);
 				armies += data.getArmiesFromNextSet();
 			}
-			if(human)
-				sayOutput("You get to place an additional " + data.getArmiesFromNextSet() + " armies.");
-			else
-				sayOutput(data.getPlayerName() + " gets to place an additional " + data.getArmiesFromNextSet() + " armies.");
+			if(events != null)
+				events.cardsTurnedIn(curr_player.getId(), data.getArmiesFromNextSet(), optional);
 			data.advanceCardArmies();
 		} catch(Bot.RiskBotException e) {
 			BadRobot(data.getCurrentPlayerID(), "While turning in a set of cards:", e);
@@ -749,11 +773,9 @@ public class Game {
 	 * @return A boolean indicating success (different player ownership than turn_player_id will yield false)
 	 */
 	private boolean fortifyCountry(int country_to_fortify, int num_armies_added) {
-		if(data.getCountry(country_to_fortify).getPlayer() != data.getCurrentPlayerID())
+		if(data.getOwner(country_to_fortify) != data.getCurrentPlayerID())
 			return false;
-		if(!data.currentPlayerHuman())
-			sayOutput(data.getPlayerName() + " has placed " + num_armies_added + " armies on " + data.getCountry(country_to_fortify).getName() + ".");
-		data.getCountry(country_to_fortify).setArmies(data.getCountry(country_to_fortify).getArmies() + num_armies_added);
+		data.addArmies(country_to_fortify, num_armies_added);
 		return true;
 	}
 
@@ -762,12 +784,9 @@ public class Game {
 	 * If so, sets still_in[player_id] as false to indicate they are out.
 	 */
 	private boolean playerEliminated(int player_id) {
-		for(int i=0;i<data.NUM_COUNTRIES;i++) {
-			if(data.getCountry(i).getPlayer() == player_id) {
-				return false;
-			}
-		}
-		data.getPlayer(player_id).setStillIn(false);
+		if(data.getTerritoryCount(player_id) > 0)
+			return false;
+		data.eliminatePlayer(player_id);
 		if(data.getPlayer(player_id).getType() == Player.BOT)
 			((Bot)data.getPlayer(player_id)).endGame(data.NUM_PLAYERS - game_results.size());
 		game_results.add(new Integer(player_id));
@@ -775,17 +794,52 @@ public class Game {
 	}
 
 	/*
-	 * If a RiskBot gives an incorrect input or exceeds the time limit, this method is called to print an error message and quit.
+	 * If a RiskBot gives an incorrect input or exceeds the time limit, this method is called to print an error message
+	 * and end the game, with the bot forfeiting it (see forfeit()). It does not return.
 	 * Player_id is the bot that messed up. Scope is some message about what part of the game/turn it occured in.
 	 */
 	public void BadRobot(int player_id, String scope, Exception e) {
 		sayError("The RiskBot " + data.getPlayer(player_id).getName() + " messed up big time, and the game could not go on.", true);
 		sayOutput(scope, true);
 		sayOutput(e.getMessage(), true);
-		while(true) {
-			
+		if(data.getPlayer(player_id).getType() == Player.BOT)
+			((Bot)data.getPlayer(player_id)).cancelDecision();	// Don't leave it running
+		throw new Forfeit(player_id);	// Caught by play()
+	}
+
+	/*
+	 * Ends the game early because player can't go on. They finish behind everyone still in
+	 * the game, who are ranked by how many territories they hold, and then by armies.
+	 */
+	private void forfeit(int player) {
+		forfeit = player;
+		sayOutput(data.getPlayer(player).getName() + " forfeits the game.");
+		data.eliminatePlayer(player);
+		game_results.add(player);
+		while(!data.over()) {
+			int weakest = -1;
+			for(int i=0;i<data.NUM_PLAYERS;i++) {
+				if(!data.getPlayer(i).getStillIn())
+					continue;
+				if(weakest == -1 || data.getTerritoryCount(i) < data.getTerritoryCount(weakest)
+						|| (data.getTerritoryCount(i) == data.getTerritoryCount(weakest) && data.getPlayerArmies(i) < data.getPlayerArmies(weakest)))
+					weakest = i;
+			}
+			data.eliminatePlayer(weakest);
+			if(data.getPlayer(weakest).getType() == Player.BOT)
+				((Bot)data.getPlayer(weakest)).endGame(data.NUM_PLAYERS - game_results.size());
+			game_results.add(weakest);
+		}
+	}
+
+	// Thrown by BadRobot to stop the game, wherever it is
+	private static class Forfeit extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private final int player;
+		Forfeit(int p) {
+			super(null, null, false, false);	// No stack trace needed
+			player = p;
 		}
-		//System.exit(0);
 	}
 
 	/*
@@ -794,32 +848,22 @@ public class Game {
 	 * @return int representing the num of armies
 	 */
 	private int armiesFromTerritories() {
-		int territories_held = 0;
-		for(int i=0; i < data.NUM_COUNTRIES; i++) {
-			if(data.getCountry(i).getPlayer() == data.getCurrentPlayerID())
-				territories_held++;
-		}
-		return Math.max(territories_held / 3, 3);
+		return Math.max(data.getTerritoryCount(data.getCurrentPlayerID()) / 3, 3);
 	}
 
 	/*
 	 * This method returns how many armies the player who's turn it is gets to place
-	 * that comes from having full continents. It iterates COUNTRIES looking for a
-	 * territory of each continent that is NOT owned by the current player.
+	 * that comes from having full continents, using the count GameData keeps of how
+	 * many territories of each continent the player holds.
 	 * @return int representing the num of armies
 	 */
 	private int armiesFromContinents() {
-		boolean continents_won[] = new boolean[data.NUM_CONTINENTS];
-		for(int i=0; i < continents_won.length; i++) continents_won[i] = true;
-		for(int country_id=0; country_id < data.NUM_COUNTRIES; country_id++) {
-			if(data.getCountry(country_id).getPlayer() != data.getCurrentPlayerID())
-				continents_won[data.getCountry(country_id).getCont()] = false;
-		}
 		int bonus_armies = 0;
-		for(int i=0;i<continents_won.length;i++) {
-			if(continents_won[i]) {
+		for(int i=0;i<data.NUM_CONTINENTS;i++) {
+			if(data.ownsContinent(i, data.getCurrentPlayerID())) {
 				bonus_armies += data.getContinentBonus(i);
-				sayOutput("+ " + data.getContinentBonus(i) + " armies for owning all of " + data.getContinentName(i) + ".", OutputFormat.TABBED);
+				if(events != null)
+					events.continentBonus(data.getCurrentPlayerID(), i);
 			}
 		}
 		return bonus_armies;
@@ -896,12 +940,11 @@ public class Game {
 					move_from = curr_player.askInt(0, data.NUM_COUNTRIES);
 					if(move_from == 0) return;
 					move_from--; // The number entered is 1-data.NUM_COUNTRIES, but we want 0-(data.NUM_COUNTRIES-1)
-					Country from = data.getCountry(move_from);
-					if(from.getPlayer() != data.getCurrentPlayerID()) {
+					if(data.getOwner(move_from) != data.getCurrentPlayerID()) {
 						Risk.sayError("Not your territory, enter another.");
 						continue;
 					}
-					if(from.getArmies() <= 1) {
+					if(data.getArmies(move_from) <= 1) {
 						Risk.sayError("A minimum of 1 army must be present in each territory. Enter another.");
 						continue;
 					}
@@ -911,22 +954,21 @@ public class Game {
 				((Bot)curr_player).fortifyPosition();
 				move_from = curr_player.askInt();
 				if(move_from < 0) return;
-				Country from = data.getCountry(move_from);
 				if(move_from >= data.NUM_COUNTRIES)
 					throw new Bot.RiskBotException("Tried to move armies from a territory that doesn't exist.");
-				if(from.getPlayer() != data.getCurrentPlayerID())
+				if(data.getOwner(move_from) != data.getCurrentPlayerID())
 					throw new Bot.RiskBotException("Tried to move armies from a territory that doesn't belong to them.");
-				if(from.getArmies() <= 1)
+				if(data.getArmies(move_from) <= 1)
 					throw new Bot.RiskBotException("Tried to move armies from a territory that doesn't have more than 1.");
 				move_to = curr_player.askInt(0, data.NUM_COUNTRIES-1);
-				if(from.getPlayer() != data.getCurrentPlayerID())
+				if(data.getOwner(move_from) != data.getCurrentPlayerID())
 					throw new Bot.RiskBotException("Tried to move armies to a territory that doesn't belong to them.");
-				army_change = curr_player.askInt(1, from.getArmies()-1);
+				army_change = curr_player.askInt(1, data.getArmies(move_from)-1);
 			}
 
 			Country from = data.getCountry(move_from);
-			int adj[] = data.getAdjacencies(move_from);	// Get territory adjacency list from World class
-			if(adj.length == 0) {
+			World world = data.getWorld();
+			if(world.getDegree(move_from) == 0) {
 				if(!human)
 					throw new Bot.RiskBotException("Tried to move armies from a territory that has no adjacencies.");
 				Risk.sayError("According to the map file, " + from.getName() + " doesn't have any adjacencies.");
@@ -934,9 +976,9 @@ public class Game {
 			}
 			ArrayList<Integer> domestic_adjacencies = new ArrayList<Integer>();
 			// We are only interested in those surrounding territories that belong to the player
-			for(int i=0 ; i<adj.length; i++) {
-				if(data.getCountry(adj[i]).getPlayer() == data.getCurrentPlayerID())
-					domestic_adjacencies.add(new Integer(adj[i]));
+			for(int k=0; k<world.getDegree(move_from); k++) {
+				if(data.getOwner(world.getAdjacency(move_from, k)) == data.getCurrentPlayerID())
+					domestic_adjacencies.add(new Integer(world.getAdjacency(move_from, k)));
 			}
 			if(domestic_adjacencies.size() == 0) {
 				if(!human)
@@ -965,13 +1007,13 @@ public class Game {
 		}
 		Country from = data.getCountry(move_from);
 		if(human) {
-			sayOutput("How many armies would you like to move into " + data.getCountry(move_to).getName() + "? Max " + (from.getArmies()-1), OutputFormat.QUESTION);
-			army_change = ((Human)curr_player).askInt(1, from.getArmies()-1);
-		} else {
-			sayOutput(data.getPlayerName() + " is fortifying " + data.getCountry(move_to).getName() + " with " + army_change + " armies from " + from.getName() + ".");
+			sayOutput("How many armies would you like to move into " + data.getCountry(move_to).getName() + "? Max " + (data.getArmies(move_from)-1), OutputFormat.QUESTION);
+			army_change = ((Human)curr_player).askInt(1, data.getArmies(move_from)-1);
 		}
-		from.setArmies(from.getArmies() - army_change);
-		data.getCountry(move_to).setArmies(data.getCountry(move_to).getArmies() + army_change);
+		data.addArmies(move_from, -army_change);
+		data.addArmies(move_to, army_change);
+		if(events != null)
+			events.positionFortified(curr_player.getId(), move_from, move_to, army_change);
 		refreshGraphics();
 	}
 
@@ -981,11 +1023,11 @@ public class Game {
 	 * @return A boolean indicating success or failure
 	 */
 	private boolean claimCountry(int to_claim) {
-		if(data.getCountry(to_claim-1).getArmies() != 0)	// If the territory has already been claimed by someone
+		if(data.getArmies(to_claim-1) != 0)	// If the territory has already been claimed by someone
 			return false;
 		else {
-			data.getCountry(to_claim-1).setArmies(1);
-			data.getCountry(to_claim-1).setPlayer(data.getCurrentPlayerID());
+			data.setArmies(to_claim-1, 1);
+			data.setOwner(to_claim-1, data.getCurrentPlayerID());
 		}
 		return true;
 	}
@@ -1011,13 +1053,30 @@ public class Game {
 		SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd"); 
 		String dateStr = sdf.format(cal.getTime());
 		logp += dateStr;	// Add the current date to the file name
-		int unique = 1;	// To ensure it's unique, keep adding a number until it is
+		int unique;	// To ensure it's unique, keep adding a number until it is
+		synchronized(Game.class) {
+			// Start after the last number used today, rather than trying every log already written
+			if(!dateStr.equals(last_log_date)) {
+				last_log_date = dateStr;
+				last_log_number = 0;
+			}
+			unique = last_log_number + 1;
+		}
 		while(true) {
+			// createNewFile is atomic, so games being played at the same time never share a log
 			File f = new File(logp + "-" + unique + ".html");
-			if(!f.exists())
+			try {
+				if(f.createNewFile())
+					break;
+			} catch (IOException e) {
+				Risk.sayError("Unable to create log file at " + f.getPath());
 				break;
+			}
 			unique++;
 		}
+		synchronized(Game.class) {
+			last_log_number = Math.max(last_log_number, unique);
+		}
 		logp += "-" + unique + ".html";
 		log_path = logp;
 	}
@@ -1031,6 +1090,16 @@ public class Game {
 		return results_copy;
 	}
 	
+	// Returns the ID of the player who forfeited the game, or -1 if nobody did
+	public int getForfeit() {
+		return forfeit;
+	}
+
+	// Returns the seed of the Random generator used for dice, cards, and choosing the first player
+	public long getSeed() {
+		return seed;
+	}
+
 	// Once the game is complete, this returns how long it took in nanoseconds.
 	// If the game is not complete, this returns 0.
 	public long getElapsedTime() {
@@ -1040,18 +1109,17 @@ public class Game {
 	// Called by the Risk class upon completion of the game to close loose ends.
 	// If close_board is true, the game board is closed. Otherwise it is left open.
 	public void close(boolean close_board) {
-		// Finish writing game log, close the BufferedWriter
-		if(save_game_log) {
-			try {
-				log_writer.write("</body></html>");
-				log_writer.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		// Finish writing the game log
+		if(log != null) {
+			log.close();
+			log = null;
 		}
+		if(replay_writer != null)
+			replay_writer.close();
 		// Close the game board
 		if(watch && close_board)
 			board.setVisible(false);
+		Risk.setCurrentGame(null);
 	}
 	
 	// When a Game object is used for more than one game, this method can be called to "clear" old game data
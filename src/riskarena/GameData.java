@@ -27,12 +27,13 @@ public class GameData {
 	public final int NUM_CONTINENTS; // number of continents
 
 	/***** Game data objects *****/
-	private MapReader mapreader;	// MapReader object that allows the map file to be read easily
+	private MapModel map;	// Everything read from the map file, shared with every other game on the same map
 	private World world; // The world object that holds adjacency information
 
 	/***** Important arrays of game data *****/
 	private Player[] players; // Array of Player objects (name, cards, ID, etc)
-	private Country[] countries; // Array of Country objects (private helper class storing name, player id, and number of armies)
+	private Country[] countries; // Array of Country objects (name, continent, and where to draw it)
+	private BoardState state; // Who occupies each country and with how many armies, plus running totals
 	private String[] continent_names; // Array of the continent names
 	private int[] continent_bonuses; // Array of the continent army bonuses
 	private Color[] continent_colors;
@@ -43,35 +44,45 @@ public class GameData {
 	private int winner = 0;	// player id of the winner
 	private int turn_player_id; // Index of PLAYER_NAMES whose turn it is
 	private int turn_number = 0;	// Incremented each time all players make their turn
-	private volatile boolean pause = false;
+	private int players_remaining;	// Number of players that haven't been eliminated
+	private boolean pause = false;
+
+	/***** Views of the board given to bots *****/
+	private BoardView board_view = null;	// The most recent snapshot of the board, made on demand
+	private CountryInfo[] country_infos;	// Read-only wrappers of the countries, made once
 
 	// A GameData object is created by the game engine (Game.java) using an array of Players and
 	// the string path to a valid map file.
 	public GameData(Player p[], String map_file) {
 		NUM_PLAYERS = p.length;
 
-		// make map reader, read map info
+		// get the map info, read from the map file only if no other game has read it already
 		try {
-			mapreader = new MapReader(map_file);
+			map = MapModel.get(map_file);
 		} catch(Exception e) {
 			Risk.sayError("Something is wrong with " + map_file + ": " + e.getMessage());
 			System.exit(-1);
 		}
 
-		// Get country info from the map reader
-		countries = mapreader.getCountries();
+		// Country info, and the World object that keeps track of adjacencies
+		countries = map.getCountries();
 		NUM_COUNTRIES = countries.length;
+		world = map.getWorld();
 
-		// Construct the World object that keeps track of adjacencies (getting them from the map reader)
-		world = new World(NUM_COUNTRIES, mapreader.getAdjacencyInfo());
-
-		// get continent info from mapreader
-		continent_names = mapreader.getContinentNames();
-		continent_bonuses = mapreader.getContinentBonuses();
-		continent_colors = mapreader.getContinentColors();
+		// continent info
+		continent_names = map.getContinentNames();
+		continent_bonuses = map.getContinentBonuses();
+		continent_colors = map.getContinentColors();
 		NUM_CONTINENTS = continent_names.length;
 
 		players = p;
+		players_remaining = NUM_PLAYERS;
+
+		state = new BoardState(map.getContinentIDs(), NUM_CONTINENTS, NUM_PLAYERS);
+
+		country_infos = new CountryInfo[NUM_COUNTRIES];
+		for(int i=0; i < NUM_COUNTRIES; i++)
+			country_infos[i] = new CountryInfo(this, i);
 	}
 	
 	/********************* General game play helper methods **********************/
@@ -88,6 +99,15 @@ public class GameData {
 	public void resetPlayers() {
 		for(int i=0; i < players.length; i++)
 			players[i].reset();
+		players_remaining = NUM_PLAYERS;
+	}
+
+	// Marks the player with the given id as no longer in the game
+	public void eliminatePlayer(int id) {
+		if(getPlayer(id).getStillIn()) {
+			players[id].setStillIn(false);
+			players_remaining--;
+		}
 	}
 	
 	/*
@@ -161,7 +181,8 @@ public class GameData {
 		return players[id];
 	}
 
-	// Gets the Country with the given id
+	// Gets the Country with the given id. This only describes the country (its name, continent,
+	// and where it's drawn). Who occupies it is found with getOwner and getArmies.
 	public Country getCountry(int id) {
 		if(id < 0 || id > NUM_COUNTRIES-1) {
 			Risk.sayError("Error in GameData.getCountry(id): invalid country id "+id);
@@ -172,12 +193,58 @@ public class GameData {
 	}
 
 	// Gets an array of CountryInfo objects. A CountryInfo object has only getters, so it
-	// is safe to give to "untrusted" code (bots)
+	// is safe to give to "untrusted" code (bots). They always reflect the current board,
+	// so only the array itself needs to be copied.
 	public CountryInfo[] getCountryInfo() {
-		CountryInfo[] countries2 = new CountryInfo[NUM_COUNTRIES];
-		for(int i=0; i < NUM_COUNTRIES; i++)
-			countries2[i] = new CountryInfo((CountryInterface) countries[i]);
-		return countries2;
+		return country_infos.clone();
+	}
+
+	// Returns a read-only snapshot of the board. A new one is only made if the board
+	// has changed since the last call.
+	public synchronized BoardView getBoardView() {
+		if(board_view == null || board_view.getVersion() != state.getVersion())
+			board_view = state.view();
+		return board_view;
+	}
+
+	// Returns the version of the board, which goes up every time a territory changes hands or armies
+	public synchronized long getBoardVersion() {
+		return state.getVersion();
+	}
+
+	// The ID of the player occupying the Country with the given id (-1 if unclaimed)
+	public int getOwner(int id) {
+		return state.getOwner(id);
+	}
+
+	// The number of armies on the Country with the given id
+	public int getArmies(int id) {
+		return state.getArmies(id);
+	}
+
+	// Returns true if the Country with the given id has been claimed
+	public boolean isTaken(int id) {
+		return state.getArmies(id) > 0;
+	}
+
+	// The number of countries occupied by the player with the given id
+	public int getTerritoryCount(int player_id) {
+		return state.getTerritoryCount(player_id);
+	}
+
+	// The number of countries in continent cont occupied by the player with the given id
+	public int getContinentCount(int cont, int player_id) {
+		return state.getContinentCount(cont, player_id);
+	}
+
+	// Returns true if the player with the given id occupies every country of continent cont
+	public boolean ownsContinent(int cont, int player_id) {
+		return state.getContinentCount(cont, player_id) == state.getContinentSize(cont);
+	}
+
+	// The ID of the player who occupies every country of continent cont, or -1 if no one does
+	public int getContinentOwner(int cont) {
+		return state.getContinentOwner(cont);
 	}
 
 	public int[] getContinentBonuses() {
@@ -203,6 +270,35 @@ public class GameData {
 		return players[getCurrentPlayerID()];
 	}
 
+	/********************* Board changes **********************/
+	// The board should only be changed through these, so that the version stays current
+
+	// Gives the Country with the given id to player player_id
+	public synchronized void setOwner(int id, int player_id) {
+		checkCountry(id, "setOwner");
+		state.setOwner(id, player_id);
+	}
+
+	// Sets the number of armies on the Country with the given id
+	public synchronized void setArmies(int id, int num_armies) {
+		checkCountry(id, "setArmies");
+		state.setArmies(id, num_armies);
+	}
+
+	// Adds (or with a negative amount, removes) armies from the Country with the given id
+	public synchronized void addArmies(int id, int amount) {
+		checkCountry(id, "addArmies");
+		state.addArmies(id, amount);
+	}
+
+	private void checkCountry(int id, String method) {
+		if(id < 0 || id > NUM_COUNTRIES-1) {
+			Risk.sayError("Error in GameData." + method + "(): invalid country id "+id);
+			Thread.dumpStack();
+			System.exit(-1);
+		}
+	}
+
 	// Sets who's turn it is
 	public void setCurrentPlayerID(int id) {
 		if(id < 0 || id > NUM_PLAYERS - 1) {
@@ -213,19 +309,14 @@ public class GameData {
 		turn_player_id = id;
 	}
 
-	// Calculates and returns the total number of armies a player has on the board
+	// Returns the total number of armies a player has on the board
 	public int getPlayerArmies(int id) {
 		if(id < 0 || id > NUM_PLAYERS - 1) {
 			Risk.sayError("Error in GameData.getPlayerArmies(id): invalid player id of "+id);
 			Thread.dumpStack();
 			System.exit(-1);
 		}
-		int total = 0;
-		for(Country c : countries) {
-			if (c.getPlayer() == id)
-				total += c.getArmies();
-		}
-		return total;
+		return state.getArmyTotal(id);
 	}
 
 	// Returns how many armies one gets as a bonus for completely owning the continent with ID 'id'
@@ -260,6 +351,11 @@ public class GameData {
 		return world.getAdjacencyList();
 	}
 
+	// Returns the World object itself. It is never modified, so it can be shared.
+	public World getWorld() {
+		return world;
+	}
+
 	// Returns the adjacencies for a particular Country with ID 'id' using the World object
 	public int[] getAdjacencies(int id) {
 		if(id < 0 || id > NUM_COUNTRIES - 1) {
@@ -279,14 +375,22 @@ public class GameData {
 		bot_playing_speed = bps;
 	}
 	
-	public void pause() {
+	// Pauses the game, or resumes it if it's paused
+	public synchronized void pause() {
 		pause = !pause;
+		notifyAll();
 	}
 	
-	public boolean getPause() {
+	public synchronized boolean getPause() {
 		return pause;
 	}
 
+	// Called by the game between turns to wait, without using the CPU, for as long as it is paused
+	public synchronized void waitWhilePaused() throws InterruptedException {
+		while(pause)
+			wait();
+	}
+
 	public long getBotPlayingSpeed() {
 		return bot_playing_speed;
 	}
@@ -312,6 +416,8 @@ public class GameData {
 	// Returns true if game is over (still_in only has one true value)
 	// If this is the case it also sets "winner" to the player id who won
 	public boolean over() {
+		if(players_remaining > 1)
+			return false;
 		int possible_winner = -1;
 		for(int i=0; i < NUM_PLAYERS; i++) {
 			if(getPlayer(i).getStillIn()) {
@@ -49,11 +49,18 @@ public class GameInfo {
 		return game_data.NUM_PLAYERS;
 	}
 
-	// Returns a copy of the game engine's Country array
+	// Returns a copy of the game engine's Country array. Each CountryInfo always
+	// reflects the current board; use getBoardView() for a fixed snapshot.
 	public CountryInfo[] getCountryInfo() {
 		return game_data.getCountryInfo();
 	}
 
+	// Returns a read-only snapshot of who occupies each territory. It is only remade when
+	// the board changes, and getVersion() tells whether it has since the last one.
+	public BoardView getBoardView() {
+		return game_data.getBoardView();
+	}
+
 	// Get an array of all continent army bonuses
 	public int[] getContinentBonuses() {
 		return game_data.getContinentBonuses();
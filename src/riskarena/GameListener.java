@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * A GameListener is told of the events of a Game as they happen. Players, territories and
+ * continents are given by their IDs, so a Game with no listeners builds no messages at all,
+ * and only a listener that wants text (like GameText) formats them. Listeners are called on
+ * the game's thread, after the event has changed the board, and must not change the game.
+ * Add one with Game.addGameListener().
+ *
+ * Evan Radkoff
+ */
+
+public interface GameListener {
+
+	// player claimed an unclaimed territory, during the game setup
+	public void territoryClaimed(int player, int country);
+
+	/*
+	 * player placed armies on country. remaining is how many armies they have left to place,
+	 * or -1 during the initial placement of the game setup.
+	 */
+	public void armiesPlaced(int player, int country, int armies, int remaining);
+
+	// player's turn has begun
+	public void turnStarted(int player);
+
+	// player gets the bonus armies of continent for owning all of it
+	public void continentBonus(int player, int continent);
+
+	// player turned in a set of cards for armies. chosen is true if they didn't have to.
+	public void cardsTurnedIn(int player, int armies, boolean chosen);
+
+	// player is attacking to from from
+	public void attackLaunched(int player, int from, int to);
+
+	/*
+	 * One roll of the dice of player's attack from from to to (which belongs to defender), with the
+	 * number of armies attacking and how many armies each side lost (0 to -2, as in Dice)
+	 */
+	public void battleRolled(int player, int from, int to, int defender, int attacking, int attacker_change, int defender_change);
+
+	// player captured to (which belonged to defender) from from
+	public void territoryConquered(int player, int from, int to, int defender);
+
+	// The attack from from eliminated player from the game, and its attacker took cards_taken of their cards
+	public void playerEliminated(int from, int player, int cards_taken);
+
+	// player moved armies into the territory to that they just captured
+	public void armiesMovedIn(int player, int to, int armies);
+
+	// player drew a card of type card_type for capturing a territory this turn, and now holds num_cards
+	public void cardDrawn(int player, int card_type, int num_cards);
+
+	// player moved armies from from to to at the end of their turn
+	public void positionFortified(int player, int from, int to, int armies);
+
+	// player won the game
+	public void gameWon(int player);
+}
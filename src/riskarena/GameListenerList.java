@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * A GameListenerList passes every event on to each of its GameListeners in the order they
+ * were added. A Game uses one once it has more than one listener.
+ *
+ * Evan Radkoff
+ */
+
+public class GameListenerList implements GameListener {
+	private GameListener listeners[] = new GameListener[0];
+
+	public void add(GameListener l) {
+		GameListener bigger[] = new GameListener[listeners.length + 1];
+		System.arraycopy(listeners, 0, bigger, 0, listeners.length);
+		bigger[listeners.length] = l;
+		listeners = bigger;
+	}
+
+	public void territoryClaimed(int player, int country) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].territoryClaimed(player, country);
+	}
+
+	public void armiesPlaced(int player, int country, int armies, int remaining) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].armiesPlaced(player, country, armies, remaining);
+	}
+
+	public void turnStarted(int player) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].turnStarted(player);
+	}
+
+	public void continentBonus(int player, int continent) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].continentBonus(player, continent);
+	}
+
+	public void cardsTurnedIn(int player, int armies, boolean chosen) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].cardsTurnedIn(player, armies, chosen);
+	}
+
+	public void attackLaunched(int player, int from, int to) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].attackLaunched(player, from, to);
+	}
+
+	public void battleRolled(int player, int from, int to, int defender, int attacking, int attacker_change, int defender_change) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].battleRolled(player, from, to, defender, attacking, attacker_change, defender_change);
+	}
+
+	public void territoryConquered(int player, int from, int to, int defender) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].territoryConquered(player, from, to, defender);
+	}
+
+	public void playerEliminated(int from, int player, int cards_taken) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].playerEliminated(from, player, cards_taken);
+	}
+
+	public void armiesMovedIn(int player, int to, int armies) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].armiesMovedIn(player, to, armies);
+	}
+
+	public void cardDrawn(int player, int card_type, int num_cards) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].cardDrawn(player, card_type, num_cards);
+	}
+
+	public void positionFortified(int player, int from, int to, int armies) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].positionFortified(player, from, to, armies);
+	}
+
+	public void gameWon(int player) {
+		for(int i=0;i<listeners.length;i++)
+			listeners[i].gameWon(player);
+	}
+}
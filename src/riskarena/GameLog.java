@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * GameLog writes the HTML game report of a Game. The game only puts what happens into a ring
+ * buffer, which never waits on the disk. As a GameListener, a GameLog records each event as a
+ * few ints rather than as text; other messages (eg errors, or everything when the game is also
+ * being printed or shown and so described by a GameText already) are recorded as Strings along
+ * with their OutputFormat style. One writer thread, shared by every GameLog, takes them out in
+ * batches, describes the events with a GameText, formats it all as HTML and writes it to the file.
+ *
+ * The ring buffer is lock-free. Messages normally come from the game's thread alone, but a bot
+ * deciding on a thread of Bot's decision pool may say something too, so adding claims a slot
+ * with a compare-and-set. Each slot has a sequence number saying whether it is free to be
+ * filled (equal to the position being claimed) or ready to be written (one more than that).
+ *
+ * The writer parks while no GameLog has a batch ready, and is woken by whoever adds the last
+ * message of a batch (every BATCH messages), by close(), or by a thread waiting to add. If the
+ * writer falls a whole buffer behind, adding parks until the writer has freed some slots.
+ *
+ * Evan Radkoff
+ */
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+public class GameLog implements GameListener {
+	private static final int CAPACITY = 1 << 12;	// Slots in the ring buffer, a power of 2
+	private static final int BATCH = 1 << 8;	// The writer is woken every this many messages, a power of 2 below CAPACITY
+	private static final int ARGS = 7;	// The most ints an event is recorded with
+
+	// What is in a slot: a message, or one of the events of GameListener
+	private static final int MESSAGE = 0, CLAIMED = 1, PLACED = 2, TURN = 3, BONUS = 4, TURNED_IN = 5, LAUNCHED = 6,
+			ROLLED = 7, CONQUERED = 8, ELIMINATED = 9, MOVED_IN = 10, DRAWN = 11, FORTIFIED = 12, WON = 13;
+
+	private static final ConcurrentLinkedQueue<GameLog> open = new ConcurrentLinkedQueue<GameLog>();	// The GameLogs the writer hasn't finished
+	private static Thread writer = null;	// Started by the first GameLog
+	private static volatile boolean sleeping = false;	// Whether the writer is about to park or parked
+
+	private final String path;
+	private final String title;
+	private final int kinds[] = new int[CAPACITY];
+	private final int args[] = new int[CAPACITY * ARGS];	// The ints of the event in slot i start at args[i*ARGS]
+	private final int styles[] = new int[CAPACITY];
+	private final String messages[] = new String[CAPACITY];
+	private final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+	private final AtomicLong tail = new AtomicLong(0);	// The next position to be claimed by add()
+	private final ConcurrentLinkedQueue<Thread> waiting = new ConcurrentLinkedQueue<Thread>();	// Threads parked until a slot is free
+	private volatile boolean closing = false;
+	private final CountDownLatch finished = new CountDownLatch(1);
+
+	// Used only by the writer thread
+	private long head = 0;	// The next position to be written
+	private StringBuilder batch = new StringBuilder(1 << 14);	// Where a batch of messages is formatted
+	private final GameText text;	// Describes the events into batch
+	private Writer out = null;
+	private boolean failed = false;	// Whether the file couldn't be written, after which messages are only thrown away
+
+	/*
+	 * Starts writing a game report titled title to path, which should already exist. It is
+	 * appended to, and finished by close(). Players, territories and continents in the
+	 * events recorded are named by data.
+	 */
+	public GameLog(String path, String title, GameData data) {
+		this.path = path;
+		this.title = title;
+		for(int i=0;i<CAPACITY;i++)
+			sequences.set(i, i);
+		text = new GameText(data) {
+			void say(String message, int style) {
+				append(style, message);
+			}
+		};
+		synchronized(GameLog.class) {
+			if(writer == null) {
+				writer = new Thread(new Runnable() {
+					public void run() {
+						writeAll();
+					}
+				}, "GameLog writer");
+				writer.setDaemon(true);	// A game that never finishes shouldn't keep the program running
+				writer.start();
+			}
+		}
+		open.add(this);
+	}
+
+	// Adds a message with the given OutputFormat style to the report
+	public void add(int style, String message) {
+		long position = claim();
+		int slot = (int)position & (CAPACITY - 1);
+		kinds[slot] = MESSAGE;
+		styles[slot] = style;
+		messages[slot] = message;
+		publish(position);
+	}
+
+	/*
+	 * The events of the game, recorded to be described by the writer
+	 */
+
+	public void territoryClaimed(int player, int country) {
+		event(CLAIMED, player, country, 0, 0);
+	}
+
+	public void armiesPlaced(int player, int country, int armies, int remaining) {
+		event(PLACED, player, country, armies, remaining);
+	}
+
+	public void turnStarted(int player) {
+		event(TURN, player, 0, 0, 0);
+	}
+
+	public void continentBonus(int player, int continent) {
+		event(BONUS, player, continent, 0, 0);
+	}
+
+	public void cardsTurnedIn(int player, int armies, boolean chosen) {
+		event(TURNED_IN, player, armies, chosen ? 1 : 0, 0);
+	}
+
+	public void attackLaunched(int player, int from, int to) {
+		event(LAUNCHED, player, from, to, 0);
+	}
+
+	public void battleRolled(int player, int from, int to, int defender, int attacking, int attacker_change, int defender_change) {
+		long position = claim();
+		int slot = (int)position & (CAPACITY - 1), at = slot * ARGS;
+		kinds[slot] = ROLLED;
+		args[at] = player;
+		args[at + 1] = from;
+		args[at + 2] = to;
+		args[at + 3] = defender;
+		args[at + 4] = attacking;
+		args[at + 5] = attacker_change;
+		args[at + 6] = defender_change;
+		publish(position);
+	}
+
+	public void territoryConquered(int player, int from, int to, int defender) {
+		event(CONQUERED, player, from, to, defender);
+	}
+
+	public void playerEliminated(int from, int player, int cards_taken) {
+		event(ELIMINATED, from, player, cards_taken, 0);
+	}
+
+	public void armiesMovedIn(int player, int to, int armies) {
+		event(MOVED_IN, player, to, armies, 0);
+	}
+
+	public void cardDrawn(int player, int card_type, int num_cards) {
+		event(DRAWN, player, card_type, num_cards, 0);
+	}
+
+	public void positionFortified(int player, int from, int to, int armies) {
+		event(FORTIFIED, player, from, to, armies);
+	}
+
+	public void gameWon(int player) {
+		event(WON, player, 0, 0, 0);
+	}
+
+	/*
+	 * Waits for every message to be written and the report to be finished and closed.
+	 */
+	public void close() {
+		closing = true;
+		LockSupport.unpark(writer);
+		try {
+			finished.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	private void event(int kind, int a, int b, int c, int d) {
+		long position = claim();
+		int slot = (int)position & (CAPACITY - 1), at = slot * ARGS;
+		kinds[slot] = kind;
+		args[at] = a;
+		args[at + 1] = b;
+		args[at + 2] = c;
+		args[at + 3] = d;
+		publish(position);
+	}
+
+	// Claims the next slot to be filled and returns its position, parking while the ring is full
+	private long claim() {
+		while(true) {
+			long position = tail.get();
+			int slot = (int)position & (CAPACITY - 1);
+			long sequence = sequences.get(slot);
+			if(sequence == position) {
+				if(tail.compareAndSet(position, position + 1))
+					return position;
+			} else if(sequence < position) {
+				// Full, so wait for the writer
+				Thread me = Thread.currentThread();
+				waiting.add(me);
+				LockSupport.unpark(writer);
+				if(sequences.get(slot) < position)	// Checked again after joining waiting, so a slot freed in between isn't missed
+					LockSupport.park(this);
+				waiting.remove(me);
+			}
+		}
+	}
+
+	// Makes the filled slot at position ready to be written, waking the writer if it completes a batch
+	private void publish(long position) {
+		sequences.set((int)position & (CAPACITY - 1), position + 1);
+		if((position & (BATCH - 1)) == BATCH - 1 && sleeping)
+			LockSupport.unpark(writer);
+	}
+
+	// Run by the writer thread, for as long as the program runs
+	private static void writeAll() {
+		while(true) {
+			boolean busy = false;
+			for(GameLog log : open) {
+				if(log.ready()) {
+					log.service();
+					busy = true;
+				}
+			}
+			if(busy)
+				continue;
+			sleeping = true;
+			// Look again now that the writer will be woken, in case a batch was finished just before
+			for(GameLog log : open) {
+				if(log.ready())
+					busy = true;
+			}
+			if(!busy)
+				LockSupport.park(GameLog.class);
+			sleeping = false;
+		}
+	}
+
+	// Whether the writer has something to do: a whole batch, a thread waiting to add, or the report to finish
+	private boolean ready() {
+		long last = head | (BATCH - 1);		// The position whose message wakes the writer
+		return closing || !waiting.isEmpty() || sequences.get((int)last & (CAPACITY - 1)) == last + 1;
+	}
+
+	// Writes what has been added, and finishes the report if it's closing
+	private void service() {
+		boolean finishing = closing;	// Read before draining, so nothing added before close() is missed
+		if(drain() == 0 && finishing) {
+			finish();
+			open.remove(this);
+			finished.countDown();
+		}
+	}
+
+	// Writes every message that is ready (up to a whole buffer) as one batch, returning how many there were
+	private int drain() {
+		int written = 0;
+		batch.setLength(0);
+		while(written < CAPACITY) {
+			int slot = (int)head & (CAPACITY - 1);
+			if(sequences.get(slot) != head + 1)
+				break;
+			if(!failed) {
+				if(kinds[slot] == MESSAGE)
+					append(styles[slot], messages[slot]);
+				else
+					describe(kinds[slot], slot * ARGS);
+			}
+			messages[slot] = null;
+			sequences.set(slot, head + CAPACITY);	// Free to be claimed again
+			head++;
+			written++;
+		}
+		if(written > 0) {
+			Thread waiter;
+			while((waiter = waiting.poll()) != null)
+				LockSupport.unpark(waiter);
+			if(!failed) {
+				try {
+					start();
+					out.write(batch.toString());
+				} catch (IOException e) {
+					fail(e);
+				}
+			}
+		}
+		return written;
+	}
+
+	// Has text describe the event of the given kind, whose ints start at args[at]
+	private void describe(int kind, int at) {
+		switch(kind) {
+		case CLAIMED:	text.territoryClaimed(args[at], args[at + 1]);
+		break;
+		case PLACED:	text.armiesPlaced(args[at], args[at + 1], args[at + 2], args[at + 3]);
+		break;
+		case TURN:	text.turnStarted(args[at]);
+		break;
+		case BONUS:	text.continentBonus(args[at], args[at + 1]);
+		break;
+		case TURNED_IN:	text.cardsTurnedIn(args[at], args[at + 1], args[at + 2] == 1);
+		break;
+		case LAUNCHED:	text.attackLaunched(args[at], args[at + 1], args[at + 2]);
+		break;
+		case ROLLED:	text.battleRolled(args[at], args[at + 1], args[at + 2], args[at + 3], args[at + 4], args[at + 5], args[at + 6]);
+		break;
+		case CONQUERED:	text.territoryConquered(args[at], args[at + 1], args[at + 2], args[at + 3]);
+		break;
+		case ELIMINATED:	text.playerEliminated(args[at], args[at + 1], args[at + 2]);
+		break;
+		case MOVED_IN:	text.armiesMovedIn(args[at], args[at + 1], args[at + 2]);
+		break;
+		case DRAWN:	text.cardDrawn(args[at], args[at + 1], args[at + 2]);
+		break;
+		case FORTIFIED:	text.positionFortified(args[at], args[at + 1], args[at + 2], args[at + 3]);
+		break;
+		case WON:	text.gameWon(args[at]);
+		break;
+		}
+	}
+
+	private void append(int style, String message) {
+		batch.append("<p class=\"").append(OutputFormat.getClassName(style)).append("\">").append(message).append("</p>\n");
+	}
+
+	// Opens the file and writes the start of the report, the first time anything is written
+	private void start() throws IOException {
+		if(out != null)
+			return;
+		out = new BufferedWriter(new FileWriter(path, true));
+		out.write("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\" \"http://www.w3.org/TR/html4/strict.dtd\"><html><head><title>" + title
+				+ "</title><link rel=\"stylesheet\" type=\"text/css\" href=\"log_format.css\"></head><body>");
+	}
+
+	private void finish() {
+		if(failed)
+			return;
+		try {
+			start();
+			out.write("</body></html>");
+			out.close();
+		} catch (IOException e) {
+			fail(e);
+		}
+		out = null;
+	}
+
+	// Errors are printed straight to stderr, since Risk.sayError would add them to a log.
+	private void fail(IOException e) {
+		System.err.println("ERROR: Unable to write to " + path + ": " + e.getMessage());
+		failed = true;
+		if(out != null) {
+			try {
+				out.close();
+			} catch (IOException e2) { }
+			out = null;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * GameText is the GameListener that describes a game in words, the way it's shown on the
+ * game board, printed, and written to game logs. Each event is turned into messages only
+ * here, and they are given to Game.sayOutput. A Game only adds one when its output is
+ * going somewhere.
+ *
+ * A GameLog also describes the events it records with a GameText of its own, on its writer
+ * thread, well after they happened. So only what stays the same for the whole game (names,
+ * player types, continent bonuses) is read from the GameData; the rest comes with the event.
+ *
+ * Evan Radkoff
+ */
+
+public class GameText implements GameListener {
+	private Game game;
+	private GameData data;
+
+	public GameText(Game g, GameData d) {
+		game = g;
+		data = d;
+	}
+
+	// A GameText that overrides say() to send its messages somewhere other than a Game
+	GameText(GameData d) {
+		data = d;
+	}
+
+	// Says message with the given OutputFormat style
+	void say(String message, int style) {
+		game.sayOutput(message, style);
+	}
+
+	private void say(String message) {
+		say(message, OutputFormat.NORMAL);
+	}
+
+	private boolean isHuman(int player) {
+		return data.getPlayer(player).getType() == Player.HUMAN;
+	}
+
+	private String playerName(int player) {
+		return data.getPlayer(player).getName();
+	}
+
+	private String countryName(int country) {
+		return data.getCountry(country).getName();
+	}
+
+	public void territoryClaimed(int player, int country) {
+		if(!isHuman(player))
+			say(playerName(player) + " has claimed " + countryName(country) + ".");
+	}
+
+	public void armiesPlaced(int player, int country, int armies, int remaining) {
+		if(!isHuman(player)) {
+			say(playerName(player) + " has placed " + armies + " armies on " + countryName(country) + ".");
+			if(remaining > 0)
+				say(playerName(player) + " has " + remaining + " armies remaining.");
+		} else if(remaining >= 0) {
+			String to_out = countryName(country) + " fortified with " + armies + " armies.";
+			if(remaining > 0)
+				to_out += " " + remaining + " remaining.";
+			say(to_out);
+		}
+	}
+
+	public void turnStarted(int player) {
+		say("=======================================");
+		say("Beginning " + playerName(player) + "'s turn.");
+	}
+
+	public void continentBonus(int player, int continent) {
+		say("+ " + data.getContinentBonus(continent) + " armies for owning all of " + data.getContinentName(continent) + ".", OutputFormat.TABBED);
+	}
+
+	public void cardsTurnedIn(int player, int armies, boolean chosen) {
+		if(isHuman(player)) {
+			say("You get to place an additional " + armies + " armies.");
+		} else {
+			if(chosen)
+				say(playerName(player) + " is turning in a set of cards for armies.");
+			say(playerName(player) + " gets to place an additional " + armies + " armies.");
+		}
+	}
+
+	public void attackLaunched(int player, int from, int to) {
+		if(!isHuman(player))
+			say(playerName(player) + " is launching an attack from " + countryName(from) + " to " + countryName(to) + ".");
+	}
+
+	public void battleRolled(int player, int from, int to, int defender_id, int attacking, int attacker_change, int defender_change) {
+		String attacker = playerName(player), defender = playerName(defender_id);
+		if(isHuman(player))
+			say("Rolling dice...", OutputFormat.TABBED);
+		else
+			say(countryName(from) + " is sending " + attacking + " armies to battle...", OutputFormat.TABBED);
+		switch(attacker_change) {
+		case 0:
+			if(defender_change == -1)
+				say(countryName(to) + " (" + defender + ") loses 1 army.", OutputFormat.TABBED);
+			else say(countryName(to) + " (" + defender + ") loses 2 armies.", OutputFormat.TABBED);
+			break;
+		case -1:
+			if(defender_change == -1)
+				say("Each player loses 1 army.", OutputFormat.TABBED);
+			else say(countryName(from) + " (" + attacker + ") loses 1 army.", OutputFormat.TABBED);
+			break;
+		case -2:
+			say(countryName(from) + " (" + attacker + ") loses 2 armies.", OutputFormat.TABBED);
+			break;
+		}
+	}
+
+	public void territoryConquered(int player, int from, int to, int defender) {
+		if(isHuman(player))
+			say("Congratulations " + countryName(from) + ", you captured " + countryName(to) + "!", OutputFormat.TABBED);
+		else
+			say(countryName(from) + " has captured " + countryName(to) + " (" + playerName(defender) + ")", OutputFormat.TABBED);
+	}
+
+	public void playerEliminated(int from, int player, int cards_taken) {
+		say("*** " + countryName(from) + " has eliminated " + playerName(player) + " ***", OutputFormat.TABBED);
+		if(cards_taken > 0)
+			say("* " + countryName(from) + " gets " + cards_taken + " free cards. *", OutputFormat.TABBED);
+	}
+
+	public void armiesMovedIn(int player, int to, int armies) {
+		if(!isHuman(player))
+			say(playerName(player) + " moves " + armies + " armies into " + countryName(to) + " for occupation.");
+	}
+
+	public void cardDrawn(int player, int card_type, int num_cards) {
+		if(!isHuman(player)) {
+			say("As " + playerName(player) + " has gained territory this turn, they get to draw a card. They are now holding " + num_cards + ".");
+			return;
+		}
+		switch(card_type) {
+		case 0:	say("As you have gained territory this turn, you get to draw a card. Picked up an infantry card.");
+		break;
+		case 1:	say("As you have gained territory this turn, you get to draw a card. Picked up a cavalry card.");
+		break;
+		case 2:	say("As you have gained territory this turn, you get to draw a card. Picked up an artillery card.");
+		break;
+		case 3:	say("As you have gained territory this turn, you get to draw a card. Picked up a wildcard.");
+		break;
+		}
+	}
+
+	public void positionFortified(int player, int from, int to, int armies) {
+		if(!isHuman(player))
+			say(playerName(player) + " is fortifying " + countryName(to) + " with " + armies + " armies from " + countryName(from) + ".");
+	}
+
+	public void gameWon(int player) {
+		say("Congratulations " + playerName(player) + ", you win " + Risk.PROJECT_NAME + "!");
+	}
+}
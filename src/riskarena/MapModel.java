@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * A MapModel is everything read from a map file that stays the same for the whole game: the
+ * Countries (names, continents and where they're drawn), the continents' names, bonuses and
+ * colors, and the World of adjacencies. None of it is ever changed, so one MapModel is shared
+ * by every game played on the map, and a game only makes its own BoardState and the like.
+ *
+ * MapModels are cached for the life of the program, by the canonical path of the map file.
+ * Each time one is asked for, the file's modification time and length are checked, and if
+ * they have changed the file is hashed again; it is only read again if its contents have.
+ *
+ * Evan Radkoff
+ */
+
+import java.awt.Color;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+public class MapModel {
+	private static final HashMap<String,MapModel> models = new HashMap<String,MapModel>();	// canonical path -> its MapModel
+
+	private final Country countries[];
+	private final int continent_ids[];	// continent_ids[i] is the continent of country i
+	private final String continent_names[];
+	private final int continent_bonuses[];
+	private final Color continent_colors[];
+	private final World world;
+	private final long hash;	// FNV-1a hash of the map file's contents
+	private long modified, length;	// The map file's modification time and length when it was last checked
+
+	/*
+	 * Returns the MapModel of the map file at map_file, reading the file if it hasn't been read
+	 * yet or has changed. Throws an Exception explaining what is wrong with the file if it can't be read.
+	 */
+	public static MapModel get(String map_file) throws Exception {
+		File file = new File(map_file);
+		String path;
+		try {
+			path = file.getCanonicalPath();
+		} catch(IOException e) {
+			path = file.getAbsolutePath();
+		}
+		long modified = file.lastModified(), length = file.length();
+		synchronized(models) {
+			MapModel model = models.get(path);
+			if(model != null && model.modified == modified && model.length == length)
+				return model;
+			long hash = hashFile(map_file);
+			if(model == null || model.hash != hash) {
+				model = new MapModel(new MapReader(map_file), hash);
+				models.put(path, model);
+			}
+			model.modified = modified;
+			model.length = length;
+			return model;
+		}
+	}
+
+	private MapModel(MapReader mapreader, long hash) {
+		this.hash = hash;
+		countries = mapreader.getCountries();
+		continent_ids = new int[countries.length];
+		for(int i=0;i<countries.length;i++)
+			continent_ids[i] = countries[i].getCont();
+		continent_names = mapreader.getContinentNames();
+		continent_bonuses = mapreader.getContinentBonuses();
+		continent_colors = mapreader.getContinentColors();
+		world = new World(countries.length, mapreader.getAdjacencyInfo());
+	}
+
+	/*
+	 * The getters below return the MapModel's own arrays and objects, which are shared by every
+	 * game on the map and must not be changed.
+	 */
+
+	public Country[] getCountries() {
+		return countries;
+	}
+
+	public int[] getContinentIDs() {
+		return continent_ids;
+	}
+
+	public String[] getContinentNames() {
+		return continent_names;
+	}
+
+	public int[] getContinentBonuses() {
+		return continent_bonuses;
+	}
+
+	public Color[] getContinentColors() {
+		return continent_colors;
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	public int getNumCountries() {
+		return countries.length;
+	}
+
+	public int getNumContinents() {
+		return continent_names.length;
+	}
+
+	// A hash of the contents of the map file, to tell if it has changed (eg since a game was recorded)
+	public long getHash() {
+		return hash;
+	}
+
+	// The FNV-1a hash of the bytes of the file at path, or 0 if it can't be read
+	private static long hashFile(String path) {
+		long hash = 0xcbf29ce484222325L;
+		byte bytes[] = new byte[8192];
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(path);
+			int n;
+			while((n = in.read(bytes)) > 0) {
+				for(int i=0;i<n;i++) {
+					hash ^= bytes[i] & 0xff;
+					hash *= 0x100000001b3L;
+				}
+			}
+		} catch(IOException e) {
+			return 0;
+		} finally {
+			if(in != null) {
+				try {
+					in.close();
+				} catch(IOException e) { }
+			}
+		}
+		return hash;
+	}
+}
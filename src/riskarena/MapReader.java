@@ -7,23 +7,33 @@
  ******************************************************************************/
 package riskarena;
 /*
- * Given a .map filename, MapReader reads the XML file, parses it using dom4j,
- * and extracts world information like Countries and adjacencies. It makes this info
- * public to the game engine with some getter methods.
- * 
+ * Given a .map filename, MapReader reads the XML file and extracts world information like
+ * Countries and adjacencies. It makes this info public to the game engine with some getter methods.
+ *
+ * The file is read in a single pass with the JDK's streaming (StAX) XML parser, without building a
+ * document of it first. Each continent, territory and adjacency is checked as soon as its end tag is
+ * read, and names are looked up in hash maps rather than compared against every name before them,
+ * so reading a map takes time in proportion to its size, even for maps of thousands of territories.
+ * Run MapReader on its own to see how long a map takes to read, and how much memory it uses:
+ * java riskarena.MapReader src/maps/Earth.map
+ *
  * Evan Radkoff
  */
 
 import java.awt.Color;
 import java.awt.Point;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 
-import org.dom4j.Document;
-import org.dom4j.Element;
-import org.dom4j.DocumentException;
-import org.dom4j.io.SAXReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import riskarena.graphics.Pretty;
 
@@ -45,182 +55,58 @@ public class MapReader {
 	private ArrayList<String> continent_names = new ArrayList<String>();
 	private ArrayList<Integer> bonuses = new ArrayList<Integer>();
 	private ArrayList<Color> colors = new ArrayList<Color>();
-	private ArrayList<Adjacency> adjacencies;
+	private ArrayList<Adjacency> adjacencies = new ArrayList<Adjacency>();
+	private HashSet<String> continent_set = new HashSet<String>();	// The names of the continents read so far
+	private HashMap<String,Integer> country_ids = new HashMap<String,Integer>();	// Territory name -> country ID
+
+	// The element being read, and the text in it
+	private int depth = 0;
+	private StringBuilder text = new StringBuilder();
+	private boolean in_continent = false, in_territory = false, in_label = false, in_adjacency = false;
+
+	// Values read from the continent being read, or null if they haven't been found (yet)
+	private String cont_name, cont_bonus, cont_r, cont_g, cont_b;
+	private int cont_territories;
+
+	// Values read from the territory being read
+	private String terr_name, terr_x, terr_y;
+	private Country.CountryLabelVector terr_clv;
+
+	// Values read from the adjacency being read
+	private String adj_from, adj_to, adj_cross;
+
+	private long load_time;	// Nanoseconds it took to read the map
 
 	public MapReader(String filename) throws Exception {
-		Document document;
-		try{
-			// Parse the contained XML file using dom4j
-			SAXReader reader = new SAXReader();
-			document = reader.read(filename);
-		} catch(DocumentException de) {
-			throw new Exception("Unable to parse XML file (" + de.getMessage() + ")");
-		}
-		Element root = document.getRootElement();
-
-		// Each continent element
-		for ( Iterator i = root.elementIterator( "continent" ); i.hasNext(); ) {
-			Element cont = (Element) i.next();
-			int continent_index = continent_names.size();
-			float r_value = 0.0f, b_value = 0.0f, g_value = 0.0f;
-
-			boolean found_name = false, found_bonus = false, found_territory = false, found_r = false, found_g = false, found_b = false;
-
-			// Verifying that a name exists and extracting its value
-			for ( Iterator j = cont.elementIterator( "name" ); j.hasNext(); ) {
-				Element n = (Element) j.next();
-				found_name = true;
-				// Ensure that the continent's name isn't already taken
-				for(int k = 0;k<continent_names.size();k++) {
-					if(continent_names.get(k).equals(n.getText()))
-						throw new Exception("The continent " + n.getText() + " is listed twice.");
-				}
-				continent_names.add(n.getText());
-				break;
-			}
-			if(!found_name)
-				throw new Exception("No name found for some continent.");
-
-			// Verifying that an army bonus exists and extracting its value
-			for ( Iterator j = cont.elementIterator( "bonus" ); j.hasNext(); ) {
-				Element n = (Element) j.next();
-				found_bonus = true;
-				Integer b = new Integer(n.getText());
-				if(b.intValue() < 0) {
-					throw new Exception("Some continent has a negative army bonus.");
-				}
-				bonuses.add(b);
-				break;
-			}
-			if(!found_bonus)
-				throw new Exception("No bonus found for " + continent_names.get(continent_index) + ".");
-
-			// Verifying that a Red value for the continent's Color exists and extracting its value
-			for ( Iterator j = cont.elementIterator( "R" ); j.hasNext(); ) {
-				Element n = (Element) j.next();
-				found_r = true;
-				Float b = new Float(n.getText());
-				if(b.floatValue() < 0 || b.floatValue() > 1) {
-					throw new Exception("The R value of " + continent_names.get(continent_index) + " is out of the 0.0-1.0 range.");
-				}
-				r_value = b;
-				break;
-			}
-			if(!found_r)
-				throw new Exception("No R value found for " + continent_names.get(continent_index) + ".");
-			// Verifying that a Green value for the continent's Color exists and extracting its value
-			for ( Iterator j = cont.elementIterator( "G" ); j.hasNext(); ) {
-				Element n = (Element) j.next();
-				found_g = true;
-				Float b = new Float(n.getText());
-				if(b.floatValue() < 0 || b.floatValue() > 1) {
-					throw new Exception("The G value of " + continent_names.get(continent_index) + " is out of the 0.0-1.0 range.");
-				}
-				g_value = b;
-				break;
-			}
-			if(!found_g)
-				throw new Exception("No G value found for " + continent_names.get(continent_index) + ".");
-			// Verifying that a Blue value for the continent's Color exists and extracting its value
-			for ( Iterator j = cont.elementIterator( "B" ); j.hasNext(); ) {
-				Element n = (Element) j.next();
-				found_b = true;
-				Float b = new Float(n.getText());
-				if(b.floatValue() < 0 || b.floatValue() > 1) {
-					throw new Exception("The B value of " + continent_names.get(continent_index) + " is out of the 0.0-1.0 range.");
-				}
-				b_value = b;
-				break;
-			}
-			if(!found_b)
-				throw new Exception("No B value found for " + continent_names.get(continent_index) + ".");
-			colors.add(new Color(r_value, g_value, b_value));
-
-			// Each territory listed within that continent
-			for ( Iterator j = cont.elementIterator( "territory" ); j.hasNext(); ) {
-				Element terr = (Element) j.next();
-				found_territory = true;
-				boolean name_exists = false, x_exists = false, y_exists = false;
-
-				String name = "";
-				Point pos = new Point();
-				Country.CountryLabelVector clv = new Country.CountryLabelVector(default_clv_direction, default_clv_magnitude, default_clv_fontsize);
-
-				// The territory's name
-				for ( Iterator k = terr.elementIterator( "name" ); k.hasNext(); ) {
-					Element n = (Element) k.next();
-					name_exists = true;
-					name = n.getText();
-					for(int u = 0;u<countries.size();u++) {
-						if(countries.get(u).getName().equals(name))
-							throw new Exception("The territory " + name + " is listed twice.");
-					}
-					break;
-				}
-				if(!name_exists)
-					throw new Exception("No name found for some territory in " + continent_names.get(continent_index) + ".");
-
-				// The X position of the territory
-				for ( Iterator k = terr.elementIterator( "x" ); k.hasNext(); ) {
-					Element n = (Element) k.next();
-					x_exists = true;
-					pos.x = (new Integer(n.getText())).intValue();
-					break;
-				}
-				if(!x_exists)
-					throw new Exception("No x position given for " + name + ".");
-
-				// The Y position of the territory
-				for ( Iterator k = terr.elementIterator( "y" ); k.hasNext(); ) {
-					Element n = (Element) k.next();
-					y_exists = true;
-					pos.y = (new Integer(n.getText())).intValue();
-					break;
-				}
-				if(!y_exists)
-					throw new Exception("No y position given for " + name + ".");
-
-				// A CountryVectorLabel specification (optional)
-				for ( Iterator k = terr.elementIterator( "label" ); k.hasNext(); ) {
-					Element n = (Element) k.next();
-
-					// The country's label's radial direction (optional)
-					for ( Iterator u = n.elementIterator( "direction" ); u.hasNext(); ) {
-						Element dir = (Element) u.next();
-						float d = (new Float(dir.getText())).floatValue();
-						if(d < 0.0 || d > 1.0) {
-							throw new Exception("Some territory label direction is out of bounds.");
-						}
-						clv.setDirection(d);
-					}
-					// The country's label's distance from the node (optional)
-					// For the bounds of this value see Graphics.min_mag and Graphics.max_mag
-					for ( Iterator u = n.elementIterator( "distance" ); u.hasNext(); ) {
-						Element mag = (Element) u.next();
-						int d = (new Integer(mag.getText())).intValue();
-						if(d < Pretty.min_mag || d > Pretty.max_mag) {
-							throw new Exception("Some territory label distance is out of bounds.");
-						}
-						clv.setMagnitude(d);
-					}
-					// The country's label's font size
-					// For the bounds of this value see Graphics.min_size and Graphics.max_size
-					for ( Iterator u = n.elementIterator( "size" ); u.hasNext(); ) {
-						Element font = (Element) u.next();
-						int d = (new Integer(font.getText())).intValue();
-						if(d < Pretty.min_size || d > Pretty.max_size) {
-							throw new Exception("Some territory label size is out of bounds.");
-						}
-						clv.setFontSize(d);
-					}
-				}
-
-				// Construct a new Country object with the gathered information
-				countries.add(new Country(name, pos, continent_index, clv));
+		long start = System.nanoTime();
+		InputStream in = null;
+		XMLStreamReader xml = null;
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			in = new BufferedInputStream(new FileInputStream(filename), 1 << 16);
+			xml = factory.createXMLStreamReader(in);
+			read(xml);
+		} catch(XMLStreamException xe) {
+			// The parser's message starts with where the error is, on a line of its own
+			String message = xe.getMessage();
+			if(message.indexOf("Message: ") >= 0)
+				message = message.substring(message.indexOf("Message: ") + "Message: ".length());
+			if(xe.getLocation() != null)
+				message = "Error on line " + xe.getLocation().getLineNumber() + ": " + message;
+			throw new Exception("Unable to parse XML file (" + message + ")");
+		} catch(IOException ie) {
+			throw new Exception("Unable to parse XML file (" + ie.getMessage() + ")");
+		} finally {
+			if(xml != null) {
+				try {
+					xml.close();
+				} catch(XMLStreamException e) { }
 			}
-			// If no territories were found, you dun goof'ed
-			if(!found_territory)
-				throw new Exception("Some continent has no territories.");
+			if(in != null)
+				in.close();
 		}
 
 		NUM_CONTINENTS = continent_names.size();
@@ -229,66 +115,215 @@ public class MapReader {
 			throw new Exception("Only " + NUM_CONTINENTS + " continents present, minimum of " + minimum_continents + " needed.");
 		if(NUM_COUNTRIES < minimum_countries)
 			throw new Exception("Only " + NUM_COUNTRIES + " territories present, minimum of " + minimum_countries + " needed.");
+		if(adjacencies.size() < minimum_adjacencies)
+			throw new Exception("Only " + adjacencies.size() + " adjacencies present, minimum of " + minimum_adjacencies + " needed.");
 
-		// Read all adjacencies
-		int adj_count = 0;
-		adjacencies = new ArrayList<Adjacency>();
-		for ( Iterator i = root.elementIterator( "adjacency" ); i.hasNext(); ) {
-			Element some_adj = (Element) i.next();
-			adj_count++;
-			boolean from_exists = false, to_exists = false;
-			String from="", to="";		// When read from the map file, the "from" and "to" of the adjacency
-			int crosses_edge = Adjacency.CROSS_NONE;	// The edge crossing policy of the adjacency
-			
-			for ( Iterator j = some_adj.elementIterator( "from" ); j.hasNext(); ) {
-				Element f = (Element) j.next();
-				from_exists = true;
-				from = f.getText();
-				break;
-			}
-			for ( Iterator j = some_adj.elementIterator( "to" ); j.hasNext(); ) {
-				Element t = (Element) j.next();
-				to_exists = true;
-				to = t.getText();
-				break;
-			}
-			// 
-			for ( Iterator j = some_adj.elementIterator( "cross" ); j.hasNext(); ) {
-				Element t = (Element) j.next();
-				if(t.getText().equalsIgnoreCase("horizontal"))
-					crosses_edge = Adjacency.CROSS_HORIZONTAL;
-				else if(t.getText().equalsIgnoreCase("vertical"))
-					crosses_edge = Adjacency.CROSS_VERTICAL;
-				else if(t.getText().equalsIgnoreCase("diagonalright"))
-					crosses_edge = Adjacency.CROSS_DIAG_RIGHT;
-				else if(t.getText().equalsIgnoreCase("diagonalleft"))
-					crosses_edge = Adjacency.CROSS_DIAG_LEFT;
-				else
-					throw new Exception("Invalid edge-crossing policy for adjacency number " + adjacencies.size() + ". Choose "
-							+ "eighter Horizontal, Vertical, DiagonalRight, or DiagonalLeft.");
-				break;
-			}
-			if(!from_exists || !to_exists)
-				throw new Exception("Adjacency number " + adj_count + " is missing a \"from\" or \"to\" tag.");
-			adjacencies.add(new Adjacency(from, to, crosses_edge));
-		}
-		if(adj_count < minimum_adjacencies)
-			throw new Exception("Only " + adj_count + " adjacencies present, minimum of " + minimum_adjacencies + " needed.");
-
-		// The following two loops use a hashmap of country names to check that all adjacency values are legit
-		// In the process of converting from country names to ID's, it also sets the FromID and ToID variables of the Adjacency object
-		HashMap<String,Integer> hm = new HashMap<String,Integer>();
-		for(int i=0;i<countries.size();i++)
-			hm.put(countries.get(i).getName(), new Integer(i));
+		// Now that every territory is known, check that all adjacency values are legit, and
+		// set the FromID and ToID variables of the Adjacency objects
 		for(int i=0;i<adjacencies.size();i++) {
-			Integer from = hm.get(adjacencies.get(i).getFrom());
-			Integer to = hm.get(adjacencies.get(i).getTo());
+			Integer from = country_ids.get(adjacencies.get(i).getFrom());
+			Integer to = country_ids.get(adjacencies.get(i).getTo());
 			if(from == null || to == null)
 				throw new Exception("<from> or <to> in an adjacency is a territory that doesn't exist.");
 			adjacencies.get(i).setFromID(from.intValue());
 			adjacencies.get(i).setToID(to.intValue());
 		}
+		continent_set = null;
+		country_ids = null;
+		load_time = System.nanoTime() - start;
+	}
+
+	/*
+	 * Reads every element of the file. Continents and adjacencies are the elements directly
+	 * inside the root element, territories are inside continents, and labels inside territories.
+	 * Anything else is ignored.
+	 */
+	private void read(XMLStreamReader xml) throws Exception {
+		while(xml.hasNext()) {
+			switch(xml.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				text.setLength(0);
+				startElement(xml.getLocalName());
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				text.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				endElement(xml.getLocalName());
+				depth--;
+				break;
+			}
+		}
+	}
 
+	private void startElement(String tag) {
+		if(depth == 2 && tag.equals("continent")) {
+			in_continent = true;
+			cont_name = cont_bonus = cont_r = cont_g = cont_b = null;
+			cont_territories = 0;
+		} else if(depth == 2 && tag.equals("adjacency")) {
+			in_adjacency = true;
+			adj_from = adj_to = adj_cross = null;
+		} else if(depth == 3 && in_continent && tag.equals("territory")) {
+			in_territory = true;
+			terr_name = terr_x = terr_y = null;
+			terr_clv = new Country.CountryLabelVector(default_clv_direction, default_clv_magnitude, default_clv_fontsize);
+		} else if(depth == 4 && in_territory && tag.equals("label")) {
+			in_label = true;
+		}
+	}
+
+	private void endElement(String tag) throws Exception {
+		if(depth == 2 && in_continent) {
+			endContinent();
+			in_continent = false;
+		} else if(depth == 2 && in_adjacency) {
+			endAdjacency();
+			in_adjacency = false;
+		} else if(depth == 3 && in_territory) {
+			endTerritory();
+			in_territory = false;
+		} else if(depth == 3 && in_continent) {
+			// Only the first of each is used
+			if(tag.equals("name") && cont_name == null)
+				cont_name = text.toString();
+			else if(tag.equals("bonus") && cont_bonus == null)
+				cont_bonus = text.toString();
+			else if(tag.equals("R") && cont_r == null)
+				cont_r = text.toString();
+			else if(tag.equals("G") && cont_g == null)
+				cont_g = text.toString();
+			else if(tag.equals("B") && cont_b == null)
+				cont_b = text.toString();
+		} else if(depth == 3 && in_adjacency) {
+			if(tag.equals("from") && adj_from == null)
+				adj_from = text.toString();
+			else if(tag.equals("to") && adj_to == null)
+				adj_to = text.toString();
+			else if(tag.equals("cross") && adj_cross == null)
+				adj_cross = text.toString();
+		} else if(depth == 4 && in_label) {
+			in_label = false;
+		} else if(depth == 4 && in_territory) {
+			if(tag.equals("name") && terr_name == null)
+				terr_name = text.toString();
+			else if(tag.equals("x") && terr_x == null)
+				terr_x = text.toString();
+			else if(tag.equals("y") && terr_y == null)
+				terr_y = text.toString();
+		} else if(depth == 5 && in_label) {
+			endLabelValue(tag);
+		}
+	}
+
+	// A territory's label's direction, distance or size (each optional)
+	private void endLabelValue(String tag) throws Exception {
+		if(tag.equals("direction")) {
+			// The country's label's radial direction
+			float d = Float.parseFloat(text.toString());
+			if(d < 0.0 || d > 1.0) {
+				throw new Exception("Some territory label direction is out of bounds.");
+			}
+			terr_clv.setDirection(d);
+		} else if(tag.equals("distance")) {
+			// The country's label's distance from the node
+			// For the bounds of this value see Graphics.min_mag and Graphics.max_mag
+			int d = Integer.parseInt(text.toString());
+			if(d < Pretty.min_mag || d > Pretty.max_mag) {
+				throw new Exception("Some territory label distance is out of bounds.");
+			}
+			terr_clv.setMagnitude(d);
+		} else if(tag.equals("size")) {
+			// The country's label's font size
+			// For the bounds of this value see Graphics.min_size and Graphics.max_size
+			int d = Integer.parseInt(text.toString());
+			if(d < Pretty.min_size || d > Pretty.max_size) {
+				throw new Exception("Some territory label size is out of bounds.");
+			}
+			terr_clv.setFontSize(d);
+		}
+	}
+
+	private void endTerritory() throws Exception {
+		// The territory's name
+		if(terr_name == null)
+			throw new Exception("No name found for some territory in " + (cont_name == null ? "some continent" : cont_name) + ".");
+		if(country_ids.containsKey(terr_name))
+			throw new Exception("The territory " + terr_name + " is listed twice.");
+
+		// The position of the territory
+		Point pos = new Point();
+		if(terr_x == null)
+			throw new Exception("No x position given for " + terr_name + ".");
+		pos.x = Integer.parseInt(terr_x);
+		if(terr_y == null)
+			throw new Exception("No y position given for " + terr_name + ".");
+		pos.y = Integer.parseInt(terr_y);
+
+		// Construct a new Country object with the gathered information. The continent is added
+		// once it has been read, so its ID is the number of continents before it.
+		country_ids.put(terr_name, countries.size());
+		countries.add(new Country(terr_name, pos, continent_names.size(), terr_clv));
+		cont_territories++;
+	}
+
+	private void endContinent() throws Exception {
+		// Verifying that a name exists, and that it isn't already taken
+		if(cont_name == null)
+			throw new Exception("No name found for some continent.");
+		if(!continent_set.add(cont_name))
+			throw new Exception("The continent " + cont_name + " is listed twice.");
+
+		// Verifying that an army bonus exists
+		if(cont_bonus == null)
+			throw new Exception("No bonus found for " + cont_name + ".");
+		int bonus = Integer.parseInt(cont_bonus);
+		if(bonus < 0)
+			throw new Exception("Some continent has a negative army bonus.");
+
+		// Verifying that the Red, Green and Blue values of the continent's Color exist and are in range
+		float r_value = colorValue(cont_r, "R"), g_value = colorValue(cont_g, "G"), b_value = colorValue(cont_b, "B");
+
+		// If no territories were found, you dun goof'ed
+		if(cont_territories == 0)
+			throw new Exception("Some continent has no territories.");
+
+		continent_names.add(cont_name);
+		bonuses.add(bonus);
+		colors.add(new Color(r_value, g_value, b_value));
+	}
+
+	private float colorValue(String value, String which) throws Exception {
+		if(value == null)
+			throw new Exception("No " + which + " value found for " + cont_name + ".");
+		float v = Float.parseFloat(value);
+		if(v < 0 || v > 1) {
+			throw new Exception("The " + which + " value of " + cont_name + " is out of the 0.0-1.0 range.");
+		}
+		return v;
+	}
+
+	private void endAdjacency() throws Exception {
+		int crosses_edge = Adjacency.CROSS_NONE;	// The edge crossing policy of the adjacency
+		if(adj_cross != null) {
+			if(adj_cross.equalsIgnoreCase("horizontal"))
+				crosses_edge = Adjacency.CROSS_HORIZONTAL;
+			else if(adj_cross.equalsIgnoreCase("vertical"))
+				crosses_edge = Adjacency.CROSS_VERTICAL;
+			else if(adj_cross.equalsIgnoreCase("diagonalright"))
+				crosses_edge = Adjacency.CROSS_DIAG_RIGHT;
+			else if(adj_cross.equalsIgnoreCase("diagonalleft"))
+				crosses_edge = Adjacency.CROSS_DIAG_LEFT;
+			else
+				throw new Exception("Invalid edge-crossing policy for adjacency number " + adjacencies.size() + ". Choose "
+						+ "eighter Horizontal, Vertical, DiagonalRight, or DiagonalLeft.");
+		}
+		if(adj_from == null || adj_to == null)
+			throw new Exception("Adjacency number " + (adjacencies.size() + 1) + " is missing a \"from\" or \"to\" tag.");
+		adjacencies.add(new Adjacency(adj_from, adj_to, crosses_edge));
 	}
 
 	// The following getters provide arrays of game information to the Game class
@@ -324,4 +359,36 @@ public class MapReader {
 	public ArrayList<Adjacency> getAdjacencyInfo() {
 		return adjacencies;
 	}
+
+	// How many nanoseconds it took to read and check the map
+	public long getLoadTime() {
+		return load_time;
+	}
+
+	/*
+	 * Reads a map file and reports how long it took and roughly how much memory the map
+	 * takes up once read, for example:
+	 * java riskarena.MapReader src/maps/Earth.map
+	 */
+	public static void main(String args[]) {
+		if(args.length != 1) {
+			Risk.sayError("Usage: MapReader map_file");
+			System.exit(-1);
+		}
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long memory_before = runtime.totalMemory() - runtime.freeMemory();
+		MapReader map = null;
+		try {
+			map = new MapReader(args[0]);
+		} catch(Exception e) {
+			Risk.sayError("Something is wrong with " + args[0] + ": " + e.getMessage());
+			System.exit(-1);
+		}
+		System.gc();
+		long memory = runtime.totalMemory() - runtime.freeMemory() - memory_before;
+		System.out.println("Read " + map.NUM_COUNTRIES + " territories in " + map.NUM_CONTINENTS + " continents with "
+				+ map.adjacencies.size() + " adjacencies in " + map.getLoadTime()/1000 + " microseconds");
+		System.out.println("About " + Math.max(0, memory)/1024 + " KB in memory");
+	}
 }
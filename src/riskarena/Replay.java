@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * Replay plays a recorded game again from its replay file (see ReplayWriter). The game is
+ * played by the same Game engine with the same seed, but by ReplayBots giving the recorded
+ * answers instead of the RiskBots, so it runs at full speed and ends up exactly the same,
+ * including any bot failure that stopped it. Every roll of the dice is checked against the
+ * recording along the way. For example:
+ * java riskarena.Replay logs/replays/tournament-12-game-8317.replay
+ * or, to watch it on the game board:
+ * java riskarena.Replay -watch logs/replays/tournament-12-game-8317.replay
+ *
+ * Evan Radkoff
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+public class Replay {
+
+	public static void main(String args[]) {
+		boolean watch = false;
+		int arg = 0;
+		if(arg < args.length && args[arg].equals("-watch")) {
+			watch = true;
+			arg++;
+		}
+		if(args.length - arg != 1) {
+			Risk.sayError("Usage: Replay [-watch] replay_file");
+			System.exit(-1);
+		}
+		ReplayReader replay = null;
+		try {
+			replay = new ReplayReader(args[arg]);
+		} catch(IOException e) {
+			Risk.sayError("Unable to read replay: " + e.getMessage());
+			System.exit(-1);
+		}
+		String map_file = replay.getMapFile();
+		if(!new File(map_file).isFile()) {
+			Risk.sayError("The map file " + map_file + " of the replay was not found.");
+			System.exit(-1);
+		}
+		if(ReplayWriter.mapHash(map_file) != replay.getMapHash()) {
+			Risk.sayError("The map file " + map_file + " has changed since the game was recorded.");
+			System.exit(-1);
+		}
+
+		Player players[] = new Player[replay.getNumPlayers()];
+		for(int i=0;i<players.length;i++)
+			players[i] = new ReplayBot(replay, i);
+		Game game = new Game(players, map_file, watch, false, replay.getSeed());
+		game.replayFrom(replay);
+		try {
+			game.init();
+			game.play();
+		} finally {
+			game.close(false);
+		}
+
+		ArrayList<Integer> results = game.getResults();
+		System.out.println("Replayed " + replay.getNumEvents() + " events on " + map_file + " (seed " + replay.getSeed() + ") in "
+				+ game.getElapsedTime()/1000000 + " ms:");
+		for(int i=0;i<results.size();i++)
+			System.out.println((i+1) + ". " + players[results.get(i)].getName() + " (" + replay.getBotName(results.get(i)) + ")");
+		if(game.getForfeit() >= 0)
+			System.out.println(players[game.getForfeit()].getName() + " forfeited the game.");
+		if(!watch)
+			System.exit(0);
+	}
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * A ReplayBot stands in for one of the bots of a recorded game. Rather than asking a RiskBot
+ * for its decisions, it gives the answers read from the replay file, so the game plays out
+ * the same way without any of the bots being run.
+ *
+ * Evan Radkoff
+ */
+
+public class ReplayBot extends Bot {
+	private ReplayReader replay;
+
+	// The ReplayBot for player id of the game recorded in r
+	public ReplayBot(ReplayReader r, int id) {
+		super(r.getBotName(id), Risk.getPlayerColor(id), id, new Idle());
+		setName(r.getPlayerName(id));
+		replay = r;
+	}
+
+	protected int nextAnswer() throws RiskBotException {
+		return replay.nextAnswer(getId());
+	}
+
+	// A RiskBot that makes no decisions, since the answers are already known
+	private static class Idle implements RiskBot {
+		public void init(GameInfo gi, Bot.RiskListener rl) { }
+		public void initTurn() { }
+		public void endTurn() { }
+		public void claimTerritory() { }
+		public void fortifyTerritory(int num_to_place) { }
+		public void launchAttack() { }
+		public void fortifyAfterVictory(int attacker, int defender, int min, int max) { }
+		public void chooseToTurnInSet() { }
+		public void chooseCardSet(int[][] possible_sets) { }
+		public void fortifyPosition() { }
+		public void endGame(int place) { }
+	}
+}
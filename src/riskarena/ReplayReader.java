@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * ReplayReader reads back a replay file written by ReplayWriter. ReplayBots take their answers
+ * from it, and the Game being replayed checks each roll of the dice and the winner against it.
+ * If the game being replayed ever does something other than what was recorded, the replay
+ * has gone wrong and can't go on, so an error is printed and the program exits.
+ *
+ * Evan Radkoff
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class ReplayReader {
+	private byte bytes[];	// The whole file
+	private int position = 0;
+	private int num_events = 0;
+	private long seed, map_hash;
+	private String map_file;
+	private String bot_names[], player_names[];
+	private boolean finished = false;	// True once the END event has been read
+
+	public ReplayReader(String path) throws IOException {
+		bytes = Files.readAllBytes(Paths.get(path));
+		try {
+			if(bytes.length < 4 || (int)readFixed(4) != ReplayWriter.MAGIC)
+				throw new IOException(path + " is not a replay file.");
+			int version = (int)readVarint();
+			if(version != ReplayWriter.VERSION)
+				throw new IOException(path + " is a replay file of version " + version + ", not " + ReplayWriter.VERSION + ".");
+			seed = readFixed(8);
+			map_hash = readFixed(8);
+			map_file = readString();
+			int num_players = (int)readVarint();
+			if(num_players < Risk.MIN_PLAYERS || num_players > Risk.MAX_PLAYERS)
+				throw new IOException(path + " has " + num_players + " players.");
+			bot_names = new String[num_players];
+			player_names = new String[num_players];
+			for(int i=0;i<num_players;i++) {
+				bot_names[i] = readString();
+				player_names[i] = readString();
+			}
+		} catch(IndexOutOfBoundsException e) {
+			throw new IOException(path + " ends in the middle of its header.");
+		}
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public long getMapHash() {
+		return map_hash;
+	}
+
+	public String getMapFile() {
+		return map_file;
+	}
+
+	public int getNumPlayers() {
+		return bot_names.length;
+	}
+
+	public String getBotName(int player) {
+		return bot_names[player];
+	}
+
+	public String getPlayerName(int player) {
+		return player_names[player];
+	}
+
+	// The number of events read so far
+	public int getNumEvents() {
+		return num_events;
+	}
+
+	// Whether the whole game has been replayed
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/*
+	 * Returns the next answer given by player. If the recorded player failed to give one
+	 * instead, the same RiskBotException is thrown.
+	 */
+	public int nextAnswer(int player) throws Bot.RiskBotException {
+		long event = nextEvent("an answer from player " + player);
+		int tag = (int)(event & 3);
+		long rest = event >>> 2;
+		if(tag == ReplayWriter.FAILURE && rest == player)
+			throw new Bot.RiskBotException(readString());
+		if(tag != ReplayWriter.ANSWER || (rest & 7) != player)
+			diverged("an answer from player " + player, event);
+		long zigzag = rest >>> 3;
+		return (int)((zigzag >>> 1) ^ -(zigzag & 1));
+	}
+
+	// Checks a roll of the dice against the next one recorded
+	public void dice(int attacker_change, int defender_change) {
+		long event = nextEvent("a roll of the dice");
+		if(event != ((-attacker_change * 3 - defender_change) << 2 | ReplayWriter.DICE))
+			diverged("a roll of the dice of " + attacker_change + "/" + defender_change, event);
+	}
+
+	// Checks the end of the game against the recorded one
+	public void end(int winner) {
+		long event = nextEvent("the end of the game");
+		if(event != ((long)winner << 2 | ReplayWriter.END))
+			diverged("the end of the game, won by player " + winner, event);
+		finished = true;
+	}
+
+	private long nextEvent(String expected) {
+		if(position >= bytes.length) {
+			Risk.sayError("The replay ended before " + expected + ", after " + num_events + " events.", true);
+			System.exit(-1);
+		}
+		num_events++;
+		return readVarint();
+	}
+
+	private void diverged(String what, long event) {
+		String recorded;
+		switch((int)(event & 3)) {
+		case ReplayWriter.ANSWER:
+			long zigzag = event >>> 5;
+			recorded = "an answer of " + ((zigzag >>> 1) ^ -(zigzag & 1)) + " from player " + ((event >>> 2) & 7);
+			break;
+		case ReplayWriter.DICE:
+			recorded = "a roll of the dice of " + -((event >>> 2) / 3) + "/" + -((event >>> 2) % 3);
+			break;
+		case ReplayWriter.FAILURE:
+			recorded = "a failure of player " + (event >>> 2);
+			break;
+		default:
+			recorded = "the end of the game, won by player " + (event >>> 2);
+		}
+		Risk.sayError("The replay went wrong at event " + num_events + ": the game had " + what + ", but the replay file has " + recorded + ".", true);
+		System.exit(-1);
+	}
+
+	private long readVarint() {
+		long v = 0;
+		for(int shift=0;;shift+=7) {
+			byte b = bytes[position++];
+			v |= (long)(b & 0x7f) << shift;
+			if(b >= 0)
+				return v;
+		}
+	}
+
+	private long readFixed(int num_bytes) {
+		long v = 0;
+		for(int i=0;i<num_bytes;i++)
+			v = (v << 8) | (bytes[position++] & 0xff);
+		return v;
+	}
+
+	private String readString() {
+		int length = (int)readVarint();
+		String s = new String(bytes, position, length, StandardCharsets.UTF_8);
+		position += length;
+		return s;
+	}
+}
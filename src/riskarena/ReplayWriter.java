@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * ReplayWriter records a game between bots into a replay file as it is played. Since the
+ * Random of a Game is seeded, the seed and every answer the bots give are all it takes to
+ * play the game again exactly (see Replay), and the results of the dice are kept as well
+ * so that a replay can tell if it has strayed from the original.
+ *
+ * A replay file is append-only. It starts with a header:
+ *   the int MAGIC, the version, the seed (a long), a hash of the map file (a long),
+ *   the path of the map file, the number of players, and then each player's bot name and name
+ * and is followed by events, each a varint whose lowest 2 bits say what it is:
+ *   ANSWER  - the rest is (zigzag(answer) * 8 + player ID)
+ *   DICE    - the rest is (-attacker's loss * 3 + -defender's loss)
+ *   FAILURE - the rest is the player ID, followed by the message of the RiskBotException
+ *   END     - the rest is the ID of the winner
+ * Numbers in the header are varints and strings are a varint length followed by UTF-8 bytes.
+ * Most events fit in a single byte, so a whole game takes a few kilobytes.
+ *
+ * Evan Radkoff
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class ReplayWriter {
+	public static final int MAGIC = 0x52415250;	// "RARP"
+	public static final int VERSION = 1;
+	public static final int ANSWER = 0, DICE = 1, FAILURE = 2, END = 3;
+	private FileOutputStream out;
+	private String path;
+	private byte buffer[] = new byte[8192];	// Events are kept here until it is nearly full
+	private int size = 0;
+
+	/*
+	 * Creates the replay file at path (and its directory, if need be) and writes its header.
+	 * If it can't be created an error is printed and nothing is recorded.
+	 */
+	public ReplayWriter(String path, long seed, String map_file, Player players[]) {
+		this.path = path;
+		try {
+			File parent = new File(path).getParentFile();
+			if(parent != null)
+				parent.mkdirs();
+			out = new FileOutputStream(path);
+		} catch(IOException e) {
+			Risk.sayError("Unable to create replay file at " + path);
+			return;
+		}
+		writeFixed(MAGIC, 4);
+		writeVarint(VERSION);
+		writeFixed(seed, 8);
+		writeFixed(mapHash(map_file), 8);
+		writeString(map_file);
+		writeVarint(players.length);
+		for(int i=0;i<players.length;i++) {
+			writeString(((Bot)players[i]).getBotName());
+			writeString(players[i].getName());
+		}
+	}
+
+	// Records an answer given by player
+	public void answer(int player, int value) {
+		writeVarint(((((long)value << 1) ^ (value >> 31)) * 8 + player) << 2 | ANSWER);
+	}
+
+	// Records a roll of the dice, given the armies each side lost (as in Dice, 0 to -2)
+	public void dice(int attacker_change, int defender_change) {
+		writeVarint((-attacker_change * 3 - defender_change) << 2 | DICE);
+	}
+
+	// Records that player failed to give an answer, with the reason why
+	public void failure(int player, String message) {
+		writeVarint((long)player << 2 | FAILURE);
+		writeString(message == null ? "" : message);
+	}
+
+	// Records the end of the game
+	public void end(int winner) {
+		writeVarint((long)winner << 2 | END);
+	}
+
+	// Writes whatever has been recorded so far to the file
+	public void flush() {
+		if(out == null || size == 0) {
+			size = 0;
+			return;
+		}
+		try {
+			out.write(buffer, 0, size);
+		} catch(IOException e) {
+			Risk.sayError("Unable to write to replay file " + path);
+		}
+		size = 0;
+	}
+
+	public void close() {
+		if(out == null)
+			return;
+		flush();
+		try {
+			out.close();
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+		out = null;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/*
+	 * A 64 bit FNV-1a hash of the contents of a map file, so that a replay can check it is
+	 * being played on the same map. Returns 0 if the file can't be read. The hash is the one
+	 * of the map's MapModel, so a tournament only reads its map for this once.
+	 */
+	public static long mapHash(String map_file) {
+		try {
+			return MapModel.get(map_file).getHash();
+		} catch(Exception e) {
+			return 0;
+		}
+	}
+
+	// Makes sure there is room for n more bytes in the buffer
+	private void reserve(int n) {
+		if(size + n > buffer.length)
+			flush();
+		if(n > buffer.length)
+			buffer = new byte[n];
+	}
+
+	private void writeVarint(long v) {
+		reserve(10);
+		while((v & ~0x7fL) != 0) {
+			buffer[size++] = (byte)((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		buffer[size++] = (byte)v;
+	}
+
+	// Writes the lowest num_bytes bytes of v, most significant first
+	private void writeFixed(long v, int num_bytes) {
+		reserve(num_bytes);
+		for(int i=num_bytes-1;i>=0;i--)
+			buffer[size++] = (byte)(v >>> (8 * i));
+	}
+
+	private void writeString(String s) {
+		byte bytes[] = s.getBytes(StandardCharsets.UTF_8);
+		writeVarint(bytes.length);
+		reserve(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+	}
+}
@@ -19,6 +19,8 @@ package riskarena;
 
 import java.awt.Color;
 import java.lang.String;
+import java.util.ArrayList;
+import java.util.Date;
 
 import javax.swing.SwingUtilities;
 
@@ -39,6 +41,7 @@ public class Risk {
 	public final static String BOT_PATH = "src/riskarena/riskbots"; // location of bots
 	public final static String GAME_LOG_PATH = "logs/game_reports/";
 	public final static String WAR_GAME_LOG_PATH = "logs/war_games/";
+	public final static String REPLAY_PATH = "logs/replays/";
 	public final static String IMAGES_PATH = "src/images/";
 	public final static String LOGO_URL = Risk.IMAGES_PATH + "RiskArena.png";
 	public final static String RISKBOT_PREFIX = "RiskBot";	// any file beginning with this is considered by BotSniffer as a potential AI option
@@ -47,7 +50,9 @@ public class Risk {
 	public final static boolean input_from_std = false;
 
 	private static Player players[];	// Structure to hold player information
-	private static Game game;	// The instance of the game engine class, Game
+	// The game engine whose output is used by the current thread. Threads started by a game (like
+	// those of its bots) inherit it, so that several games can be played at once.
+	private static final InheritableThreadLocal<Game> current_game = new InheritableThreadLocal<Game>();
 	private static SetUp setup; // Game set up panel
 	private static WarGameSetUp wargamesetup; // Set up panel for all-AI war games
 
@@ -65,16 +70,14 @@ public class Risk {
 			final int watch_mode = wargamesetup.getMode();		// Retrieve the watch mode (watch none, watch one, or watch all)
 			final String results_file = wargamesetup.getSaveFile();	// Retrieve the file in which to save results
 			
+			if(watch_mode == WarGameSetUp.WATCH_NONE) {	// If not watching any games, play them all at once on every processor
+				playTournament(map_file_path, num_games, results_file, wargamesetup.getSaveGameLogs());
+				return;
+			}
+
 			// Create the battle results window, a WarGameReport object
 			final WarGameReport battle_window = new WarGameReport(players, setup.getMap(), num_games, results_file);
 			
-			if(watch_mode == WarGameSetUp.WATCH_NONE) {	// If not watching any games, immediately show the results window (in a new thread)
-			SwingUtilities.invokeLater(new Runnable() {
-				public void run() {
-					 battle_window.display();
-				}
-			});
-			}
 			// Each iteration of this loop plays out a game
 			for(int i=0;i<num_games;i++) {
 				if(watch_mode == WarGameSetUp.WATCH_ONE && i==1) {	// If only watching one game, after that game display the results window
@@ -86,28 +89,21 @@ public class Risk {
 				}
 				// The boolean 'watch' is true if the current game is to be watched or not
 				boolean watch = (watch_mode == WarGameSetUp.WATCH_ALL || (watch_mode == WarGameSetUp.WATCH_ONE && i == 0) ) ? true : false;
-				game = new Game(players, map_file_path, watch, wargamesetup.getSaveGameLogs());
+				final Game game = new Game(players, map_file_path, watch, wargamesetup.getSaveGameLogs());
 				game.init();	// Initialize game
 				game.play();	// Play out game
 				SwingUtilities.invokeLater(new Runnable() {			// Send game results to the results window (in a new thread)
 					public void run() {
-						battle_window.sendResults(game.getResults(), game.getElapsedTime());
+						battle_window.sendResults(game.getResults(), game.getElapsedTime(), game.getForfeit());
 					}
 				});
 				game.close(true);		// close the game and board
 				game.clearGame();	// Since the same Player objects are used game to game, clear their cards and stillIn status
 			}
-				SwingUtilities.invokeLater(new Runnable() {
-					public void run() {
-						if(!battle_window.isDisplayed())	// If the war games results window has yet to be displayed, display it
-						 battle_window.display();
-						battle_window.finished();	// Signal to the war games results window that all simulations are finished
-					}
-				});
-		
+			finishWarGames(battle_window);
 			
 		} else {	// Else there is at least one Human player, in which case only one game is played
-			game = new Game(players, map_file_path, true, true);
+			Game game = new Game(players, map_file_path, true, true);
 			game.init();		// Initialize game
 			game.play();		// Play game
 			game.close(false);	// Close down the game but leave the board intact
@@ -115,6 +111,50 @@ public class Risk {
 		
 	}
 
+	/*
+	 * Plays war games without graphics using a Tournament, which spreads the games
+	 * over a pool of threads. The results window is shown right away and refreshed
+	 * as games finish.
+	 */
+	private static void playTournament(String map_file_path, int num_games, String results_file, boolean save_logs) {
+		String bot_names[] = new String[players.length];
+		String names[] = new String[players.length];
+		for(int i=0;i<players.length;i++) {
+			bot_names[i] = ((Bot)players[i]).getBotName();
+			names[i] = players[i].getName();
+		}
+		Tournament tournament = new Tournament(bot_names, names, map_file_path, num_games,
+				Runtime.getRuntime().availableProcessors(), save_logs, new Date().getTime());
+		final WarGameReport battle_window = new WarGameReport(tournament.getStandings(), setup.getMap(), results_file);
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				 battle_window.display();
+			}
+		});
+		tournament.setListener(new Tournament.Listener() {
+			public void gameFinished(int game_number, ArrayList<Integer> results, long game_length) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						battle_window.refresh();
+					}
+				});
+			}
+		});
+		tournament.play();
+		finishWarGames(battle_window);
+	}
+
+	// Signals to the war games results window that all simulations are finished
+	private static void finishWarGames(final WarGameReport battle_window) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				if(!battle_window.isDisplayed())	// If the war games results window has yet to be displayed, display it
+				 battle_window.display();
+				battle_window.finished();	// Signal to the war games results window that all simulations are finished
+			}
+		});
+	}
+
 	/*
 	 * Returns the color of a given player id. If more than 6 players are allowed,
 	 * this needs to be manually changed.
@@ -138,12 +178,29 @@ public class Risk {
 		}
 	}
 	
+	/*
+	 * Sets the game whose output is used by the current thread (and any thread it starts).
+	 * Called by Game once it is constructed, and with null once it is closed.
+	 */
+	static void setCurrentGame(Game g) {
+		if(g == null)
+			current_game.remove();
+		else
+			current_game.set(g);
+	}
+
+	// Returns the game whose output is used by the current thread, or null if there isn't one
+	static Game getCurrentGame() {
+		return current_game.get();
+	}
+
 	/* Called by various methods to send something to whatever
 	 * output is being used.
 	 * toSay is the string wishing to be outputted
 	 * tabbed is whether or not it should be prepended with a \t
 	 */
 	public static void sayOutput(final String toSay, final int output_format_style, boolean forced) {
+		Game game = current_game.get();
 		if(game == null && output_format_style == OutputFormat.ERROR) {
 			System.err.println(toSay);
 		} else if (game == null) {
@@ -158,7 +215,7 @@ public class Risk {
 	 * tabbed is whether or not it should be prepended with a \t
 	 */
 	public static void sayOutput(final String toSay, final int output_format_style) {
-			game.sayOutput(toSay, output_format_style, false);
+		sayOutput(toSay, output_format_style, false);
 	}
 
 	/*
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * Standings keeps track of the results of a series of war games: how many
+ * points and first places each player has, and how long the games took.
+ * Games may finish on any thread, so every method is synchronized.
+ *
+ * Evan Radkoff
+ */
+
+import java.util.ArrayList;
+
+public class Standings {
+	private String names[];	// names[i] is the name of player i
+	private int num_games;	// Total number of games to be played
+	private int games_completed = 0;
+	private long total_game_time = 0;	// Sum of how long each completed game took, in nanoseconds
+	private int[] points;	// points[i] is how many points player i has
+	private int[] firstplaces; // firstplaces[i] is how many times player i has won
+	private int[] forfeits;	// forfeits[i] is how many games player i has forfeited by failing to play on
+	private static final int[][] point_values = {
+			{ 1, 0, 0, 0, 0, 0 },		// 2 players (1st place player gets 1 point)
+			{ 2, 1, 0, 0, 0, 0 },		// 3 players (1st place gets 2, 2nd gets 1)
+			{ 3, 2, 1, 0, 0, 0 },		// 4 players (and so on)
+			{ 4, 3, 2, 1, 0, 0 },		// 5 players
+			{ 5, 4, 3, 2, 1, 0 }		// 6 players
+	};
+
+	// The names of the players, and the number of games being played
+	public Standings(String n[], int n_games) {
+		names = n.clone();
+		num_games = n_games;
+		points = new int[names.length];
+		firstplaces = new int[names.length];
+		forfeits = new int[names.length];
+	}
+
+	// Called when a game concludes
+	// results[i] is the player id of the person that got i'th in the game.
+	// game_length is how many nanoseconds the concluding game took to simulate
+	public synchronized void addResult(ArrayList<Integer> results, long game_length) {
+		total_game_time += game_length;
+		// Give each player the appropriate number of points via point_values
+		for(int i=0;i<results.size();i++) {
+			points[results.get(i)] += getPointValue(i);
+		}
+		firstplaces[results.get(0)] += 1;
+		games_completed++;
+	}
+
+	// Same as above, for a game that ended early when the player forfeit failed (see Game.forfeit())
+	public synchronized void addResult(ArrayList<Integer> results, long game_length, int forfeit) {
+		addResult(results, game_length);
+		if(forfeit >= 0)
+			forfeits[forfeit]++;
+	}
+
+	public synchronized int getForfeits(int player) {
+		return forfeits[player];
+	}
+
+	// How many points a player gets for finishing in a certain place (0 is 1st)
+	public int getPointValue(int place) {
+		return point_values[names.length - Risk.MIN_PLAYERS][place];
+	}
+
+	public int getNumPlayers() {
+		return names.length;
+	}
+
+	public int getNumGames() {
+		return num_games;
+	}
+
+	public synchronized int getGamesCompleted() {
+		return games_completed;
+	}
+
+	public synchronized boolean finished() {
+		return games_completed >= num_games;
+	}
+
+	// Average time per completed game in nanoseconds, or 0 if none have completed
+	public synchronized long getAverageGameTime() {
+		if(games_completed == 0)
+			return 0;
+		return total_game_time/(long)games_completed;
+	}
+
+	// Returns the current order of how players are doing in terms of points.
+	// The i'th standing this returns is the name and points value of the player that is in i'th place.
+	public synchronized ArrayList<Standing> getStandings() {
+		ArrayList<Standing> standings = new ArrayList<Standing>();
+		boolean valid[] = new boolean[names.length];
+		for(int i=0;i<names.length;i++)
+			valid[i] = true;
+		for(int i=0;i<names.length;i++) {
+			int highest_points = -1;
+			int winner = -1;
+			for(int j=0;j<names.length;j++) {
+				if(valid[j] && points[j] > highest_points) {
+					highest_points = points[j];
+					winner = j;
+				}
+			}
+			standings.add(new Standing(names[winner], highest_points, firstplaces[winner], forfeits[winner]));
+			valid[winner] = false;
+		}
+		return standings;
+	}
+
+	// Small helper class to store a name and points value for a player
+	public static class Standing {
+		public String name;
+		public int points;
+		public int firstplace;
+		public int forfeits;
+		public Standing(String n, int p, int fp, int f) {
+			name = n; points = p; firstplace = fp; forfeits = f;
+		}
+	}
+}
@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * A Tournament plays out a series of all-AI war games without graphics,
+ * spread over a fixed pool of threads. Every game gets its own Bot (and
+ * RiskBot) instances, its own seeded Random, and its own output, so games
+ * never share mutable state. Results are merged into a Standings object.
+ *
+ * Evan Radkoff
+ */
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Tournament {
+	private String bot_names[];	// bot_names[i] is the RiskBot used by player i
+	private String player_names[];	// player_names[i] is the name given to player i
+	private String map_file;	// path of the map file
+	private int num_games, num_threads;
+	private boolean save_logs;	// whether or not each game writes an HTML game log
+	private boolean direct = false;	// whether or not the bots are trusted to run in direct mode (see Bot)
+	private long seed;	// seeds the Random that chose seeds
+	private long seeds[];	// seeds[i] seeds the Random of game i, so results don't depend on which thread plays it
+	private boolean replays = false;	// whether or not each game is recorded to a replay file
+	private Standings standings;
+	private Listener listener = null;
+	private long queue_times[], compute_times[];	// Total nanoseconds each player's decisions waited for a thread / were computed
+	private long num_decisions[];	// Total number of decisions made by each player
+
+	/*
+	 * @param String b[] - names of the RiskBots playing (without the RiskBot prefix)
+	 * @param String n[] - names of the players, in the same order
+	 * @param String map - file path to the map file
+	 * @param int n_games - the number of games to play
+	 * @param int threads - how many games may be played at once
+	 * @param boolean logs - whether or not to save a game log of every game
+	 * @param long seed - seeds the Random that chooses the seed of each game
+	 */
+	public Tournament(String b[], String n[], String map, int n_games, int threads, boolean logs, long seed) {
+		bot_names = b.clone();
+		player_names = n.clone();
+		map_file = map;
+		num_games = n_games;
+		num_threads = Math.max(1, threads);
+		save_logs = logs;
+		this.seed = seed;
+		Random seeder = new Random(seed);
+		seeds = new long[num_games];
+		for(int i=0;i<num_games;i++)
+			seeds[i] = seeder.nextLong();
+		standings = new Standings(player_names, num_games);
+		queue_times = new long[bot_names.length];
+		compute_times = new long[bot_names.length];
+		num_decisions = new long[bot_names.length];
+	}
+
+	public Standings getStandings() {
+		return standings;
+	}
+
+	// If d is true, the RiskBots are called on the threads playing the games rather than in
+	// threads of their own. This is much faster, but only suitable for trusted RiskBots.
+	public void setDirect(boolean d) {
+		direct = d;
+	}
+
+	// If r is true, every game is recorded to a replay file in Risk.REPLAY_PATH named after
+	// the seed of the tournament and the game's number (see getReplayPath)
+	public void setReplays(boolean r) {
+		replays = r;
+	}
+
+	// The path of the replay file of game number game_number (counting from 0)
+	public String getReplayPath(int game_number) {
+		return Risk.REPLAY_PATH + "tournament-" + seed + "-game-" + (game_number+1) + ".replay";
+	}
+
+	// The listener is notified (on the thread that played the game) every time a game finishes
+	public void setListener(Listener l) {
+		listener = l;
+	}
+
+	/*
+	 * Plays every game, returning once they have all finished.
+	 */
+	public void play() {
+		final AtomicInteger thread_count = new AtomicInteger(1);
+		ExecutorService pool = Executors.newFixedThreadPool(num_threads, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				return new Thread(r, "Tournament-" + thread_count.getAndIncrement());
+			}
+		});
+		for(int i=0;i<num_games;i++) {
+			final int game_number = i;
+			pool.execute(new Runnable() {
+				public void run() {
+					try {
+						playGame(game_number);
+					} catch(Throwable e) {	// Even an Error only loses this game, not the tournament
+						Risk.sayError("Game " + (game_number+1) + " could not be completed: " + e, true);
+						e.printStackTrace();
+					}
+				}
+			});
+		}
+		pool.shutdown();
+		try {
+			while(!pool.awaitTermination(1, TimeUnit.SECONDS)) { }
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * Plays out game number game_number on the calling thread.
+	 */
+	private void playGame(int game_number) {
+		Player players[] = new Player[bot_names.length];
+		for(int i=0;i<players.length;i++) {
+			players[i] = new Bot(bot_names[i], Risk.getPlayerColor(i), i, direct);
+			players[i].setName(player_names[i]);
+		}
+		Game game = new Game(players, map_file, false, save_logs, seeds[game_number]);
+		if(replays)
+			game.recordReplay(getReplayPath(game_number));
+		try {
+			game.init();
+			game.play();
+		} finally {
+			game.close(false);
+		}
+		ArrayList<Integer> results = game.getResults();
+		standings.addResult(results, game.getElapsedTime(), game.getForfeit());
+		addDecisionTimes(players);
+		if(listener != null)
+			listener.gameFinished(game_number, results, game.getElapsedTime());
+	}
+
+	// Adds how long the decisions of a finished game's bots took to the totals
+	private synchronized void addDecisionTimes(Player players[]) {
+		for(int i=0;i<players.length;i++) {
+			Bot bot = (Bot)players[i];
+			queue_times[i] += bot.getQueueTime();
+			compute_times[i] += bot.getComputeTime();
+			num_decisions[i] += bot.getNumDecisions();
+		}
+	}
+
+	// The average number of nanoseconds player i's decisions waited for a thread to be made on
+	public synchronized long getAverageQueueTime(int i) {
+		return num_decisions[i] == 0 ? 0 : queue_times[i]/num_decisions[i];
+	}
+
+	// The average number of nanoseconds player i's bot spent making a decision
+	public synchronized long getAverageComputeTime(int i) {
+		return num_decisions[i] == 0 ? 0 : compute_times[i]/num_decisions[i];
+	}
+
+	/*
+	 * Gives each of the RiskBots a unique player name (ie "Skynet", if taken "Skynet 2", if taken "Skynet 3", etc)
+	 */
+	public static String[] uniqueNames(String bots[]) {
+		String names[] = new String[bots.length];
+		for(int i=0;i<bots.length;i++) {
+			String possible_name = bots[i];
+			int botID = 1;
+			boolean found_name = false;
+			while(!found_name) {
+				found_name = true;
+				possible_name = bots[i];
+				if(botID != 1) possible_name = possible_name + " " + botID;
+				for(int j=0;j<i;j++) {
+					if(names[j].equals(possible_name)) {
+						found_name = false;
+						botID++;
+					}
+				}
+			}
+			names[i] = possible_name;
+		}
+		return names;
+	}
+
+	// Notified when a game of the tournament finishes
+	public interface Listener {
+		public void gameFinished(int game_number, ArrayList<Integer> results, long game_length);
+	}
+
+	/*
+	 * Plays a tournament from the command line and prints the standings, for example:
+	 * java riskarena.Tournament -games 100 -threads 8 -seed 12 -direct Earth.map Awesome Random Dumb
+	 * With -replays, every game is recorded to a replay file that Replay can play again.
+	 */
+	public static void main(String args[]) {
+		int games = 100, threads = Runtime.getRuntime().availableProcessors();
+		long seed = new Date().getTime();
+		boolean logs = false, direct = false, replays = false;
+		int arg = 0;
+		try {
+			while(arg < args.length && args[arg].startsWith("-")) {
+				if(args[arg].equals("-games"))
+					games = Integer.parseInt(args[++arg]);
+				else if(args[arg].equals("-threads"))
+					threads = Integer.parseInt(args[++arg]);
+				else if(args[arg].equals("-seed"))
+					seed = Long.parseLong(args[++arg]);
+				else if(args[arg].equals("-logs"))
+					logs = true;
+				else if(args[arg].equals("-direct"))
+					direct = true;
+				else if(args[arg].equals("-replays"))
+					replays = true;
+				else
+					throw new IllegalArgumentException(args[arg]);
+				arg++;
+			}
+		} catch(RuntimeException e) {
+			arg = args.length;
+		}
+		if(args.length - arg < 1 + Risk.MIN_PLAYERS || args.length - arg > 1 + Risk.MAX_PLAYERS) {
+			Risk.sayError("Usage: Tournament [-games n] [-threads n] [-seed n] [-logs] [-direct] [-replays] map_file bot bot [bot ...]");
+			System.exit(-1);
+		}
+		String map = Risk.MAPS_DIR_NAME + args[arg++];
+		String bots[] = new String[args.length - arg];
+		for(int i=0;i<bots.length;i++)
+			bots[i] = args[arg+i];
+
+		final Tournament tournament = new Tournament(bots, uniqueNames(bots), map, games, threads, logs, seed);
+		tournament.setDirect(direct);
+		tournament.setReplays(replays);
+		tournament.setListener(new Listener() {
+			public void gameFinished(int game_number, ArrayList<Integer> results, long game_length) {
+				Standings standings = tournament.getStandings();
+				System.out.println("Finished game " + standings.getGamesCompleted() + " of " + standings.getNumGames());
+			}
+		});
+		long start_time = System.nanoTime();
+		tournament.play();
+		double seconds = (System.nanoTime() - start_time)/1e9;
+
+		int completed = tournament.getStandings().getGamesCompleted();	// Games that couldn't be completed aren't counted
+		ArrayList<Standings.Standing> standings = tournament.getStandings().getStandings();
+		System.out.println("\nStandings after " + completed + " games on " + threads + " threads (seed " + seed + "):");
+		for(int i=0;i<standings.size();i++)
+			System.out.println((i+1) + ". " + standings.get(i).name + " - " + standings.get(i).points + " points, " + standings.get(i).firstplace + " wins"
+					+ (standings.get(i).forfeits > 0 ? ", " + standings.get(i).forfeits + " forfeits" : ""));
+		System.out.println("\nAverage time per decision (waiting for a thread / computing):");
+		for(int i=0;i<bots.length;i++)
+			System.out.println(tournament.player_names[i] + " - " + tournament.getAverageQueueTime(i)/1000 + " / " + tournament.getAverageComputeTime(i)/1000 + " microseconds");
+		System.out.println(completed/seconds + " games per second");
+		System.exit(0);
+	}
+}
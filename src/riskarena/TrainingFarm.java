@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena;
+/*
+ * A TrainingFarm trains the weights of AwesomeBot (see WeightManager) by self-play on several
+ * worker threads at once, rather than one war game at a time. Every seat of every worker's games
+ * is an AwesomeBot with a detached copy of the weights of its own, which it trains by TD(lambda)
+ * as usual but never saves. After each worker has played a round of games, the workers meet at
+ * a CyclicBarrier, where the copies are averaged and saved (see WeightStore) and
+ * every copy is put back in step with the average before the next round begins. Like the
+ * games a player trains on sequentially, each seat's game counts as one game trained on.
+ *
+ * Evan Radkoff
+ */
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+import riskarena.riskbots.RiskBotAwesome;
+import riskarena.riskbots.evaluation.Evaluation;
+import riskarena.riskbots.evaluation.WeightManager;
+
+public class TrainingFarm {
+	private String name;	// Name the weights being trained are saved under (see WeightStore)
+	private String map_file;
+	private int num_players, num_workers, num_rounds, round_games;
+	private long seeds[];	// seeds[i] seeds the Random of game i, so results don't depend on which worker plays it
+	private WeightManager weights;	// The averaged weights, saved to the weights file
+	private WeightManager copies[][];	// copies[w][p] is the detached copy of the weights of seat p of worker w's games
+	private CyclicBarrier barrier;
+	private int games_completed = 0;
+
+	/*
+	 * @param String n - name of the weights file to train, which is also the name of the players
+	 * @param String map - file path to the map file
+	 * @param int players - the number of AwesomeBots in each game
+	 * @param int workers - how many games are played at once
+	 * @param int rounds - how many times the workers' weights are averaged
+	 * @param int games - how many games each worker plays each round
+	 * @param long seed - seeds the Random that chooses the seed of each game
+	 */
+	public TrainingFarm(String n, String map, int players, int workers, int rounds, int games, long seed) {
+		name = n;
+		map_file = map;
+		num_players = players;
+		num_workers = Math.max(1, workers);
+		num_rounds = rounds;
+		round_games = Math.max(1, games);
+		Random seeder = new Random(seed);
+		seeds = new long[num_rounds * num_workers * round_games];
+		for(int i=0;i<seeds.length;i++)
+			seeds[i] = seeder.nextLong();
+		weights = Evaluation.newWeightManager(name, true);
+		weights.initGame();		// Reads the weights file, or starts it with random weights
+		copies = new WeightManager[num_workers][num_players];
+		for(int w=0;w<num_workers;w++)
+			for(int p=0;p<num_players;p++)
+				copies[w][p] = weights.detach();
+		barrier = new CyclicBarrier(num_workers, new Runnable() {
+			public void run() {
+				merge();
+			}
+		});
+	}
+
+	/*
+	 * Plays every round on num_workers threads, returning once they have all finished.
+	 */
+	public void train() {
+		Thread workers[] = new Thread[num_workers];
+		for(int i=0;i<num_workers;i++) {
+			final int worker = i;
+			workers[i] = new Thread(new Runnable() {
+				public void run() {
+					work(worker);
+				}
+			}, "TrainingFarm-" + (i+1));
+			workers[i].start();
+		}
+		try {
+			for(int i=0;i<num_workers;i++)
+				workers[i].join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Run by each worker thread: a round of games, then the barrier, num_rounds times
+	private void work(int worker) {
+		boolean finished = false;
+		try {
+			for(int round=0;round<num_rounds;round++) {
+				for(int i=0;i<round_games;i++) {
+					int game_number = (round*num_workers + worker)*round_games + i;
+					try {
+						playGame(worker, game_number);
+					} catch(Throwable e) {	// Even an Error only loses this game, so the worker still reaches the barrier
+						Risk.sayError("Training game " + (game_number+1) + " could not be completed: " + e, true);
+						e.printStackTrace();
+					}
+				}
+				barrier.await();
+				for(int p=0;p<num_players;p++)
+					copies[worker][p].copyFrom(weights);
+			}
+			finished = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (BrokenBarrierException e) {
+			Risk.sayError("Worker " + (worker+1) + " of the training farm was stopped: " + e, true);
+		} finally {
+			if(!finished)
+				barrier.reset();	// Stops the other workers, rather than leaving them waiting for this one forever
+		}
+	}
+
+	// Plays out game number game_number on the calling worker's thread
+	private void playGame(int worker, int game_number) {
+		String names[] = new String[num_players];
+		for(int i=0;i<num_players;i++)
+			names[i] = name;
+		names = Tournament.uniqueNames(names);
+		Player players[] = new Player[num_players];
+		for(int i=0;i<num_players;i++) {
+			players[i] = new Bot("Awesome", Risk.getPlayerColor(i), i, new RiskBotAwesome(copies[worker][i]));
+			players[i].setName(names[i]);
+		}
+		Game game = new Game(players, map_file, false, false, seeds[game_number]);
+		try {
+			game.init();
+			game.play();
+		} finally {
+			game.close(false);
+		}
+		synchronized(this) {
+			games_completed++;
+		}
+	}
+
+	// Run by the last worker to reach the barrier, while the others wait
+	private void merge() {
+		WeightManager all[] = new WeightManager[num_workers * num_players];
+		for(int w=0;w<num_workers;w++)
+			for(int p=0;p<num_players;p++)
+				all[w*num_players + p] = copies[w][p];
+		weights.mergeFrom(all);
+	}
+
+	public synchronized int getGamesCompleted() {
+		return games_completed;
+	}
+
+	public WeightManager getWeights() {
+		return weights;
+	}
+
+	/*
+	 * Trains from the command line, for example:
+	 * java riskarena.TrainingFarm -rounds 50 -games 4 -workers 8 -players 3 Earth.map Awesome
+	 * which plays 50 rounds of 4 games on each of 8 workers, averaging the weights in
+	 * src/data/weights/Awesome.weights after every round.
+	 */
+	public static void main(String args[]) {
+		int rounds = 10, games = 4, players = 3, workers = Runtime.getRuntime().availableProcessors();
+		long seed = new Date().getTime();
+		int arg = 0;
+		try {
+			while(arg < args.length && args[arg].startsWith("-")) {
+				if(args[arg].equals("-rounds"))
+					rounds = Integer.parseInt(args[++arg]);
+				else if(args[arg].equals("-games"))
+					games = Integer.parseInt(args[++arg]);
+				else if(args[arg].equals("-workers"))
+					workers = Integer.parseInt(args[++arg]);
+				else if(args[arg].equals("-players"))
+					players = Integer.parseInt(args[++arg]);
+				else if(args[arg].equals("-seed"))
+					seed = Long.parseLong(args[++arg]);
+				else
+					throw new IllegalArgumentException(args[arg]);
+				arg++;
+			}
+		} catch(RuntimeException e) {
+			arg = args.length;
+		}
+		if(args.length - arg != 2 || players < Risk.MIN_PLAYERS || players > Risk.MAX_PLAYERS) {
+			Risk.sayError("Usage: TrainingFarm [-rounds n] [-games n] [-workers n] [-players n] [-seed n] map_file weights_name");
+			System.exit(-1);
+		}
+		String map = Risk.MAPS_DIR_NAME + args[arg++];
+		String name = args[arg];
+
+		TrainingFarm farm = new TrainingFarm(name, map, players, workers, rounds, games, seed);
+		int start_games = farm.getWeights().getGamesTrained();
+		long start_time = System.nanoTime();
+		farm.train();
+		double seconds = (System.nanoTime() - start_time)/1e9;
+
+		int cores = Math.min(workers, Runtime.getRuntime().availableProcessors());
+		System.out.println("Trained " + name + " on " + farm.getGamesCompleted() + " games in " + rounds + " rounds on " + workers + " workers (seed " + seed + ")");
+		System.out.println("Weights trained on " + start_games + " games before, " + farm.getWeights().getGamesTrained() + " now (counting each player's)");
+		System.out.println(farm.getGamesCompleted()/seconds + " games per second, " + farm.getGamesCompleted()/seconds/cores + " per core");
+		System.exit(0);
+	}
+}
@@ -9,15 +9,24 @@ package riskarena;
 /*
  *  World Class
  *  Manages information about country adjacency. Verifies requests about adjacency verification.
+ *  Adjacencies are indexed once, when the World is built, so that looking them up never
+ *  requires a scan of every country or a new array.
  *  
  *  Evan Radkoff and Spencer Hall
  */
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class World {
 
-	private boolean[][] adjacency_truth; // Stores truth values about country adjacencies. Stored as [Country1][Country2]=true/false or [Country2][Country1] = true/false
+	// Adjacencies are stored in compressed sparse row form: the neighbors of country c are
+	// neighbors[offsets[c]] through neighbors[offsets[c+1]-1], in increasing order of country ID.
+	// Both arrays are built once and never change, so copies of a World share them.
+	private final int offsets[];
+	private final int neighbors[];
+	private final long adjacency_bits[];	// Row c of the (symmetric) adjacency matrix as a bitset of words_per_row longs
+	private final int words_per_row;
 	private ArrayList<Adjacency> adjacency_list;
 	private final int NUM_COUNTRIES;
 	private final int NUM_ADJACENCIES;
@@ -26,46 +35,72 @@ public class World {
 		NUM_COUNTRIES = countries;
 		adjacency_list = fileadjacency;
 		
-		adjacency_truth = new boolean[NUM_COUNTRIES][NUM_COUNTRIES];
+		// Adjacencies go both ways, and any listed twice are only counted once
+		words_per_row = (NUM_COUNTRIES + 63) / 64;
+		adjacency_bits = new long[NUM_COUNTRIES * words_per_row];
 		for(int i=0;i<adjacency_list.size();i++) {
-			adjacency_truth[adjacency_list.get(i).fromCountryID()][adjacency_list.get(i).toCountryID()] = true;
-			adjacency_truth[adjacency_list.get(i).toCountryID()][adjacency_list.get(i).fromCountryID()] = true;
+			setAdjacent(adjacency_list.get(i).fromCountryID(), adjacency_list.get(i).toCountryID());
+			setAdjacent(adjacency_list.get(i).toCountryID(), adjacency_list.get(i).fromCountryID());
+		}
+
+		offsets = new int[NUM_COUNTRIES + 1];
+		for(int c=0;c<NUM_COUNTRIES;c++) {
+			int degree = 0;
+			for(int w=0;w<words_per_row;w++)
+				degree += Long.bitCount(adjacency_bits[c * words_per_row + w]);
+			offsets[c+1] = offsets[c] + degree;
+		}
+		neighbors = new int[offsets[NUM_COUNTRIES]];
+		for(int c=0;c<NUM_COUNTRIES;c++) {
+			int next = offsets[c];
+			for(int w=0;w<words_per_row;w++) {
+				long word = adjacency_bits[c * words_per_row + w];
+				while(word != 0) {
+					neighbors[next++] = w * 64 + Long.numberOfTrailingZeros(word);
+					word &= word - 1;	// clear the lowest set bit
+				}
+			}
 		}
 
 		NUM_ADJACENCIES = adjacency_list.size();
 	}
 
-	// Copy constructor
+	// Copy constructor. The adjacency structure is never modified, so it is shared.
 	public World(World w) {
-		NUM_COUNTRIES = w.getNumCountries();
-		NUM_ADJACENCIES = w.getNumAdjacencies();
-		adjacency_truth = w.getRawAdjacencies();
+		NUM_COUNTRIES = w.NUM_COUNTRIES;
+		NUM_ADJACENCIES = w.NUM_ADJACENCIES;
+		offsets = w.offsets;
+		neighbors = w.neighbors;
+		adjacency_bits = w.adjacency_bits;
+		words_per_row = w.words_per_row;
+	}
+
+	private void setAdjacent(int countryid1, int countryid2) {
+		adjacency_bits[countryid1 * words_per_row + (countryid2 >>> 6)] |= 1L << (countryid2 & 63);
 	}
 
 	public boolean isAdjacent(int countryid1, int countryid2)
 	{
 		// Returns whether a given two countries (given in the form of country ID numbers) are adjacent.
-		return (adjacency_truth[countryid1][countryid2] || adjacency_truth[countryid2][countryid1]); // checks for adjacencies in both directions
+		return (adjacency_bits[countryid1 * words_per_row + (countryid2 >>> 6)] & (1L << (countryid2 & 63))) != 0;
 	}
 
 	public int[] getAdjacencies(int countryid)
 	{
 		// Returns an array containing the country ID numbers of countries who are adjacent to the input country's country ID.
-		int adjchecker=0;
-		for(int i=0;i<NUM_COUNTRIES;i++)
-		{
-			if (isAdjacent(countryid,i)) adjchecker++;
-		}
-		int[] adjlist = new int[adjchecker];
-		adjchecker=0;
-		for(int i=0;i<NUM_COUNTRIES;i++)
-		{
-			if (isAdjacent(countryid,i)) {
-				adjlist[adjchecker] = i;
-				adjchecker++;
-			}
-		}
-		return adjlist;
+		// To go through them without making a copy, use getDegree and getAdjacency.
+		return Arrays.copyOfRange(neighbors, offsets[countryid], offsets[countryid+1]);
+	}
+
+	// Returns the number of countries adjacent to the given country
+	public int getDegree(int countryid) {
+		return offsets[countryid+1] - offsets[countryid];
+	}
+
+	// Returns the country ID of the k'th country adjacent to the given country (0 <= k < getDegree(countryid)),
+	// in the same order as getAdjacencies
+	public int getAdjacency(int countryid, int k) {
+		return neighbors[offsets[countryid] + k];
 	}
 
 	/*
@@ -82,17 +117,22 @@ public class World {
 	
 	// For debugging purposes, prints the adjacency array with 0's and 1's
 	private void printAdjacencies() {
-		for(int i=0;i<adjacency_truth.length;i++) {
-			for(int j=0;j<adjacency_truth[i].length;j++) {
-				System.out.print(adjacency_truth[i][j] ? 1 : 0);
+		for(int i=0;i<NUM_COUNTRIES;i++) {
+			for(int j=0;j<NUM_COUNTRIES;j++) {
+				System.out.print(isAdjacent(i, j) ? 1 : 0);
 			}
 			System.out.println();
 		}
 	}
 
-	// Returns the adjacency array as-is
+	// Returns the adjacency information as a matrix of [Country1][Country2]=true/false
 	public boolean[][] getRawAdjacencies() {
-		return adjacency_truth.clone();
+		boolean adjacency_truth[][] = new boolean[NUM_COUNTRIES][NUM_COUNTRIES];
+		for(int c=0;c<NUM_COUNTRIES;c++) {
+			for(int k=offsets[c];k<offsets[c+1];k++)
+				adjacency_truth[c][neighbors[k]] = true;
+		}
+		return adjacency_truth;
 	}
 
 	public int getNumCountries() {
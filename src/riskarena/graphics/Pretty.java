@@ -101,7 +101,7 @@ public class Pretty extends JPanel {
 			circle.height = country_circle_radius*2;
 			circle.x = country_positions[i].x;
 			circle.y = country_positions[i].y;
-			g2d.setColor(game.getPlayerColor(country.getPlayer()));
+			g2d.setColor(game.getPlayerColor(game.getOwner(i)));
 			g2d.fill(circle);
 			g2d.setColor(game.getContinentColor(country.getCont()));
 			Stroke old_stroke = g2d.getStroke();
@@ -182,24 +182,24 @@ public class Pretty extends JPanel {
 
 
 			// ************ Draw army amount *************
-			if(country.getArmies() > 0) {
-				if(country.getArmies() < 10) {		// Single digit
+			if(game.getArmies(i) > 0) {
+				if(game.getArmies(i) < 10) {		// Single digit
 					g2d.setColor(Color.DARK_GRAY);
 					g2d.setFont(FontMaker.makeCustomFont(single_digit_army_label_size));
-					g2d.drawString(""+(country.getArmies()), circle.x + shadow_distance + country_circle_radius/2, circle.y + shadow_distance + (1.5f*country_circle_radius));
+					g2d.drawString(""+(game.getArmies(i)), circle.x + shadow_distance + country_circle_radius/2, circle.y + shadow_distance + (1.5f*country_circle_radius));
 					g2d.setColor(Color.WHITE);
 					//g2d.setFont(FontMaker.makeCustomFont(single_digit_army_label_size));
-					g2d.drawString(""+(country.getArmies()), circle.x + country_circle_radius/2, circle.y + (1.5f*country_circle_radius));
+					g2d.drawString(""+(game.getArmies(i)), circle.x + country_circle_radius/2, circle.y + (1.5f*country_circle_radius));
 				} else {		// Double/triple digit
 					g2d.setColor(Color.DARK_GRAY);
-					if(country.getArmies() < 100)
+					if(game.getArmies(i) < 100)
 						g2d.setFont(FontMaker.makeCustomFont(double_digit_army_label_size));
 					else
 						g2d.setFont(FontMaker.makeCustomFont(triple_digit_army_label_size));
-					g2d.drawString(""+(country.getArmies()), circle.x - 5 + shadow_distance + country_circle_radius/2, circle.y - 3 + shadow_distance + (1.5f*country_circle_radius));
+					g2d.drawString(""+(game.getArmies(i)), circle.x - 5 + shadow_distance + country_circle_radius/2, circle.y - 3 + shadow_distance + (1.5f*country_circle_radius));
 					g2d.setColor(Color.WHITE);
 					//g2d.setFont(FontMaker.makeCustomFont(double_digit_army_label_size));
-					g2d.drawString(""+(country.getArmies()), circle.x - 5 + country_circle_radius/2, circle.y - 3 + (1.5f*country_circle_radius));
+					g2d.drawString(""+(game.getArmies(i)), circle.x - 5 + country_circle_radius/2, circle.y - 3 + (1.5f*country_circle_radius));
 				}
 			}
 		}
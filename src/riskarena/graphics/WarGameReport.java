@@ -7,10 +7,9 @@
  ******************************************************************************/
 package riskarena.graphics;
 /*
- * The WarGameReport class is responsible for keeping track of
- * the results of war games, and represents the JDialog window that
- * presents these results as they happen. Following all simulations
- * it stores the final results in a file.
+ * The WarGameReport class represents the JDialog window that presents
+ * the results of war games (kept track of by a Standings object) as they
+ * happen. Following all simulations it stores the final results in a file.
  * 
  * Evan Radkoff
  */
@@ -44,10 +43,12 @@ import javax.swing.LayoutStyle;
 
 import riskarena.Player;
 import riskarena.Risk;
+import riskarena.Standings;
+import riskarena.Standings.Standing;
 
 
 public class WarGameReport extends JDialog {
-	private Player players[];
+	private Standings standings_table;	// Points and first places of each player, shared with whoever is playing the games
 	private int num_games;	// Total number of games to be simulated
 	private String results_file, map;	// results_file is where the war game results are stored
 	private boolean displayed = false;	// Once this dialog becomes visible, this is set to true
@@ -56,34 +57,28 @@ public class WarGameReport extends JDialog {
 	private CenterPanel center_panel;	// The upper half of the WarGameReport window
 	private JPanel main_panel;	// Contains standings and center_panel
 	
-	private int game_num = 1;	// Current game number
 	private long elapsed_time = 0;		// Upon completion, this value becomes how long all simulations took in nanoseconds
 	private long start_time;		// Time at which all simulations started
-	private long[] game_elapsed_times;	// Array of how long each game took to simulate
-	private int[] points;	// points[i] is how many points player i has
-	private int[] firstplaces; // firstplaces[i] is how many times player i has won
-	private int[][] point_values = {
-			{ 1, 0, 0, 0, 0, 0 },		// 2 players (1st place player gets 1 point)
-			{ 2, 1, 0, 0, 0, 0 },		// 3 players (1st place gets 2, 2nd gets 1)
-			{ 3, 2, 1, 0, 0, 0 },		// 4 players (and so on)
-			{ 4, 3, 2, 1, 0, 0 },		// 5 players
-			{ 5, 4, 3, 2, 1, 0 }		// 6 players
-	};
 	
 	// A list of the players, the map, the number of games being simulated, and the results file name
 	public WarGameReport(Player p[], String m, int n_games, String file) {
-		players = p;
+		this(new Standings(getNames(p), n_games), m, file);
+	}
+
+	// The standings being reported on, the map, and the results file name
+	public WarGameReport(Standings s, String m, String file) {
+		standings_table = s;
 		map = m;
-		num_games = n_games;
+		num_games = s.getNumGames();
 		results_file = file;
-		// Initialize point values to 0
-		points = new int[players.length];
-		firstplaces = new int[players.length];
-		for(int i=0;i<players.length;i++) {
-			points[i] = 0;
-		}
 		start_time = System.nanoTime();
-		game_elapsed_times = new long[num_games];
+	}
+
+	private static String[] getNames(Player p[]) {
+		String names[] = new String[p.length];
+		for(int i=0;i<p.length;i++)
+			names[i] = p[i].getName();
+		return names;
 	}
 
 	// Display the report window
@@ -128,18 +123,15 @@ public class WarGameReport extends JDialog {
 	// sendResults is called when a game concludes
 	// results[i] is the player id of the person that got i'th in the game.
 	// game_length is how many nanoseconds the concluding game took to simulate
-	public void sendResults(ArrayList<Integer> results, long game_length) {
-		game_elapsed_times[game_num-1] = game_length;
-		// Give each player the appropriate number of points via point_values
-		for(int i=0;i<results.size();i++) {
-			points[results.get(i)] += point_values[players.length - Risk.MIN_PLAYERS][i];
-		}
-		firstplaces[results.get(0)] += 1;
-		// Except for the last game, incrememt the current game number
-		if(game_num != num_games)
-			game_num += 1;
+	// forfeit is the player id of the person who forfeited the game, or -1
+	public void sendResults(ArrayList<Integer> results, long game_length, int forfeit) {
+		standings_table.addResult(results, game_length, forfeit);
+		refresh();
+	}
 
-		// If the window is showing, refresh the panels to update accordingly
+	// Called after the standings have changed. If the window is showing,
+	// refresh the panels to update accordingly
+	public void refresh() {
 		if(displayed) {
 			center_panel.refresh();
 			standings.refresh();
@@ -181,7 +173,7 @@ public class WarGameReport extends JDialog {
 			for(int i=0;i<standings.size();i++) { pointSum += standings.get(i).points; }
 			results_writer.write("\nRatings:\n");
 			for(int i=0;i<standings.size();i++) {
-				results_writer.write((i+1) + ". " + standings.get(i).name + " - " + (standings.get(i).points * (double)points.length)/pointSum + "\n");
+				results_writer.write((i+1) + ". " + standings.get(i).name + " - " + (standings.get(i).points * (double)standings.size())/pointSum + "\n");
 			}
 			results_writer.write("\nNumber of Games Won:\n");
 			for(int i=0;i<standings.size();i++) {
@@ -212,11 +204,7 @@ public class WarGameReport extends JDialog {
 	private String generateAvgGameTimeString() {
 		DateFormat formatter = new SimpleDateFormat("mm' minutes, 'ss.SSS' seconds'");
 		formatter.setTimeZone(TimeZone.getTimeZone("GMT+0"));
-		long total = 0;			// Find the average
-		for(int i=0;i<game_elapsed_times.length;i++) {
-			total += game_elapsed_times[i];
-		}
-		long avg = total/(long)game_elapsed_times.length;
+		long avg = standings_table.getAverageGameTime();
 		Date date = new Date(avg/1000000); // convert from nanoseconds to milliseconds
 		return formatter.format(date);
 	}
@@ -304,7 +292,7 @@ public class WarGameReport extends JDialog {
 			simulating = new JLabel("Simulating game ");
 			simulating.setFont(FontMaker.makeCustomFont(simulating_label_size));
 			simulating.setForeground(Color.white);
-			game_num_label = new JLabel(game_num + "");
+			game_num_label = new JLabel(getGameNum() + "");
 			game_num_label.setFont(FontMaker.makeCustomFont(simulating_label_size));
 			game_num_label.setForeground(Color.white);
 			of_game = new JLabel(" of " + num_games);
@@ -387,7 +375,7 @@ public class WarGameReport extends JDialog {
 		
 		// Called after each game simulation (the number of games has been updated)
 		public void refresh() {
-			game_num_label.setText(game_num + "");
+			game_num_label.setText(getGameNum() + "");
 		}
 		
 		// Small panel showing how many points each player gets for placing in a certain position
@@ -401,7 +389,7 @@ public class WarGameReport extends JDialog {
 				heading.setForeground(Color.white);
 				heading.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, Color.white));	// White line on bottom
 				add(heading);
-				for(int i=0;i<players.length;i++) {
+				for(int i=0;i<standings_table.getNumPlayers();i++) {
 					String place;
 					switch(i) {
 					case 0: place = "1st"; break;
@@ -409,7 +397,7 @@ public class WarGameReport extends JDialog {
 					case 2: place = "3rd"; break;
 					default: place = (i+1) + "th"; break;
 					}
-					JLabel point_value = new JLabel(place + " - " + point_values[players.length - Risk.MIN_PLAYERS][i] + " points");
+					JLabel point_value = new JLabel(place + " - " + standings_table.getPointValue(i) + " points");
 					point_value.setFont(FontMaker.makeCustomFont(font_size));
 					point_value.setForeground(Color.white);
 					add(point_value);
@@ -419,37 +407,15 @@ public class WarGameReport extends JDialog {
 		}
 	}
 	
+	// The number of the game currently being simulated (games are numbered from 1)
+	private int getGameNum() {
+		return Math.min(standings_table.getGamesCompleted() + 1, num_games);
+	}
+
 	// Returns the current order of how players are doing in terms of points.
 	// This is used by both the standings panel and the method that writes results to a file.
-	// The i'th standing this returns is the name and points value of the player that is in i'th place.
 	private ArrayList<Standing> getStandings() {
-		ArrayList<Standing> standings = new ArrayList<Standing>();
-		boolean valid[] = new boolean[players.length];
-		for(int i=0;i<players.length;i++)
-			valid[i] = true;
-		for(int i=0;i<players.length;i++) {
-			int highest_points = -1;
-			int winner = -1;
-			for(int j=0;j<players.length;j++) {
-				if(valid[j] && points[j] > highest_points) {
-					highest_points = points[j];
-					winner = j;
-				}
-			}
-			standings.add(new Standing(players[winner].getName(), highest_points, firstplaces[winner]));
-			valid[winner] = false;
-		}
-		return standings;
-	}
-	
-	// Small helper class to store a name and points value for a player
-	private class Standing {
-		public String name;
-		public int points;
-		public int firstplace;
-		public Standing(String n, int p, int fp) {
-			name = n; points = p; firstplace = fp;
-		}
+		return standings_table.getStandings();
 	}
 	
 }
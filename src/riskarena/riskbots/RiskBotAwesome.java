@@ -13,10 +13,12 @@ package riskarena.riskbots;
  * Evaluation consists of a weighted sum of smaller scores that each evaluate an aspect
  * of the game state (see riskarena.riskbots.evaluation.evals)
  * The weights of these scores are central to the behavior of AwesomeBot.
- * If there is a weights file named "Awesome.txt" present in src/data/weights/, it will read what weights to use
- * from the last line of that file. If there is not, random weights will be chosen.
- * If "shouldLearn" is set to true, new weights are trained using TD(lambda) learning and new lines to the
- * weights file are written. For more see WeightManager.java
+ * If there are weights saved under the player's name in src/data/weights/ ("Awesome.weights", or the older
+ * text format "Awesome.txt"), it will use those. If there are not, random weights will be chosen.
+ * If "shouldLearn" is set to true, new weights are trained using TD(lambda) learning and saved.
+ * For more see WeightManager.java and WeightStore.java
+ * If "planAttacks" is set to true, attacks are chosen by an AttackPlanner, which looks for chains of
+ * attacks within the turn, instead of an AttackDecision, which only looks one attack ahead.
  * 
  * Evan Radkoff
  * 
@@ -34,11 +36,13 @@ import riskarena.RiskBot;
 import riskarena.World;
 import riskarena.riskbots.evaluation.ArmyChange;
 import riskarena.riskbots.evaluation.AttackDecision;
+import riskarena.riskbots.evaluation.AttackPlanner;
 import riskarena.riskbots.evaluation.CardIndicator;
 import riskarena.riskbots.evaluation.Evaluation;
 import riskarena.riskbots.evaluation.FortifyAfterVictoryDecision;
 import riskarena.riskbots.evaluation.FortifyArmiesDecision;
 import riskarena.riskbots.evaluation.FortifyPositionDecision;
+import riskarena.riskbots.evaluation.WeightManager;
 
 public class RiskBotAwesome implements RiskBot{
 	/*	Game related data members it's always a good idea to keep */
@@ -51,12 +55,27 @@ public class RiskBotAwesome implements RiskBot{
 	private Evaluation eval;
 	private CardIndicator card;
 	private final boolean shouldLearn = false;
+	private final boolean planAttacks = false;
+	private final int PLAN_BUDGET = 2000;	// The most states the AttackPlanner may score for each attack
+	private WeightManager weights = null;	// If not null, the weights to use and train instead of the ones from the weights file
 	
 	/*	Decision-makers	*/
 	private FortifyArmiesDecision fortifier;
 	private FortifyAfterVictoryDecision afterVictory;
 	private FortifyPositionDecision posFortifier;
 	private AttackDecision attackDecider;
+	private AttackPlanner attackPlanner;
+
+	public RiskBotAwesome() {
+	}
+
+	/*
+	 * An AwesomeBot that plays by (and trains) the given weights, such as a detached copy
+	 * given to it by a riskarena.TrainingFarm, whatever shouldLearn is set to
+	 */
+	public RiskBotAwesome(WeightManager w) {
+		weights = w;
+	}
 
 	/*
 	 * Initialize the bot, locally store the given instance of GameInfo so that we can
@@ -69,11 +88,15 @@ public class RiskBotAwesome implements RiskBot{
 		world = risk_info.getWorldInfo();
 		players = risk_info.getPlayerInfo();
 		card = new CardIndicator();
-		eval = new Evaluation(risk_info, card, shouldLearn);
+		if(weights == null)
+			eval = new Evaluation(risk_info, card, shouldLearn);
+		else
+			eval = new Evaluation(risk_info, card, weights);
 		fortifier = new FortifyArmiesDecision(risk_info, eval);
 		afterVictory = new FortifyAfterVictoryDecision(eval);
 		posFortifier = new FortifyPositionDecision(risk_info, eval);
 		attackDecider = new AttackDecision(risk_info, eval);
+		attackPlanner = new AttackPlanner(risk_info, eval, PLAN_BUDGET);
 	}
 	
 	/*
@@ -167,7 +190,8 @@ public class RiskBotAwesome implements RiskBot{
 	public void fortifyTerritory(int num_to_place) {
 		eval.refresh("fortifyTerritory() in Awesome");	// The game state has changed since last updating the evaluator
 		ArrayList< ArmyChange > choices = fortifier.decideAll(num_to_place);
-		attackDecider.initTurn();	// New attack targets are chosen when new territories are being placed
+		if(!planAttacks)
+			attackDecider.initTurn();	// New attack targets are chosen when new territories are being placed
 		for(ArmyChange choice : choices) {
 			to_game.sendInt(choice.ID());
 			to_game.sendInt(choice.amount());
@@ -180,7 +204,8 @@ public class RiskBotAwesome implements RiskBot{
 	 */
 	public void launchAttack() {
 		eval.refresh("launchAttack() in Awesome");	// Refresh the evaluation of the game state
-		for(Integer toSend : attackDecider.decide()) {
+		ArrayList<Integer> answer = planAttacks ? attackPlanner.decide() : attackDecider.decide();
+		for(Integer toSend : answer) {
 			to_game.sendInt(toSend);
 		}
 	}
@@ -191,7 +216,8 @@ public class RiskBotAwesome implements RiskBot{
 	 */
 	public void fortifyAfterVictory(int attacker, int defender, int min, int max) {
 		// Consider attacking again with the victorious army
-		attackDecider.notifyOfVictory(attacker, defender);
+		if(!planAttacks)
+			attackDecider.notifyOfVictory(attacker, defender);
 		card.setVictory(true);
 		to_game.sendInt( afterVictory.decide(attacker, defender, min, max) );
 	}
@@ -0,0 +1,586 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.riskbots;
+/*
+ * A RiskBot that plans its turns with Monte Carlo tree search. Where to place its armies, and
+ * which battle to fight next (or whether to stop attacking), are chosen by playing the game out
+ * thousands of times on a SimState and keeping statistics of how well each choice did (UCT).
+ * A choice in the tree is a whole battle: attacking until the territory is captured or there
+ * is nothing left to attack with. The rest of each playout, the rest of the turn and a couple
+ * of rounds of everyone's turns, is played by a quick greedy policy and then scored by each
+ * player's share of the income and armies. The dice aren't part of the tree; each playout rolls
+ * them anew from the same choices ("open loop").
+ *
+ * The nodes of each tree live in arrays allocated once (POOL_SIZE of them), so searching makes no
+ * garbage. There is one tree per thread of the common ForkJoinPool, each searched on its own
+ * (root parallelism), and the root statistics of all of them are added up for the decision.
+ * Claiming, the initial placement, occupying and fortifying use simple rules rather than search.
+ *
+ * Evan Radkoff
+ */
+
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import riskarena.BoardView;
+import riskarena.Bot;
+import riskarena.GameInfo;
+import riskarena.OutputFormat;
+import riskarena.Risk;
+import riskarena.RiskBot;
+import riskarena.World;
+import riskarena.sim.SimState;
+
+public class RiskBotMCTS implements RiskBot {
+	/*	Game related data members it's always a good idea to keep */
+	private Bot.RiskListener to_game;		// Send game time decisions using to_game.sendInt(int/Integer)
+	private GameInfo risk_info;
+	private World world = null;				// Holds adjacency information
+
+	/* Data members specific to this particular RiskBot */
+	private final long THINK_TIME = 200;		// Milliseconds each search may take, well within the Bot time limit
+	private final int POOL_SIZE = 1 << 15;		// Nodes in each tree
+	private final int PLAYOUT_ROUNDS = 2;		// Rounds of turns played out after the searched one, before scoring
+	private final double EXPLORATION = 0.2;	// The UCT exploration constant. Scores are shares, so differences are small.
+	private final int STOP = 0;					// The action of ending the attack phase (see Tree for the others)
+
+	private SimState root;		// The game as it is now
+	private Tree trees[];
+	private int totals[];		// Scratch space for adding up the root statistics of the trees
+	private Random gen;
+	private boolean my_turn = false;
+	private int territories_at_turn_start = 0;
+	private int battle_from = -1, battle_to = -1;	// The battle chosen by the last search, fought until it's over
+
+	private long playouts = 0, searches = 0, search_nanos = 0;	// Totals for the playouts/second report
+
+	/*
+	 * Initialize the bot, locally store the given instance of GameInfo so that we can
+	 * get board info any time we want, as well as a RiskListener so we can communicate our answers.
+	 * @see riskarena.RiskBot#init(riskarena.GameInfo, riskarena.Bot.RiskListener)
+	 */
+	public void init(GameInfo gi, Bot.RiskListener rl) {
+		risk_info = gi;
+		to_game = rl;
+		world = risk_info.getWorldInfo();
+		gen = new Random((new Date()).getTime());
+		root = new SimState(risk_info);
+		trees = new Tree[Math.max(1, ForkJoinPool.getCommonPoolParallelism())];
+		for(int i=0;i<trees.length;i++)
+			trees[i] = new Tree(gen.nextLong());
+		totals = new int[1 + root.getNumCountries() * (root.getNumCountries() + 1)];
+	}
+
+	/*
+	 * Turn-based initialization
+	 * @see riskarena.RiskBot#initTurn()
+	 */
+	public void initTurn() {
+		my_turn = true;
+		battle_from = -1;
+		root.load(risk_info);
+		territories_at_turn_start = root.getTerritoryCount(risk_info.me());
+	}
+
+	public void endTurn() {
+		my_turn = false;
+	}
+
+	/*
+	 * Reports how fast the searches were
+	 * @see riskarena.RiskBot#endGame(int)
+	 */
+	public void endGame(int place) {
+		if(searches > 0)
+			Risk.sayOutput(risk_info.getMyName() + " ran " + playouts + " playouts in " + searches + " searches (" + (long)getPlayoutsPerSecond() + " playouts/s).", OutputFormat.BLUE);
+	}
+
+	// The number of playouts per second of searching, over every search so far
+	public double getPlayoutsPerSecond() {
+		return search_nanos == 0 ? 0.0 : playouts * 1e9 / search_nanos;
+	}
+
+	/*
+	 * Claim the unclaimed territory of the continent that is most mine and least someone else's
+	 * @see riskarena.RiskBot#claimTerritory()
+	 */
+	public void claimTerritory() {
+		root.load(risk_info);
+		int me = risk_info.me();
+		int best = -1;
+		double best_score = 0.0;
+		for(int id=0;id<root.getNumCountries();id++) {
+			if(root.getOwner(id) != -1)
+				continue;
+			int cont = root.getCont(id), size = root.getContinentSize(cont);
+			int taken = 0;
+			for(int k=0;k<root.getNumCountries();k++) {
+				if(root.getCont(k) == cont && root.getOwner(k) != -1)
+					taken++;
+			}
+			int mine = root.getContinentCount(cont, me);
+			double score = (mine + 1.0 - (taken - mine)) / size;
+			if(best == -1 || score > best_score) {
+				best = id;
+				best_score = score;
+			}
+		}
+		to_game.sendInt(best);
+	}
+
+	/*
+	 * During a turn, search for where to place the armies. Before the game starts, place a few at a
+	 * time on the frontier of the continent that is most mine.
+	 * @see riskarena.RiskBot#fortifyTerritory(int)
+	 */
+	public void fortifyTerritory(int num_to_place) {
+		if(my_turn) {
+			int action = search(num_to_place);
+			to_game.sendInt(action - 1);
+			to_game.sendInt(num_to_place);
+			return;
+		}
+		root.load(risk_info);
+		int me = risk_info.me();
+		int best = -1;
+		double best_score = 0.0;
+		for(int id=0;id<root.getNumCountries();id++) {
+			if(root.getOwner(id) != me)
+				continue;
+			int cont = root.getCont(id);
+			double score = (double)root.getContinentCount(cont, me) / root.getContinentSize(cont) - 0.01 * root.getArmies(id);
+			if(!root.isFrontier(id))
+				score -= 1.0;
+			if(best == -1 || score > best_score) {
+				best = id;
+				best_score = score;
+			}
+		}
+		to_game.sendInt(best);
+		to_game.sendInt(Math.min(num_to_place, 3));
+	}
+
+	/*
+	 * Keep fighting the battle the last search chose until it's over, then search for the next one
+	 * @see riskarena.RiskBot#launchAttack()
+	 */
+	public void launchAttack() {
+		BoardView board = risk_info.getBoardView();
+		int me = risk_info.me();
+		if(battle_from == -1 || board.getOwner(battle_to) == me || board.getArmies(battle_from) <= 1) {
+			battle_from = -1;
+			int action = search(0);
+			if(action == STOP) {
+				to_game.sendInt(-1);
+				return;
+			}
+			int n = root.getNumCountries();
+			battle_from = (action - 1 - n) / n;
+			battle_to = (action - 1 - n) % n;
+		}
+		to_game.sendInt(battle_from);
+		to_game.sendInt(battle_to);
+		to_game.sendInt(Math.min(board.getArmies(battle_from) - 1, 3));	// Attack with all you've got!
+	}
+
+	/*
+	 * Move everything in, unless the territory attacked from still borders an enemy
+	 * @see riskarena.RiskBot#fortifyAfterVictory(int, int, int, int)
+	 */
+	public void fortifyAfterVictory(int attacker, int defender, int min, int max) {
+		root.load(risk_info);
+		to_game.sendInt(occupation(root.isFrontier(attacker), min, max));
+	}
+
+	// How many armies to move into a captured territory, given whether the one attacked from borders an enemy
+	private static int occupation(boolean from_exposed, int min, int max) {
+		return from_exposed ? Math.max(min, (max + 1) / 2) : max;
+	}
+
+	/*
+	 * Always turn in a set when given the choice
+	 * @see riskarena.RiskBot#chooseToTurnInSet()
+	 */
+	public void chooseToTurnInSet() {
+		to_game.sendInt(1);
+	}
+
+	/*
+	 * The sets without wildcards come first, so choose the first one
+	 * @see riskarena.RiskBot#chooseCardSet(int[][])
+	 */
+	public void chooseCardSet(int[][] possible_sets) {
+		to_game.sendInt(0);
+	}
+
+	/*
+	 * Move the armies of the biggest territory away from the front to a neighbor, preferably one on the front
+	 * @see riskarena.RiskBot#fortifyPosition()
+	 */
+	public void fortifyPosition() {
+		root.load(risk_info);
+		int me = risk_info.me();
+		int from = -1;
+		for(int id=0;id<root.getNumCountries();id++) {
+			if(root.getOwner(id) == me && root.getArmies(id) > 1 && world.getDegree(id) > 0 && !root.isFrontier(id)
+					&& (from == -1 || root.getArmies(id) > root.getArmies(from)))
+				from = id;
+		}
+		if(from == -1) {
+			to_game.sendInt(-1);
+			return;
+		}
+		int to = world.getAdjacency(from, 0);
+		for(int k=0;k<world.getDegree(from);k++) {
+			if(root.isFrontier(world.getAdjacency(from, k))) {
+				to = world.getAdjacency(from, k);
+				break;
+			}
+		}
+		to_game.sendInt(from);
+		to_game.sendInt(to);
+		to_game.sendInt(root.getArmies(from) - 1);
+	}
+
+	/*
+	 * Searches the game as it is now, in which it's this player's turn, for THINK_TIME milliseconds.
+	 * If to_place is more than 0 the first choice is where to place that many armies, otherwise it's
+	 * the next battle to fight. Returns the chosen action, the one visited the most over all the trees.
+	 */
+	private int search(final int to_place) {
+		root.load(risk_info);
+		root.setConquered(root.getTerritoryCount(risk_info.me()) > territories_at_turn_start);
+		long start = System.nanoTime();
+		final long deadline = start + THINK_TIME * 1000000;
+		long before = 0;
+		for(int i=0;i<trees.length;i++)
+			before += trees[i].playouts;
+		if(trees.length == 1) {
+			trees[0].search(deadline, to_place);
+		} else {
+			final RecursiveAction tasks[] = new RecursiveAction[trees.length];
+			for(int i=0;i<trees.length;i++) {
+				final Tree tree = trees[i];
+				tasks[i] = new RecursiveAction() {
+					protected void compute() {
+						tree.search(deadline, to_place);
+					}
+				};
+			}
+			ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		}
+		search_nanos += System.nanoTime() - start;
+		searches++;
+
+		// Add up the visits of each action at the roots, then clear them again
+		int best = -1;
+		for(int i=0;i<trees.length;i++) {
+			Tree t = trees[i];
+			playouts += t.playouts;
+			for(int c=t.first_child[0]; c!=-1; c=t.next_sibling[c])
+				totals[t.actions[c]] += t.visits[c];
+		}
+		playouts -= before;
+		for(int i=0;i<trees.length;i++) {
+			Tree t = trees[i];
+			for(int c=t.first_child[0]; c!=-1; c=t.next_sibling[c]) {
+				if(best == -1 || totals[t.actions[c]] > totals[best])
+					best = t.actions[c];
+			}
+		}
+		for(int i=0;i<trees.length;i++) {
+			for(int c=trees[i].first_child[0]; c!=-1; c=trees[i].next_sibling[c])
+				totals[trees[i].actions[c]] = 0;
+		}
+		if(best == -1)	// Not even one playout, which can only happen if the search is starved of time
+			best = to_place > 0 ? 1 + firstOwned() : STOP;
+		return best;
+	}
+
+	private int firstOwned() {
+		for(int id=0;id<root.getNumCountries();id++) {
+			if(root.getOwner(id) == risk_info.me())
+				return id;
+		}
+		return 0;
+	}
+
+	/*
+	 * One search tree, with its own state to play out and its own random numbers so that trees can be
+	 * searched at the same time. Actions are numbered: STOP, then 1+id for placing on territory id,
+	 * then 1+n+from*n+to for a battle from territory 'from' to territory 'to' (n territories).
+	 * Node i has taken actions[i] from its parent, has been visited visits[i] times, and the scores of
+	 * those playouts add up to values[i]. Its children are first_child[i] and their next_siblings.
+	 */
+	private class Tree {
+		int actions[] = new int[POOL_SIZE], visits[] = new int[POOL_SIZE];
+		int first_child[] = new int[POOL_SIZE], next_sibling[] = new int[POOL_SIZE];
+		double values[] = new double[POOL_SIZE];
+		int size = 0;
+		int path[] = new int[256];		// The nodes visited by the current playout
+		long playouts = 0;
+
+		private SimState state = new SimState(root);
+		private Random rand;
+		private int n;				// The number of territories
+		private int legal[], seen[];	// The actions that can be taken, and when each was last seen (see select())
+		private int stamp = 0;
+		private int sets[] = new int[SimState.MAX_SETS * 3];
+
+		Tree(long seed) {
+			rand = new Random(seed);
+			n = root.getNumCountries();
+			legal = new int[1 + n * (n + 1)];
+			seen = new int[legal.length];
+		}
+
+		// Runs playouts from root until the deadline
+		void search(long deadline, int to_place) {
+			size = 1;
+			actions[0] = -1;
+			visits[0] = 0;
+			values[0] = 0.0;
+			first_child[0] = -1;
+			do {
+				playout(to_place);
+				playouts++;
+			} while(System.nanoTime() < deadline);
+		}
+
+		/*
+		 * Goes down the tree choosing actions by UCT until it reaches a node that hasn't been played out,
+		 * adding that node, then plays the rest of the game out by policy and adds its score to every
+		 * node on the way
+		 */
+		private void playout(int to_place) {
+			state.copyFrom(root);
+			state.determinize(rand);
+			int me = state.getCurrentPlayer();
+			int node = 0, depth = 0;
+			path[depth++] = 0;
+			boolean placing = to_place > 0, stopped = false;
+			while(!state.isOver()) {
+				int num_legal = legalActions(placing);
+				if(num_legal == 0)
+					break;
+				int child = select(node, num_legal);
+				int action;
+				if(child == -1) {		// The tree is full
+					action = legal[rand.nextInt(num_legal)];
+				} else {
+					action = actions[child];
+					node = child;
+					path[depth++] = child;
+				}
+				if(placing) {
+					state.place(action - 1, to_place);
+					placing = false;
+				} else if(action == STOP) {
+					stopped = true;
+					break;
+				} else {
+					battle((action - 1 - n) / n, (action - 1 - n) % n);
+				}
+				if(child == -1 || visits[child] == 0 || depth == path.length)
+					break;
+			}
+			if(!stopped && !state.isOver())
+				attackPhase();
+			if(!state.isOver())
+				finishTurn();
+			for(int rounds=0; rounds<PLAYOUT_ROUNDS && !state.isOver() && !state.isOut(me); ) {
+				playTurn();
+				if(state.getCurrentPlayer() == me)
+					rounds++;
+			}
+			double value = score(me);
+			for(int i=0;i<depth;i++) {
+				visits[path[i]]++;
+				values[path[i]] += value;
+			}
+		}
+
+		// Fills legal with the actions the current player can take, and returns how many there are
+		private int legalActions(boolean placing) {
+			int me = state.getCurrentPlayer(), num = 0;
+			if(placing) {
+				for(int id=0;id<n;id++) {
+					if(state.getOwner(id) == me && state.isFrontier(id))
+						legal[num++] = 1 + id;
+				}
+				return num;
+			}
+			legal[num++] = STOP;
+			for(int from=0;from<n;from++) {
+				if(state.getOwner(from) != me || state.getArmies(from) <= 1)
+					continue;
+				for(int k=0;k<world.getDegree(from);k++) {
+					int to = world.getAdjacency(from, k);
+					// Battles that are very likely lost aren't worth searching
+					if(state.getOwner(to) != me && 2 * (state.getArmies(from) - 1) >= state.getArmies(to))
+						legal[num++] = 1 + n + from * n + to;
+				}
+			}
+			return num;
+		}
+
+		/*
+		 * Returns the child of node to go to: a new one for an action that hasn't been tried yet if
+		 * there is one (and room for it), otherwise the legal one with the highest UCT value. Returns -1
+		 * if there is none. seen[a] is stamp if action a is legal, and -stamp once a child for it is found.
+		 */
+		private int select(int node, int num_legal) {
+			stamp++;
+			for(int i=0;i<num_legal;i++)
+				seen[legal[i]] = stamp;
+			int best = -1, tried = 0;
+			double best_value = 0.0, log_visits = Math.log(visits[node] + 1);
+			for(int c=first_child[node]; c!=-1; c=next_sibling[c]) {
+				if(seen[actions[c]] != stamp)
+					continue;
+				seen[actions[c]] = -stamp;
+				tried++;
+				double uct = values[c] / visits[c] + EXPLORATION * Math.sqrt(log_visits / visits[c]);
+				if(best == -1 || uct > best_value) {
+					best = c;
+					best_value = uct;
+				}
+			}
+			if(tried < num_legal && size < POOL_SIZE) {
+				int start = rand.nextInt(num_legal);
+				for(int i=0;i<num_legal;i++) {
+					int action = legal[(start + i) % num_legal];
+					if(seen[action] == stamp) {
+						int child = size++;
+						actions[child] = action;
+						visits[child] = 0;
+						values[child] = 0.0;
+						first_child[child] = -1;
+						next_sibling[child] = first_child[node];
+						first_child[node] = child;
+						return child;
+					}
+				}
+			}
+			return best;
+		}
+
+		/***** The playout policy *****/
+
+		// Plays the current player's whole turn by policy
+		private void playTurn() {
+			int armies = 0;
+			if(state.getNumCards(state.getCurrentPlayer()) >= 5)		// Like Game.armiesFromCards()
+				armies += turnInSet();
+			if(state.possibleSets(sets) > 0)
+				armies += turnInSet();
+			armies += state.armiesFromContinents() + state.armiesFromTerritories();
+			reinforce(armies);
+			attackPhase();
+			if(!state.isOver())
+				finishTurn();
+		}
+
+		private int turnInSet() {
+			if(state.possibleSets(sets) == 0)
+				return 0;
+			return state.turnInSet(sets[0], sets[1], sets[2]);
+		}
+
+		// Places all the armies on the territory with the best odds against a neighbor
+		private void reinforce(int armies) {
+			int me = state.getCurrentPlayer(), best = -1, best_odds = 0;
+			for(int id=0;id<n;id++) {
+				if(state.getOwner(id) != me)
+					continue;
+				for(int k=0;k<world.getDegree(id);k++) {
+					int to = world.getAdjacency(id, k);
+					int odds = state.getArmies(id) - state.getArmies(to);
+					if(state.getOwner(to) != me && (best == -1 || odds > best_odds || (odds == best_odds && rand.nextBoolean()))) {
+						best = id;
+						best_odds = odds;
+					}
+				}
+			}
+			if(best != -1)
+				state.place(best, armies);
+		}
+
+		// Fights the battle with the most armies to spare, while there are any that outnumber the defender
+		private void attackPhase() {
+			int me = state.getCurrentPlayer();
+			while(!state.isOver()) {
+				int from = -1, to = -1, best_odds = 0;
+				for(int id=0;id<n;id++) {
+					if(state.getOwner(id) != me || state.getArmies(id) <= 2)
+						continue;
+					for(int k=0;k<world.getDegree(id);k++) {
+						int t = world.getAdjacency(id, k);
+						int odds = state.getArmies(id) - 1 - state.getArmies(t);
+						if(state.getOwner(t) != me && odds > best_odds) {
+							from = id;
+							to = t;
+							best_odds = odds;
+						}
+					}
+				}
+				if(from == -1)
+					return;
+				battle(from, to);
+			}
+		}
+
+		// Attacks from 'from' to 'to' with as many dice as possible until one side is out of armies
+		private void battle(int from, int to) {
+			while(state.getArmies(from) > 1) {
+				int dice = Math.min(state.getArmies(from) - 1, 3);
+				if(state.roll(from, to, dice, rand)) {
+					int loser = state.capture(to);
+					if(loser != -1 && !state.isOver() && state.getNumCards(state.getCurrentPlayer()) >= 6) {
+						int armies = turnInSet();		// Like Game.attack(), turn in sets down to 4 cards
+						while(state.getNumCards(state.getCurrentPlayer()) > 4)
+							armies += turnInSet();
+						state.place(to, armies);
+					}
+					int max = state.getArmies(from) - 1;
+					state.move(from, to, max > dice ? occupation(state.isFrontier(from), dice, max) : dice);
+					return;
+				}
+			}
+		}
+
+		// Draws a card if a territory was captured and passes the turn on. Fortifying is skipped.
+		private void finishTurn() {
+			if(state.hasConquered())
+				state.drawCard(rand);
+			state.advanceTurn();
+		}
+
+		// Scores the game for player me: their shares of the armies that will be placed next turn and of those on the board
+		private double score(int me) {
+			if(state.isOut(me))
+				return 0.0;
+			if(state.isOver())
+				return 1.0;
+			double income = 0.0, armies = 0.0;
+			for(int p=0;p<state.getNumPlayers();p++) {
+				if(!state.isOut(p)) {
+					income += state.armiesFromTerritories(p) + state.armiesFromContinents(p);
+					armies += state.getArmyCount(p);
+				}
+			}
+			return 0.5 * (state.armiesFromTerritories(me) + state.armiesFromContinents(me)) / income + 0.5 * state.getArmyCount(me) / armies;
+		}
+	}
+}
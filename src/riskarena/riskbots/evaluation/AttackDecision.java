@@ -25,14 +25,14 @@ import riskarena.OutputFormat;
 import riskarena.Risk;
 import riskarena.World;
 
-import com.sun.tools.javac.util.Pair;
-
 public class AttackDecision {
 	private GameInfo game;
 	private World world;
 	private CountryInfo[] countries;
 	private Evaluation eval;
 	private BattleOracle oracle;
+	private OccupationChange winChange = new OccupationChange(-1, -1, 0, 0);	// Reused for every attack considered
+	private MoveBuffer lossChange = new MoveBuffer();
 	private PriorityQueue< AttackPlans > attacks;			// A queue of intended attacks, reset each turn
 	private Integer previousTo;		// Necessary in order to consider attacking from a newly conquered territory
 	private Integer previousFrom;
@@ -113,42 +113,35 @@ public class AttackDecision {
 		//debug = true;
 		if(countries[id].getPlayer() != game.me() || countries[id].getArmies() <= 1)
 			return;
-		int adj[] = world.getAdjacencies(id);
 		double score_before = eval.score();
 		if(debug)
 			Risk.sayOutput("Original score: " + Utilities.printDouble(score_before), OutputFormat.BLUE, true);
-		for(int a=0; a<adj.length; a++) {
-			if(countries[adj[a]].getPlayer() != game.me() && countries[adj[a]].getArmies() > 0) {
+		for(int a=0; a<world.getDegree(id); a++) {
+			int to = world.getAdjacency(id, a);
+			if(countries[to].getPlayer() != game.me() && countries[to].getArmies() > 0) {
 				double score;
 				int numAttacking = countries[id].getArmies()-1;
-				int numDefending = countries[adj[a]].getArmies();
+				int numDefending = countries[to].getArmies();
 				if(debug)
-					Risk.sayOutput("Considering " + countries[id].getName() + " -> " + countries[adj[a]].getName() + " with " + numAttacking + " armies.", OutputFormat.BLUE, true);
+					Risk.sayOutput("Considering " + countries[id].getName() + " -> " + countries[to].getName() + " with " + numAttacking + " armies.", OutputFormat.BLUE, true);
 				if(countries[id].getArmies() <= 1)
 					return;
-				if(numAttacking > oracle.maxPredictionAbility())
-					score = Double.MAX_VALUE;
-				else if(numDefending > oracle.maxPredictionAbility())
-					return;
-				else {
-					Pair<Double,Integer> win = oracle.predictWin(numAttacking, numDefending);
-					Pair<Double,Integer> loss = oracle.predictLoss(numAttacking, numDefending);
-					OccupationChange winChange = new OccupationChange(id, adj[a], numAttacking - win.snd, numDefending);
-					ArrayList<ArmyChange> lossChange = new ArrayList<ArmyChange>();
-					lossChange.add( new ArmyChange(id, -1 * numAttacking) );
-					lossChange.add( new ArmyChange(adj[a], -1 * (numDefending - loss.snd)) );
-					double winScore = eval.score(winChange), lossScore = eval.score(lossChange);
-					score = win.fst * winScore + loss.fst * lossScore;
-					score += Math.abs(score) * bonusAggressiveness(countries[id].getArmies(), win.fst);
-					if(debug)
-						Risk.sayOutput(win.fst + " " + Utilities.printDouble(winScore) + " " + loss.fst + " " + Utilities.printDouble(lossScore), OutputFormat.QUESTION, true);
-				}
+				double win = oracle.winProbability(numAttacking, numDefending), loss = 1.0 - win;
+				winChange.set(id, to, numAttacking - oracle.survivorsOnWin(numAttacking, numDefending), numDefending);
+				lossChange.clear();
+				lossChange.remove(id, numAttacking);
+				lossChange.remove(to, numDefending - oracle.defendersOnLoss(numAttacking, numDefending));
+				double winScore = eval.score(winChange), lossScore = eval.score(lossChange);
+				score = win * winScore + loss * lossScore;
+				score += Math.abs(score) * bonusAggressiveness(countries[id].getArmies(), win);
+				if(debug)
+					Risk.sayOutput(win + " " + Utilities.printDouble(winScore) + " " + loss + " " + Utilities.printDouble(lossScore), OutputFormat.QUESTION, true);
 				if(debug)
 					Risk.sayOutput("Delta: "+ Utilities.printDouble((score - score_before) / Math.abs(score_before)), OutputFormat.BLUE, true);
 				if( (score - score_before) / Math.abs(score_before) > delta_threshold) {
-					attacks.add( new AttackPlans((score - score_before), id, adj[a]) );
+					attacks.add( new AttackPlans((score - score_before), id, to) );
 					if(debug)
-						Risk.sayOutput(countries[id].getName() + " -> " + countries[adj[a]].getName() + " TARGET SET\n", OutputFormat.BLUE, true);
+						Risk.sayOutput(countries[id].getName() + " -> " + countries[to].getName() + " TARGET SET\n", OutputFormat.BLUE, true);
 				}
 			}
 		}
@@ -157,7 +150,7 @@ public class AttackDecision {
 	/*
 	 * To encourage the use of very large armies, some score is added depending on the size and probability of victory
 	 */
-	private double bonusAggressiveness(int armies, Double prob) {
+	static double bonusAggressiveness(int armies, double prob) {
 		if(Math.abs(prob - 1.00) < 0.0000001 && armies > 40)
 			return 0.8;
 		else if(Math.abs(prob - 1.00) < 0.0001 && armies > 20)
@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.riskbots.evaluation;
+
+/*
+ * AttackPlanner is an alternative to AttackDecision that looks further than one attack ahead.
+ * It searches chains of attacks within the turn (eg taking the last two territories of a
+ * continent) with a beam search: at each depth only the BEAM_WIDTH most promising chains are
+ * extended by another attack. A chain is rated by its expected score, where each attack is
+ * either won, leaving the expected survivors (which move into the conquered territory), or
+ * lost, ending the chain. Probabilities and survivors come from BattleOracle.
+ *
+ * Chains are played out on the Evaluation's GameStats and taken back, and the scores of the
+ * resulting states are cached by the board's key, so a state reached by two chains (A then B,
+ * or B then A) is only scored once. Planning stops once it has scored its budget of states,
+ * keeping the best chain found so far. The budget is counted in states rather than time so that
+ * a plan doesn't depend on how fast the machine is, and seeded games play out the same.
+ *
+ * The first attack of the best chain is launched if the chain improves on not attacking by
+ * enough. The plan is redone before every roll, since the dice change it.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import riskarena.GameInfo;
+import riskarena.World;
+
+public class AttackPlanner {
+	private static final int MAX_DEPTH = 4;		// The longest chain of attacks planned
+	private static final int BEAM_WIDTH = 6;	// The number of chains kept at each depth
+	private static final int CACHE_SIZE = 1 << 12;
+
+	private GameInfo game;
+	private World world;
+	private Evaluation eval;
+	private GameStats stats;
+	private BattleOracle oracle;
+	private int budget;		// The most new states each plan may score
+
+	// If this is higher the player is move conservative, if lower they're more aggressive
+	private double delta_threshold = 0.35;
+
+	private Chain beam[], next[];	// The chains being extended and the best extensions of them
+	private int beamSize, nextSize;
+	private Chain best = new Chain();	// The best chain found by the current plan
+	private OccupationChange winChange = new OccupationChange(-1, -1, 0, 0);	// Reused for every attack considered
+	private MoveBuffer moves = new MoveBuffer();
+
+	// The cache of scores: keys[i] and values[i] are only in use if stamps[i] is the current stamp
+	private long keys[] = new long[CACHE_SIZE];
+	private double values[] = new double[CACHE_SIZE];
+	private int stamps[] = new int[CACHE_SIZE];
+	private int stamp = 0;
+
+	private long plans = 0, states = 0, hits = 0;	// Totals for getStats()
+
+	public AttackPlanner(GameInfo _game, Evaluation _eval, int budget_states) {
+		game = _game;
+		world = game.getWorldInfo();
+		eval = _eval;
+		stats = eval.getStats();
+		oracle = new BattleOracle();
+		budget = budget_states;
+		beam = new Chain[BEAM_WIDTH];
+		next = new Chain[BEAM_WIDTH];
+		for(int i=0; i<BEAM_WIDTH; i++) {
+			beam[i] = new Chain();
+			next[i] = new Chain();
+		}
+	}
+
+	/*
+	 * Provides answers to RiskBot.launchAttack(): the territory to attack from, the territory to
+	 * attack and the number of dice, or just -1 to stop attacking. The Evaluation should have been
+	 * refreshed since the board last changed.
+	 */
+	public ArrayList<Integer> decide() {
+		ArrayList<Integer> answer = new ArrayList<Integer>();
+		if(!plan()) {
+			answer.add(-1);
+			return answer;
+		}
+		answer.add(best.from[0]);
+		answer.add(best.to[0]);
+		answer.add(Math.min(stats.getArmies(best.from[0]) - 1, 3));	// Attack with all you've got!
+		return answer;
+	}
+
+	/*
+	 * Fills in "best" with the best chain of attacks. Returns false if no chain is better than not attacking.
+	 */
+	private boolean plan() {
+		long limit = states + budget;
+		plans++;
+		if(++stamp == 0)	// Empties the cache
+			Arrays.fill(stamps, 0);
+		double before = eval.score();
+		best.length = 0;
+		best.value = before;
+		beam[0].length = 0;
+		beam[0].probability = 1.0;
+		beam[0].lost_value = 0.0;
+		beamSize = 1;
+
+		for(int depth=0; depth<MAX_DEPTH && beamSize > 0; depth++) {
+			nextSize = 0;
+			for(int b=0; b<beamSize && states < limit; b++) {
+				int mark = stats.mark();
+				playOut(beam[b]);
+				extend(beam[b]);
+				stats.undo(mark);
+			}
+			for(int n=0; n<nextSize; n++) {
+				if(next[n].value > best.value)
+					best.copyFrom(next[n]);
+			}
+			Chain swap[] = beam;
+			beam = next;
+			next = swap;
+			beamSize = nextSize;
+		}
+		if(best.length == 0)
+			return false;
+		return (best.value - before) / Math.abs(before) > delta_threshold;
+	}
+
+	/*
+	 * Applies to stats every attack of the chain, each won with the expected survivors moving in
+	 */
+	private void playOut(Chain chain) {
+		for(int k=0; k<chain.length; k++) {
+			int from = chain.from[k], to = chain.to[k];
+			int attackers = stats.getArmies(from) - 1, defenders = stats.getArmies(to);
+			int survivors = oracle.survivorsOnWin(attackers, defenders);
+			winChange.set(from, to, attackers - survivors, defenders);
+			stats.apply(winChange);
+			moves.clear();
+			moves.add(from, to, survivors);
+			stats.apply(moves);
+		}
+	}
+
+	/*
+	 * Considers every attack that could follow the chain (which has been played out on stats),
+	 * keeping the best BEAM_WIDTH extensions in "next"
+	 */
+	private void extend(Chain chain) {
+		int me = game.me();
+		for(int id=0; id<stats.getNumCountries(); id++) {
+			if(stats.getOwner(id) != me || stats.getArmies(id) <= 1)
+				continue;
+			for(int a=0; a<world.getDegree(id); a++) {
+				int to = world.getAdjacency(id, a);
+				if(stats.getOwner(to) == me || stats.getArmies(to) <= 0)
+					continue;
+				int attackers = stats.getArmies(id) - 1, defenders = stats.getArmies(to);
+				double win = oracle.winProbability(attackers, defenders), loss = 1.0 - win;
+				int casualties = attackers - oracle.survivorsOnWin(attackers, defenders);
+				int defenders_left = oracle.defendersOnLoss(attackers, defenders);
+
+				// The key of a state is combined with that of the attack, since evaluators can reward the attack itself
+				long attack = (long)id * 0x9E3779B97F4A7C15L + to;
+				long winKey = stats.keyAfter(stats.keyAfter(stats.getKey(), id, me, stats.getArmies(id) - casualties), to, me, 0) ^ attack;
+				double winScore = lookup(winKey);
+				if(Double.isNaN(winScore)) {
+					winChange.set(id, to, casualties, defenders);
+					winScore = store(winKey, eval.score(winChange));
+				}
+				long lossKey = stats.keyAfter(stats.keyAfter(stats.getKey(), id, me, 1), to, stats.getOwner(to), defenders_left) ^ ~attack;
+				double lossScore = lookup(lossKey);
+				if(Double.isNaN(lossScore)) {
+					moves.clear();
+					moves.remove(id, attackers);
+					moves.remove(to, defenders - defenders_left);
+					lossScore = store(lossKey, eval.score(moves));
+				}
+
+				double lost_value = chain.lost_value + chain.probability * loss * lossScore;
+				double value = lost_value + chain.probability * win * winScore;
+				// Like AttackDecision, favor chains that start with an overwhelming attack
+				double bonus = chain.length == 0 ? AttackDecision.bonusAggressiveness(stats.getArmies(id), win) : chain.bonus;
+				value += Math.abs(value) * bonus;
+				Chain extension = keep(value);
+				if(extension != null) {
+					extension.extend(chain, id, to);
+					extension.value = value;
+					extension.probability = chain.probability * win;
+					extension.lost_value = lost_value;
+					extension.bonus = bonus;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Returns the Chain in "next" that an extension with the given value should be written to, or null
+	 * if it's not among the best BEAM_WIDTH. next is kept sorted from best to worst.
+	 */
+	private Chain keep(double value) {
+		if(nextSize == BEAM_WIDTH && !(value > next[nextSize - 1].value))
+			return null;
+		int pos = nextSize == BEAM_WIDTH ? nextSize - 1 : nextSize++;
+		Chain free = next[pos];
+		while(pos > 0 && value > next[pos - 1].value) {
+			next[pos] = next[pos - 1];
+			pos--;
+		}
+		next[pos] = free;
+		return free;
+	}
+
+	// The cached score for key, or NaN if there isn't one
+	private double lookup(long key) {
+		int i = (int)(key ^ (key >>> 32)) & (CACHE_SIZE - 1);
+		for(int probe=0; probe<8; probe++, i = (i + 1) & (CACHE_SIZE - 1)) {
+			if(stamps[i] != stamp)
+				break;
+			if(keys[i] == key) {
+				hits++;
+				return values[i];
+			}
+		}
+		states++;
+		return Double.NaN;
+	}
+
+	// Caches the score for key (unless the neighborhood is full) and returns it
+	private double store(long key, double value) {
+		int i = (int)(key ^ (key >>> 32)) & (CACHE_SIZE - 1);
+		for(int probe=0; probe<8; probe++, i = (i + 1) & (CACHE_SIZE - 1)) {
+			if(stamps[i] != stamp) {
+				stamps[i] = stamp;
+				keys[i] = key;
+				values[i] = value;
+				break;
+			}
+		}
+		return value;
+	}
+
+	/*
+	 * Returns a description of how much planning has been done
+	 */
+	public String getStats() {
+		return plans + " plans, " + states + " states scored, " + hits + " cache hits";
+	}
+
+	// A chain of attacks, each from from[k] to to[k], along with how it's rated
+	private static class Chain {
+		int from[] = new int[MAX_DEPTH], to[] = new int[MAX_DEPTH];
+		int length = 0;
+		double value;		// The expected score
+		double probability;	// The probability every attack is won
+		double lost_value;	// The part of value from the chain being cut short by a lost attack
+		double bonus;		// The aggressiveness bonus of the first attack
+
+		// Makes this chain the given one followed by an attack from 'f' to 't'
+		void extend(Chain chain, int f, int t) {
+			System.arraycopy(chain.from, 0, from, 0, chain.length);
+			System.arraycopy(chain.to, 0, to, 0, chain.length);
+			from[chain.length] = f;
+			to[chain.length] = t;
+			length = chain.length + 1;
+		}
+
+		void copyFrom(Chain chain) {
+			System.arraycopy(chain.from, 0, from, 0, chain.length);
+			System.arraycopy(chain.to, 0, to, 0, chain.length);
+			length = chain.length;
+			value = chain.value;
+			probability = chain.probability;
+			lost_value = chain.lost_value;
+			bonus = chain.bonus;
+		}
+	}
+}
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.riskbots.evaluation;
+
+/*
+ * BattleMath works out exactly how a battle between two armies is likely to end, using
+ * the same per-roll probabilities as Dice. A battle is a Markov chain: each roll takes it
+ * from (attackers, defenders) to a state with fewer of one or both, until one side is out.
+ * "attackers" is the number of armies that can roll (not counting the one left behind),
+ * and both sides always roll as many dice as they can, like AttackDecision does.
+ *
+ * The win probability, and the expected survivors on each side, are memoized in a table
+ * of doubles. Battles of up to 255 vs 255 come from a binary file that is written the
+ * first time it's needed and memory mapped after that (see BattleTableFile), and the
+ * table is grown in memory as bigger battles are asked about. Battles too big for the
+ * table are worked out when asked, a row at a time. One BattleMath is shared by every
+ * bot in the JVM (see get()), and none of the queries allocate.
+ */
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+import riskarena.Dice;
+
+public final class BattleMath {
+	private static final BattleMath instance = new BattleMath();
+
+	private static final String TABLE_FILE = "src/data/battle_table.bin";
+	private static final int FILE_SIDE = 256;	// The file covers battles of up to 255 vs 255
+	private static final int INITIAL_SIDE = 64;	// Without the file, the table starts out covering up to 63 vs 63
+	private static final int MAX_TABLE_SIDE = 512;	// ... and it grows up to 511 vs 511
+
+	// Each cell of a table or row holds three doubles:
+	private static final int WIN = 0;	// the probability the attacker wins
+	private static final int SURVIVORS = 1;	// the sum over wins of P(win with k attackers left) * k
+	private static final int DEFENDERS = 2;	// the sum over losses of P(loss with k defenders left) * k
+	private static final int CELL = 3;
+
+	// The memoized battles. A new Table is made (and published through the volatile) whenever it grows,
+	// so readers never lock.
+	private volatile Table table;
+
+	// Per-thread scratch space for battles too big for the table and for distributions
+	private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	private BattleMath() {
+		DoubleBuffer mapped = BattleTableFile.load(TABLE_FILE, FILE_SIDE, CELL);
+		if(mapped != null)
+			table = new Table(FILE_SIDE, mapped);
+		else
+			grow(INITIAL_SIDE);
+	}
+
+	// The BattleMath shared by everyone
+	public static BattleMath get() {
+		return instance;
+	}
+
+	/*
+	 * The probability that 'attackers' armies (able to roll) defeat 'defenders' armies
+	 */
+	public double winProbability(int attackers, int defenders) {
+		return lookup(attackers, defenders, WIN);
+	}
+
+	/*
+	 * The expected number of attacking armies left, given that the attacker wins (0 if it can't)
+	 */
+	public double expectedSurvivorsOnWin(int attackers, int defenders) {
+		double win = lookup(attackers, defenders, WIN);
+		return win <= 0.0 ? 0.0 : lookup(attackers, defenders, SURVIVORS) / win;
+	}
+
+	/*
+	 * The expected number of defending armies left, given that the attacker loses (0 if it can't)
+	 */
+	public double expectedDefendersOnLoss(int attackers, int defenders) {
+		double loss = 1.0 - lookup(attackers, defenders, WIN);
+		return loss <= 0.0 ? 0.0 : lookup(attackers, defenders, DEFENDERS) / loss;
+	}
+
+	/*
+	 * Fills in the full distribution of how the battle ends. If on_win isn't null, on_win[k] is set
+	 * to the probability that the attacker wins with k armies left (0 <= k <= attackers). If on_loss
+	 * isn't null, on_loss[k] is set to the probability that the attacker is wiped out and the defender
+	 * has k armies left (0 <= k <= defenders). The arrays must be at least that long.
+	 */
+	public void distribution(int attackers, int defenders, double on_win[], double on_loss[]) {
+		checkArmies(attackers, defenders);
+		int width = defenders + 1;
+		Scratch s = scratch.get();
+		double mass[] = s.ensureMass(3 * width);
+		Arrays.fill(mass, 0, 3 * width, 0.0);
+		if(on_win != null)
+			Arrays.fill(on_win, 0, attackers + 1, 0.0);
+		if(on_loss != null)
+			Arrays.fill(on_loss, 0, defenders + 1, 0.0);
+		// Push probability mass from each state to the states one roll away. Every roll lowers
+		// the number of attackers or defenders, so going through the attackers from most to least
+		// (and the defenders from most to least within them) finishes a state before it is read.
+		// Only three rows of attackers are ever in use, so they are kept in a rolling buffer.
+		mass[(attackers % 3) * width + defenders] = 1.0;
+		for(int a=attackers; a>=1; a--) {
+			int row = (a % 3) * width;
+			if(a >= 2)
+				Arrays.fill(mass, ((a - 2) % 3) * width, ((a - 2) % 3) * width + width, 0.0);
+			int row1 = ((a - 1) % 3) * width, row2 = a >= 2 ? ((a - 2) % 3) * width : 0;
+			int ad = Math.min(3, a);
+			for(int d=defenders; d>=1; d--) {
+				double m = mass[row + d];
+				if(m == 0.0)
+					continue;
+				if(d == 1 || ad == 1) {
+					double p = defenderLosesOne(ad, Math.min(2, d));
+					mass[row + d - 1] += m * p;
+					mass[row1 + d] += m * (1.0 - p);
+				} else {
+					double p2 = defenderLosesTwo(ad), a2 = attackerLosesTwo(ad);
+					mass[row + d - 2] += m * p2;
+					mass[row2 + d] += m * a2;
+					mass[row1 + d - 1] += m * (1.0 - p2 - a2);
+				}
+			}
+			if(on_win != null)
+				on_win[a] = mass[row];	// Nothing left to defend with
+		}
+		if(on_loss != null) {
+			for(int d=1; d<=defenders; d++)
+				on_loss[d] = mass[d];	// Row 0: nothing left to attack with
+		}
+	}
+
+	/*
+	 * Returns quantity x for the given battle, from the table if it fits (growing it if need be)
+	 */
+	private double lookup(int attackers, int defenders, int x) {
+		checkArmies(attackers, defenders);
+		Table t = table;
+		if(attackers >= t.side || defenders >= t.side) {
+			if(Math.max(attackers, defenders) >= MAX_TABLE_SIDE)
+				return solve(attackers, defenders)[x];
+			grow(Math.max(attackers, defenders) + 1);
+			t = table;
+		}
+		return t.cells.get((attackers * t.side + defenders) * CELL + x);
+	}
+
+	private void checkArmies(int attackers, int defenders) {
+		if(attackers < 0 || defenders < 0)
+			throw new IllegalArgumentException("BattleMath: negative army size " + attackers + " vs " + defenders);
+	}
+
+	/*
+	 * Makes the table big enough for battles of needed-1 vs needed-1
+	 */
+	private synchronized void grow(int needed) {
+		if(table != null && table.side >= needed)
+			return;
+		int n = table == null ? INITIAL_SIDE : table.side;
+		while(n < needed)
+			n *= 2;
+		n = Math.min(n, MAX_TABLE_SIDE);
+		table = new Table(n, DoubleBuffer.wrap(computeTable(n)));
+	}
+
+	/*
+	 * Works out the table of every battle of up to side-1 vs side-1
+	 */
+	static double[] computeTable(int side) {
+		double cells[] = new double[side * side * CELL];
+		for(int a=0; a<side; a++)
+			computeRow(a, side, cells, a * side * CELL, (a - 1) * side * CELL, (a - 2) * side * CELL);
+		return cells;
+	}
+
+	/*
+	 * Works out a battle too big for the table, keeping only three rows of attackers at a time.
+	 * Returns the thread's scratch cell holding the three quantities.
+	 */
+	private double[] solve(int attackers, int defenders) {
+		Scratch s = scratch.get();
+		if(s.solved_attackers == attackers && s.solved_defenders == defenders)
+			return s.solved;
+		int width = defenders + 1;
+		double rows[] = s.ensureRows(3 * width * CELL);
+		for(int a=0; a<=attackers; a++)
+			computeRow(a, width, rows, (a % 3) * width * CELL, ((a + 2) % 3) * width * CELL, ((a + 1) % 3) * width * CELL);
+		int cell = ((attackers % 3) * width + defenders) * CELL;
+		s.solved[WIN] = rows[cell + WIN];
+		s.solved[SURVIVORS] = rows[cell + SURVIVORS];
+		s.solved[DEFENDERS] = rows[cell + DEFENDERS];
+		s.solved_attackers = attackers;
+		s.solved_defenders = defenders;
+		return s.solved;
+	}
+
+	/*
+	 * Fills in the cells of 'a' attackers against 0 to width-1 defenders, starting at index cur of g.
+	 * prev1 and prev2 are where the rows for a-1 and a-2 attackers start (ignored when not needed).
+	 */
+	private static void computeRow(int a, int width, double g[], int cur, int prev1, int prev2) {
+		for(int d=0; d<width; d++) {
+			int c = cur + d * CELL;
+			if(a == 0) {		// The attacker has lost
+				g[c + WIN] = 0.0;
+				g[c + SURVIVORS] = 0.0;
+				g[c + DEFENDERS] = d;
+				continue;
+			}
+			if(d == 0) {		// The attacker has won
+				g[c + WIN] = 1.0;
+				g[c + SURVIVORS] = a;
+				g[c + DEFENDERS] = 0.0;
+				continue;
+			}
+			int ad = Math.min(3, a);
+			if(d == 1 || ad == 1) {
+				double p = defenderLosesOne(ad, Math.min(2, d));
+				int next_d = cur + (d - 1) * CELL, next_a = prev1 + d * CELL;
+				for(int x=0; x<CELL; x++)
+					g[c + x] = p * g[next_d + x] + (1.0 - p) * g[next_a + x];
+			} else {
+				double p2 = defenderLosesTwo(ad), a2 = attackerLosesTwo(ad);
+				int next_d = cur + (d - 2) * CELL, next_a = prev2 + d * CELL, next_both = prev1 + (d - 1) * CELL;
+				for(int x=0; x<CELL; x++)
+					g[c + x] = p2 * g[next_d + x] + a2 * g[next_a + x] + (1.0 - p2 - a2) * g[next_both + x];
+			}
+		}
+	}
+
+	// When only one army can be lost in a roll, the probability that it is the defender's
+	private static double defenderLosesOne(int attack_dice, int defend_dice) {
+		if(defend_dice == 2)
+			return Dice.ONE_ATTACKER_VS_TWO;
+		switch(attack_dice) {
+		case 1: return Dice.ONE_ATTACKER_VS_ONE;
+		case 2: return Dice.TWO_ATTACKERS_VS_ONE;
+		default: return Dice.THREE_ATTACKERS_VS_ONE;
+		}
+	}
+
+	// When two or three dice are rolled against two, the probability that the defender loses both armies
+	private static double defenderLosesTwo(int attack_dice) {
+		return attack_dice == 2 ? Dice.TWO_VS_TWO_DEFENDER_LOSES_TWO : Dice.THREE_VS_TWO_DEFENDER_LOSES_TWO;
+	}
+
+	// When two or three dice are rolled against two, the probability that the attacker loses both armies
+	private static double attackerLosesTwo(int attack_dice) {
+		return attack_dice == 2 ? Dice.TWO_VS_TWO_ATTACKER_LOSES_TWO : Dice.THREE_VS_TWO_ATTACKER_LOSES_TWO;
+	}
+
+	// cells.get((a*side + d)*CELL + x) is quantity x for a attackers vs d defenders, for a and d less than
+	// side. The buffer is either in memory or mapped from the file. Only absolute gets are used on it,
+	// which don't change its position, so it can be read by any number of threads.
+	private static class Table {
+		final int side;
+		final DoubleBuffer cells;
+
+		Table(int s, DoubleBuffer c) {
+			side = s;
+			cells = c;
+		}
+	}
+
+	// Buffers belonging to one thread, grown as needed
+	private static class Scratch {
+		double mass[] = new double[0];
+		double rows[] = new double[0];
+		double solved[] = new double[CELL];
+		int solved_attackers = -1, solved_defenders = -1;
+
+		double[] ensureMass(int size) {
+			if(mass.length < size)
+				mass = new double[size];
+			return mass;
+		}
+
+		double[] ensureRows(int size) {
+			if(rows.length < size)
+				rows = new double[size];
+			return rows;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.riskbots.evaluation;
+
+/*
+ * BattleTableFile stores BattleMath's table of battle outcomes in a binary file, so it
+ * is worked out once rather than by every JVM. The file is memory mapped read-only, so
+ * every bot shares the same pages and nothing is parsed. The format is:
+ *   int MAGIC, int VERSION, int side, int cell
+ *   the 8 Dice probabilities the table was worked out with (doubles)
+ *   side*side*cell doubles, in the order BattleMath keeps them
+ * all big-endian. If the file is missing, or doesn't match (eg the Dice probabilities
+ * changed), it is rewritten whole (see Utilities.writeAtomically).
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import riskarena.Dice;
+import riskarena.Risk;
+
+class BattleTableFile {
+	private static final int MAGIC = 0x52414254;	// "RABT"
+	private static final int VERSION = 1;
+	private static final double probabilities[] = {
+		Dice.ONE_ATTACKER_VS_ONE, Dice.ONE_ATTACKER_VS_TWO, Dice.TWO_ATTACKERS_VS_ONE, Dice.THREE_ATTACKERS_VS_ONE,
+		Dice.TWO_VS_TWO_DEFENDER_LOSES_TWO, Dice.TWO_VS_TWO_ATTACKER_LOSES_TWO,
+		Dice.THREE_VS_TWO_DEFENDER_LOSES_TWO, Dice.THREE_VS_TWO_ATTACKER_LOSES_TWO
+	};
+	private static final int HEADER_BYTES = 4 * 4 + probabilities.length * 8;
+
+	/*
+	 * Returns the table of the given side and cell size from the file at path, writing the file
+	 * first if it isn't usable. The cells are computed by BattleMath.computeTable. Returns null
+	 * if the file can be neither read nor written, in which case the caller should compute the table.
+	 */
+	static DoubleBuffer load(String path, int side, int cell) {
+		File file = new File(path);
+		DoubleBuffer table = map(file, side, cell);
+		if(table != null)
+			return table;
+		try {
+			write(file, side, cell, BattleMath.computeTable(side));
+		} catch(IOException e) {
+			Risk.sayError("Could not write the battle table " + path + ": " + e.getMessage(), true);
+			return null;
+		}
+		return map(file, side, cell);
+	}
+
+	// Maps the file and checks its header, returning null if it doesn't exist or doesn't match
+	private static DoubleBuffer map(File file, int side, int cell) {
+		long size = HEADER_BYTES + (long)side * side * cell * 8;
+		if(!file.isFile() || file.length() != size)
+			return null;
+		try {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+				if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != side || buffer.getInt() != cell)
+					return null;
+				for(int i=0; i<probabilities.length; i++) {
+					if(buffer.getDouble() != probabilities[i])
+						return null;
+				}
+				return buffer.asDoubleBuffer();	// Starts after the header. The mapping outlives the channel.
+			} finally {
+				raf.close();
+			}
+		} catch(IOException e) {
+			return null;
+		}
+	}
+
+	private static void write(File file, int side, int cell, double cells[]) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + cells.length * 8);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(side).putInt(cell);
+		for(int i=0; i<probabilities.length; i++)
+			buffer.putDouble(probabilities[i]);
+		buffer.asDoubleBuffer().put(cells);
+		buffer.rewind();
+		Utilities.writeAtomically(file, buffer);
+	}
+}
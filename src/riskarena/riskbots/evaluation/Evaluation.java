@@ -17,7 +17,8 @@ package riskarena.riskbots.evaluation;
  * Weights for the weighted sum are supplied by the WeightManager class.
  * To facilitate faster state evaluation, Evaluation can also return what the game state score
  * would be if a given change were to occur (instead of constructing a new game state entirely).
- * As of now these changes include two types, ArmyChange and OccupationChange.
+ * As of now these changes include two types, army movements (a MoveBuffer, or a list of ArmyChanges)
+ * and OccupationChange.
  */
 
 import java.lang.reflect.Constructor;
@@ -40,25 +41,72 @@ public class Evaluation {
 	// add to the evals array and make sure the added name (concatenated with "Evaluator") is found in riskarena.riskbots.evaluation.evals
 	private ArrayList<AbstractEvaluator> evaluators;
 	private final String EVAL_PACKAGE = "riskarena.riskbots.evaluation.evals.";
-	private final String evals[] = {"OwnContinents", "EnemyContinents", "OwnArmies", "BestEnemy", "FortifiedTerritories",
+	private static final String evals[] = {"OwnContinents", "EnemyContinents", "OwnArmies", "BestEnemy", "FortifiedTerritories",
 			"OccupiedTerritories", "FrontierDistance", "ObtainedCard", "ArmyConsolidation", "TargetCont" };
 	private final int num_evals = evals.length;
 	
 	private WeightManager weighter;
 	private final String FULL_DEBUG = "ALL";	// Sentinel value used in score() debugging
 	private CountryInterface countries[];
+	private MoveBuffer change_buffer = new MoveBuffer();	// Holds ArrayLists of ArmyChanges while they're scored
+	private double score_vector[] = new double[num_evals];	// Filled by scoreVector() and given to the WeightManager
 
 	public Evaluation(GameInfo gi, CardIndicator ci, boolean should_train) {
+		this(gi, ci, new WeightManager(gi.getMyName(), evals, should_train));
+	}
+
+	// Same as above, but weighted (and trained) by the given WeightManager rather than one of the player's own
+	public Evaluation(GameInfo gi, CardIndicator ci, WeightManager w) {
 		game = gi;
 		card = ci;
 		stats = new GameStats(game);
 		evaluators = new ArrayList<AbstractEvaluator>();
-		weighter = new WeightManager(game.getMyName(), evals, should_train);
+		weighter = w;
 		countries = game.getCountryInfo();
 		registerEvaluators();
+		stats.setEvaluators(evaluators.toArray(new AbstractEvaluator[evaluators.size()]));
 		weighter.initGame();
 	}
 
+	// A WeightManager of the weights file of the given name, with a weight for each of the evaluators
+	public static WeightManager newWeightManager(String name, boolean should_train) {
+		return new WeightManager(name, evals, should_train);
+	}
+
+	/*
+	 * Makes a fork of parent: an Evaluation with its own GameStats and evaluators, so it can score
+	 * changes on another thread at the same time as parent, but the same weights.
+	 */
+	private Evaluation(Evaluation parent) {
+		game = parent.game;
+		card = parent.card;
+		weighter = parent.weighter;
+		countries = parent.countries;
+		stats = new GameStats(parent.stats);
+		evaluators = new ArrayList<AbstractEvaluator>();
+		registerEvaluators();
+		stats.setEvaluators(evaluators.toArray(new AbstractEvaluator[evaluators.size()]));
+	}
+
+	/*
+	 * Returns a fork of this Evaluation for scoring changes on another thread. Before using it, bring
+	 * it up to date with syncWith(). Scores from a fork are exactly the ones this would give.
+	 * Forks must not be refreshed, trained or ended; that's up to the original.
+	 */
+	public Evaluation fork() {
+		return new Evaluation(this);
+	}
+
+	/*
+	 * Brings this fork up to date with the game state parent was last refreshed to.
+	 * parent must not be scoring anything at the same time.
+	 */
+	public void syncWith(Evaluation parent) {
+		stats.copyFrom(parent.stats);
+		for(int i=0; i<evaluators.size(); i++)
+			evaluators.get(i).refresh();
+	}
+
 	/*
 	 * This method constructs the evaluators according to the evals array and populates
 	 * the evaluators ArrayList. It uses dynamic class loading.
@@ -139,7 +187,8 @@ public class Evaluation {
 		if(debug && nameOfEvalToDebug == FULL_DEBUG)
 			Risk.sayOutput("Scoring state for " + game.getMyName(), OutputFormat.BLUE, true);
 		double result = 0.0;
-		for(AbstractEvaluator e : evaluators) {
+		for(int i=0; i<evaluators.size(); i++) {
+			AbstractEvaluator e = evaluators.get(i);
 			double evalScore = e.getScore();
 			if(debug) {
 				if(nameOfEvalToDebug == FULL_DEBUG)
@@ -147,7 +196,7 @@ public class Evaluation {
 				else if(nameOfEvalToDebug == e.getName())
 					Risk.sayOutput(game.getMyName() + " " + e.getName() + ": " + Utilities.printDouble(evalScore), OutputFormat.BLUE, true);
 			}
-			result += weighter.weightOf(e.getName()) * evalScore;
+			result += weighter.weightOf(i) * evalScore;
 		}
 		if(debug && nameOfEvalToDebug == FULL_DEBUG)
 			Risk.sayOutput("Final score for " + game.getMyName() + ": " + result, OutputFormat.BLUE, true);
@@ -168,15 +217,16 @@ public class Evaluation {
 	public double score(OccupationChange change, boolean debug) {
 		if(debug)
 			Risk.sayOutput("Considering " + countries[change.from()].getName() + " to " + countries[change.to()].getName(), OutputFormat.BLUE, true);
-		stats.apply(change);
+		int mark = stats.apply(change);
 		double result = 0.0;
-		for(AbstractEvaluator e : evaluators) {
+		for(int i=0; i<evaluators.size(); i++) {
+			AbstractEvaluator e = evaluators.get(i);
 			double score = e.getScore(change);
-			result += weighter.weightOf(e.getName()) * score;
+			result += weighter.weightOf(i) * score;
 			if(debug)
 				Risk.sayOutput(e.getName() + " " + Utilities.printDouble(score), OutputFormat.BLUE, true);
 		}
-		stats.unapply(change);
+		stats.undo(mark);
 		if(debug)
 			Risk.sayOutput("\tScore: " + Utilities.printDouble(result), OutputFormat.BLUE, true);
 		return result;
@@ -195,35 +245,59 @@ public class Evaluation {
 	 * the ArrayList of army changes.
 	 */
 	public double score(ArrayList<ArmyChange> changes, boolean debug) {
+		change_buffer.clear();
+		for(int i=0; i<changes.size(); i++)
+			change_buffer.place(changes.get(i).ID(), changes.get(i).amount());
+		return score(change_buffer, debug);
+	}
+
+	/*
+	 * Returns the score of the board state that would result from applying
+	 * every move in the buffer. No debugging info is printed.
+	 */
+	public double score(MoveBuffer moves) {
+		return score(moves, false);
+	}
+
+	/*
+	 * Returns the score of the board state that would result from applying
+	 * every move in the buffer.
+	 */
+	public double score(MoveBuffer moves, boolean debug) {
 		//debug = true;
-		if(changes.isEmpty())
+		if(moves.isEmpty())
 			return score();
 		if(debug)
-			Risk.sayOutput(game.getMyName() + " " + countries[changes.get(0).ID()].getName(), OutputFormat.BLUE, true);
-		stats.apply(changes);
+			Risk.sayOutput(game.getMyName() + " " + countries[moves.to(0) != -1 ? moves.to(0) : moves.from(0)].getName(), OutputFormat.BLUE, true);
+		int mark = stats.apply(moves);
 		double result = 0.0;
-		for(AbstractEvaluator e : evaluators) {
-			double score = e.getScore(changes);
-			result += weighter.weightOf(e.getName()) * score;
+		for(int i=0; i<evaluators.size(); i++) {
+			AbstractEvaluator e = evaluators.get(i);
+			double score = e.getScore(moves);
+			result += weighter.weightOf(i) * score;
 			if(debug) {
-				Risk.sayOutput(e.getName() + " " + Utilities.printDouble(score) + " * " + weighter.weightOf(e.getName()), OutputFormat.BLUE, true);
+				Risk.sayOutput(e.getName() + " " + Utilities.printDouble(score) + " * " + weighter.weightOf(i), OutputFormat.BLUE, true);
 			}
 		}
 		if(debug)
 			Risk.sayOutput("", true);
-		stats.unapply(changes);
+		stats.undo(mark);
 		return result;
 	}
 
+	// The GameStats the evaluators read from, for decisions that apply changes of their own to look further ahead
+	GameStats getStats() {
+		return stats;
+	}
+
 	/*
-	 * Returns an array of Doubles containing the game state scores for all evaluators
+	 * Returns the game state scores for all evaluators, in score_vector (which is reused)
 	 */
-	private Double[] scoreVector() {
-		Double vec[] = new Double[evals.length];
+	private double[] scoreVector() {
 		for(int i=0; i<evals.length; i++) {
-			vec[i] = evaluators.get(i).getScore();
+			score_vector[i] = evaluators.get(i).getScore();
 		}
-		return vec;
+		return score_vector;
 	}
 
 	/*
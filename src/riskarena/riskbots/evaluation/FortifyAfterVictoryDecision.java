@@ -18,6 +18,7 @@ public class FortifyAfterVictoryDecision {
 	private Evaluation eval;
 	double highest;
 	int answer = -1;
+	private MoveBuffer moves = new MoveBuffer();	// Reused for each number tried
 	
 	public FortifyAfterVictoryDecision(Evaluation _eval) {
 		eval = _eval;
@@ -42,10 +43,9 @@ public class FortifyAfterVictoryDecision {
 	}
 	
 	private void tryNum(int from, int to, int num) {
-		ArrayList<ArmyChange> changes = new ArrayList<ArmyChange>();
-		changes.add( new ArmyChange(from, -1*num) );
-		changes.add( new ArmyChange(to, num) );
-		double score = eval.score(changes);
+		moves.clear();
+		moves.add(from, to, num);
+		double score = eval.score(moves);
 		if(score > highest) {
 			highest = score;
 			answer = num;
@@ -7,16 +7,34 @@
  ******************************************************************************/
 package riskarena.riskbots.evaluation;
 
+/*
+ * FortifyArmiesDecision chooses where to place new armies, by scoring every way of putting
+ * them all on one territory, and every way of splitting them in half between two. That's
+ * quadratic in the number of territories owned, so on big boards the candidates are split
+ * into slices that are scored in parallel on the common fork/join pool. Each slice has its
+ * own fork of the Evaluation, brought up to date with it beforehand, and the slices' best
+ * candidates are reduced in the order the serial search would have tried them, so the
+ * answer is always the same as scoring everything on one thread.
+ */
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
-import riskarena.CountryInfo;
 import riskarena.GameInfo;
 import riskarena.OutputFormat;
 import riskarena.Risk;
 
 public class FortifyArmiesDecision {
+	private static final int PARALLEL_THRESHOLD = 20;	// Owning fewer territories than this, the search isn't worth splitting
 	private GameInfo game;
 	private Evaluation eval;
+	private MoveBuffer candidate = new MoveBuffer();	// Reused from call to call
+	private Evaluation forks[] = new Evaluation[0];		// forks[k] and buffers[k] are used by slice k of a parallel search
+	private MoveBuffer buffers[] = new MoveBuffer[0];
+	private int owned[] = new int[0];	// The IDs of the territories owned, in increasing order
+	private int numOwned;
 	
 	public FortifyArmiesDecision(GameInfo _game, Evaluation _eval) {
 		game = _game;
@@ -25,47 +43,145 @@ public class FortifyArmiesDecision {
 	
 	public ArrayList<ArmyChange> decideAll(int numToPlace) {
 		//eval.refresh("decideAll() in FortifyArmiesDecision");
-		ArrayList<ArmyChange> winner = null;
-		double highest = -1*Double.MAX_VALUE;
-		CountryInfo countries[] = game.getCountryInfo();
+		GameStats stats = eval.getStats();
+		int me = game.me();
+		if(owned.length < stats.getNumCountries())
+			owned = new int[stats.getNumCountries()];
+		numOwned = 0;
+		for(int i=0; i<stats.getNumCountries(); i++) {
+			if(stats.getOwner(i) == me)
+				owned[numOwned++] = i;
+		}
+		
+		Candidate best;
+		int slices = Math.min(ForkJoinPool.getCommonPoolParallelism(), numOwned);
+		if(numOwned < PARALLEL_THRESHOLD || slices < 2) {
+			best = search(eval, candidate, numToPlace, 0, numOwned);
+		} else {
+			if(forks.length < slices) {
+				Evaluation moreForks[] = Arrays.copyOf(forks, slices);
+				MoveBuffer moreBuffers[] = Arrays.copyOf(buffers, slices);
+				for(int k=forks.length; k<slices; k++) {
+					moreForks[k] = eval.fork();
+					moreBuffers[k] = new MoveBuffer();
+				}
+				forks = moreForks;
+				buffers = moreBuffers;
+			}
+			for(int k=0; k<slices; k++)
+				forks[k].syncWith(eval);
+			best = ForkJoinPool.commonPool().invoke(new Search(numToPlace, 0, slices, slices));
+		}
 		
-		for(int i=0; i<countries.length; i++) {
-			if(countries[i].getPlayer() != game.me())
-				continue;
-			ArmyChange change = new ArmyChange(i, numToPlace);
-			ArrayList<ArmyChange> changes = new ArrayList<ArmyChange>();
-			changes.add(change);
-			double score = eval.score(changes);
+		if(best == null)
+			return null;
+		ArrayList<ArmyChange> winner = new ArrayList<ArmyChange>(2);
+		if(best.second == -1) {
+			winner.add(new ArmyChange(best.first, numToPlace));
+		} else {
+			int firsthalf = Math.max(numToPlace/2, 1);
+			winner.add(new ArmyChange(best.first, firsthalf));
+			winner.add(new ArmyChange(best.second, numToPlace - firsthalf));
+		}
+		return winner;
+	}
+	
+	/*
+	 * Scores every candidate that places armies first on owned[lo] to owned[hi-1], using e, and
+	 * returns the best (the first tried, if there's a tie). Returns null if none scores above
+	 * -Double.MAX_VALUE. The best so far is kept in locals, so only the winner is allocated.
+	 */
+	private Candidate search(Evaluation e, MoveBuffer candidate, int numToPlace, int lo, int hi) {
+		double highest = -1*Double.MAX_VALUE;
+		int bestOrder = -1, bestFirst = -1, bestSecond = -1;
+		for(int x=lo; x<hi; x++) {
+			int i = owned[x];
+			candidate.clear();
+			candidate.place(i, numToPlace);
+			double score = e.score(candidate);
 			//Risk.sayOutput(countries[i].getName() + ": " + score, OutputFormat.BLUE, true);
 			if(score > highest) {
 				highest = score;
-				winner = new ArrayList<ArmyChange>(changes.size());
-				winner.add(new ArmyChange(changes.get(0)));
+				bestOrder = x * (numOwned + 1);
+				bestFirst = i;
+				bestSecond = -1;
 			}
 			
 			// Try half n half
 			int firsthalf = Math.max(numToPlace/2, 1);
 			int secondhalf = numToPlace - firsthalf;
 			if(secondhalf == 0) continue;
-			for(int j=0; j<countries.length; j++) {
-				if(countries[j].getPlayer() != game.me() || i == j) {
+			for(int y=0; y<numOwned; y++) {
+				int j = owned[y];
+				if(i == j)
 					continue;
-				}
-				ArmyChange one = new ArmyChange(i, firsthalf), two = new ArmyChange(j, secondhalf);
-				changes = new ArrayList<ArmyChange>();
-				changes.add(one);
-				changes.add(two);
-				score = eval.score(changes);
+				candidate.clear();
+				candidate.place(i, firsthalf);
+				candidate.place(j, secondhalf);
+				score = e.score(candidate);
 				//Risk.sayOutput(countries[i].getName() + ": " + score, OutputFormat.BLUE);
 				if(score > highest) {
 					highest = score;
-					winner = new ArrayList<ArmyChange>(changes.size());
-					winner.add(new ArmyChange(changes.get(0)));
-					winner.add(new ArmyChange(changes.get(1)));
+					bestOrder = x * (numOwned + 1) + y + 1;
+					bestFirst = i;
+					bestSecond = j;
 				}
 			}
 		}
-		return winner;
+		if(bestOrder == -1)
+			return null;
+		return new Candidate(highest, bestOrder, bestFirst, bestSecond);
+	}
+	
+	/*
+	 * Searches slices lo to hi-1 of the candidates (out of the given number of slices) by splitting
+	 * them in half until there's just one, which is searched with its own fork of the Evaluation.
+	 */
+	private class Search extends RecursiveTask<Candidate> {
+		private static final long serialVersionUID = 1L;
+		private int numToPlace, lo, hi, slices;
+		
+		public Search(int n, int l, int h, int s) {
+			numToPlace = n;
+			lo = l;
+			hi = h;
+			slices = s;
+		}
+		
+		protected Candidate compute() {
+			if(hi - lo == 1)
+				return search(forks[lo], buffers[lo], numToPlace, numOwned * lo / slices, numOwned * (lo + 1) / slices);
+			int mid = (lo + hi) / 2;
+			Search left = new Search(numToPlace, lo, mid, slices);
+			left.fork();
+			Candidate right = new Search(numToPlace, mid, hi, slices).compute();
+			return Candidate.better(left.join(), right);
+		}
+	}
+	
+	// A way of placing the armies: all on first, or half on first and half on second
+	private static class Candidate {
+		final double score;
+		final int order;	// The position of this candidate in the order the serial search tries them
+		final int first, second;	// second is -1 if all the armies go on first
+		
+		Candidate(double s, int o, int f, int sec) {
+			score = s;
+			order = o;
+			first = f;
+			second = sec;
+		}
+		
+		// The better of two candidates, or the one tried first if they score the same
+		static Candidate better(Candidate a, Candidate b) {
+			if(a == null)
+				return b;
+			if(b == null)
+				return a;
+			if(a.score != b.score)
+				return a.score > b.score ? a : b;
+			return a.order < b.order ? a : b;
+		}
 	}
 
 }
@@ -19,6 +19,7 @@ public class FortifyPositionDecision {
 	private World world;
 	
 	private ArrayList<Integer> answer;
+	private MoveBuffer moves = new MoveBuffer();	// Reused for each move tried
 	private double highest;
 	
 	public FortifyPositionDecision(GameInfo _game, Evaluation _eval) {
@@ -37,25 +38,24 @@ public class FortifyPositionDecision {
 		for(int i=0; i<countries.length; i++) {
 			if(countries[i].getPlayer() != game.me() || countries[i].getArmies() <= 1)
 				continue;
-			int adj[] = world.getAdjacencies(i);
-			for(int a = 0; a<adj.length; a++) {
-				if(countries[adj[a]].getPlayer() != game.me())
+			for(int a = 0; a<world.getDegree(i); a++) {
+				int to = world.getAdjacency(i, a);
+				if(countries[to].getPlayer() != game.me())
 					continue;
 				// Try moving the max and half of that
-				tryNum(i, adj[a], countries[i].getArmies() - 1);
+				tryNum(i, to, countries[i].getArmies() - 1);
 				int half = (countries[i].getArmies() - 1) / 2;
 				if(half > 0 && half != countries[i].getArmies() - 1)
-					tryNum(i, adj[a], half);
+					tryNum(i, to, half);
 			}
 		}
 		return answer;
 	}
 	
 	private void tryNum(int from, int to, int amount) {
-		ArrayList<ArmyChange> changes = new ArrayList<ArmyChange>();
-		changes.add( new ArmyChange(from, amount * -1) );
-		changes.add( new ArmyChange(to, amount) );
-		double score = eval.score(changes);
+		moves.clear();
+		moves.add(from, to, amount);
+		double score = eval.score(moves);
 		if(score > highest) {
 			highest = score;
 			answer.clear();
@@ -7,23 +7,43 @@
  ******************************************************************************/
 package riskarena.riskbots.evaluation;
 
-import java.util.ArrayList;
+/*
+ * GameStats is the board as the evaluators see it, along with the statistics many of them need
+ * (armies and territories per player, who owns each continent, ...). It is brought up to date
+ * with the real board by refresh(), and can then be changed hypothetically: apply() makes a move
+ * on it, recording what it overwrote in an undo journal, and undo() takes moves back off in
+ * reverse order, leaving it exactly as it was. The statistics are kept up to date as each
+ * territory changes, and the evaluators are told through their onApply/onUndo hooks so they can
+ * do the same. None of this allocates once the journal has grown to the deepest move.
+ */
 
-import riskarena.CountryInfo;
+import riskarena.BoardView;
 import riskarena.GameInfo;
 import riskarena.OutputFormat;
 import riskarena.PlayerInfo;
 import riskarena.Risk;
 import riskarena.World;
+import riskarena.riskbots.evaluation.evals.AbstractEvaluator;
 
 public class GameStats {
 	private GameInfo game;
-	private MutableCountryInfo countries[];	// Stored at the class level so individual calculation
-										// methods don't need to have fresh copies made.
+	private long board_version = -1;	// Version of the real board the state below was last loaded from
 	private PlayerInfo players[];
 	private World world;				// Stored at the class level and only set once because
 										// this never changes (mere adjacency info)
-	
+	private AbstractEvaluator evaluators[] = new AbstractEvaluator[0];	// Told about every change made by apply() and undo()
+
+	/*		The board: owners[i] is the player ID occupying country i (-1 if unclaimed), armies[i] its armies	*/
+	private int owners[];
+	private int armies[];
+	/*		conts[i] is the continent ID of country i. Never changes.		*/
+	private int conts[];
+	/*		Entries of (country ID, old owner, old armies) for each change made by apply(), oldest first	*/
+	private int journal[] = new int[3 * 16];
+	private int journal_size = 0;
+	/*		A hash of the whole board: the XOR of zobrist(i, owners[i], armies[i]) over every country i	*/
+	private long key;
+
 	/*
 	 * Static continent ratings that represent a score for each continent, using only
 	 * state-independent info like #territories, #borders, and the continent army bonus 
@@ -35,145 +55,304 @@ public class GameStats {
 	 *	If no one does, the int will be -1;
 	 */
 	private int continentOwnership[];
+	/*		continentCounts[c*maxPlayers + p] is the number of territories of continent c occupied by player p	*/
+	private int continentCounts[];
+	private int continentSizes[];
+	private int maxPlayers;
 	/*		Number of armies each player has on the board		*/
-	private int armies[];
+	private int armiesPerPlayer[];
 	/*		Total number of armies on the board			*/
 	private int totalArmies;
 	/*		Number of territories occupied by a given player ID		*/
 	private int occupationCounts[];
-	/*		A list of country IDs belonging to this player		*/
-	private ArrayList<Integer> myCountries;
-	/*		A list of country IDs belonging to this player that are adjacent to enemy territories	*/
-	private ArrayList<Integer> frontier;
+	/*		The country IDs belonging to this player are the first numMyCountries of myCountries.
+	 *		myIndex[i] is where country i is in it, or -1 if it isn't this player's		*/
+	private int myCountries[];
+	private int myIndex[];
+	private int numMyCountries;
+	/*		The country IDs belonging to this player that are adjacent to enemy territories, as of the last refresh	*/
+	private int frontier[];
+	private int frontierSize;
 	/*		The ID of a continent worth the player's focus in future attacks. -1 if no target	*/
 	private int target;
 	
 	public GameStats(GameInfo initial) {
 		game = initial;
 		world = game.getWorldInfo();	// Only grab this once, it never changes
-		myCountries = new ArrayList<Integer>();
-		frontier = new ArrayList<Integer>();
-		setCountries();
+		int num_countries = game.getNumCountries();
+		owners = new int[num_countries];
+		armies = new int[num_countries];
+		conts = new int[num_countries];
+		myCountries = new int[num_countries];
+		myIndex = new int[num_countries];
+		frontier = new int[num_countries];
+		maxPlayers = game.getMaxPlayerID();
+		continentOwnership = new int[game.getNumContinents()];
+		continentCounts = new int[game.getNumContinents() * maxPlayers];
+		continentSizes = new int[game.getNumContinents()];
+		armiesPerPlayer = new int[maxPlayers];
+		occupationCounts = new int[maxPlayers];
+		BoardView board = game.getBoardView();
+		for(int i=0; i<num_countries; i++) {
+			conts[i] = board.getCont(i);
+			continentSizes[conts[i]]++;
+		}
 		rateContinents();				// Only rate these once, they never change
 		refresh();
 	}
 	
+	// A copy of other, with the board and statistics it last refreshed to, that can be changed on its own
+	public GameStats(GameStats other) {
+		game = other.game;
+		world = other.world;
+		conts = other.conts;					// These never change, so they're shared
+		continentSizes = other.continentSizes;
+		continentRatings = other.continentRatings;
+		maxPlayers = other.maxPlayers;
+		owners = new int[other.owners.length];
+		armies = new int[other.armies.length];
+		myCountries = new int[other.myCountries.length];
+		myIndex = new int[other.myIndex.length];
+		frontier = new int[other.frontier.length];
+		continentOwnership = new int[other.continentOwnership.length];
+		continentCounts = new int[other.continentCounts.length];
+		armiesPerPlayer = new int[other.armiesPerPlayer.length];
+		occupationCounts = new int[other.occupationCounts.length];
+		copyFrom(other);
+	}
+	
+	// Makes this the same as other (which must be of the same game and player), throwing away anything applied to this
+	public void copyFrom(GameStats other) {
+		System.arraycopy(other.owners, 0, owners, 0, owners.length);
+		System.arraycopy(other.armies, 0, armies, 0, armies.length);
+		System.arraycopy(other.myCountries, 0, myCountries, 0, myCountries.length);
+		System.arraycopy(other.myIndex, 0, myIndex, 0, myIndex.length);
+		System.arraycopy(other.frontier, 0, frontier, 0, frontier.length);
+		System.arraycopy(other.continentOwnership, 0, continentOwnership, 0, continentOwnership.length);
+		System.arraycopy(other.continentCounts, 0, continentCounts, 0, continentCounts.length);
+		System.arraycopy(other.armiesPerPlayer, 0, armiesPerPlayer, 0, armiesPerPlayer.length);
+		System.arraycopy(other.occupationCounts, 0, occupationCounts, 0, occupationCounts.length);
+		numMyCountries = other.numMyCountries;
+		frontierSize = other.frontierSize;
+		totalArmies = other.totalArmies;
+		target = other.target;
+		players = other.players;
+		board_version = other.board_version;
+		key = other.key;
+		journal_size = 0;
+	}
+	
+	// The evaluators to tell about changes made by apply() and undo()
+	public void setEvaluators(AbstractEvaluator evals[]) {
+		evaluators = evals;
+	}
+	
 	//	Alerts GameStats that the world has changed, so reload and recalculate!
+	//	If the board hasn't changed since the last time, the stats are still good.
+	//	Anything applied and not undone is thrown away.
 	public void refresh() {
-		setCountries();
 		players = game.getPlayerInfo();
+		BoardView board = game.getBoardView();
+		if(board.getVersion() == board_version && journal_size == 0)
+			return;
+		journal_size = 0;
+		for(int i=0; i<owners.length; i++) {
+			owners[i] = board.getOwner(i);
+			armies[i] = board.getArmies(i);
+		}
 		calculate();
 		setTargetCont();	// Select a target continent (there's an Evaluator that gives a score bump for going after this)
+		board_version = board.getVersion();
 	}
 	
-	int old_player;
-	public void apply(OccupationChange change) {
-		setCountries();
-		ArrayList<ArmyChange> changes = new ArrayList<ArmyChange>();
-		changes.add( new ArmyChange(change.from(), -1 * change.casualties()) );
-		changes.add( new ArmyChange(change.to(), -1 * change.enemiesKilled()) );
-		apply(changes);
-		old_player = countries[change.to()].getPlayer();
-		countries[change.to()].setPlayer(game.me());
-		calculateContentOwnership();
-		occupationCounts[game.me()]++;
-		occupationCounts[old_player]--;
-		myCountries.add(new Integer(change.to()));
+	/********************* Hypothetical changes **********************/
+	
+	// The point to undo() back to, to take off everything applied after now
+	public int mark() {
+		return journal_size;
 	}
 	
-	public void unapply(OccupationChange change) {
-		ArrayList<ArmyChange> changes = new ArrayList<ArmyChange>();
-		changes.add( new ArmyChange(change.from(), -1 * change.casualties()) );
-		changes.add( new ArmyChange(change.to(), -1 * change.enemiesKilled()) );
-		unapply(changes);
-		countries[change.to()].setPlayer(old_player);
-		calculateContentOwnership();
-		occupationCounts[game.me()]--;
-		occupationCounts[old_player]++;
-		myCountries.remove(new Integer(change.to()));
+	/*
+	 * Applies a won attack: the attacking territory and the defeated one lose their casualties,
+	 * and the defeated territory becomes this player's. Returns the mark from before it.
+	 */
+	public int apply(OccupationChange change) {
+		int mark = journal_size;
+		change(change.from(), owners[change.from()], armies[change.from()] - change.casualties());
+		change(change.to(), owners[change.to()], armies[change.to()] - change.enemiesKilled());
+		change(change.to(), game.me(), armies[change.to()]);
+		return mark;
+	}
+	
+	// Applies every move in the buffer, in order. Returns the mark from before them.
+	public int apply(MoveBuffer moves) {
+		int mark = journal_size;
+		for(int i=0; i<moves.size(); i++) {
+			int from = moves.from(i), to = moves.to(i);
+			if(from != -1)
+				change(from, owners[from], armies[from] - moves.amount(i));
+			if(to != -1)
+				change(to, owners[to], armies[to] + moves.amount(i));
+		}
+		return mark;
+	}
+	
+	// Applies a change in the number of armies on country id. Returns the mark from before it.
+	public int addArmies(int id, int amount) {
+		int mark = journal_size;
+		change(id, owners[id], armies[id] + amount);
+		return mark;
 	}
 	
-	public void apply(ArrayList<ArmyChange> changes) {
-		setCountries();
-		for(ArmyChange change : changes) {
-			armies[countries[change.ID()].getPlayer()] += change.amount();
-			totalArmies += change.amount();
+	// Takes back every change applied since mark, newest first
+	public void undo(int mark) {
+		while(journal_size > mark) {
+			journal_size -= 3;
+			int id = journal[journal_size], old_owner = journal[journal_size + 1], old_armies = journal[journal_size + 2];
+			int undone_owner = owners[id], undone_armies = armies[id];
+			set(id, old_owner, old_armies);
+			for(int e=0; e<evaluators.length; e++)
+				evaluators[e].onUndo(id, undone_owner, undone_armies);
 		}
 	}
 	
-	public void unapply(ArrayList<ArmyChange> changes) {
-		for(ArmyChange change : changes) {
-			armies[countries[change.ID()].getPlayer()] -= change.amount();
-			totalArmies -= change.amount();
+	// Records country id's current owner and armies in the journal, then changes them
+	private void change(int id, int owner, int num_armies) {
+		if(journal_size == journal.length)
+			journal = java.util.Arrays.copyOf(journal, journal.length * 2);
+		int old_owner = owners[id], old_armies = armies[id];
+		journal[journal_size] = id;
+		journal[journal_size + 1] = old_owner;
+		journal[journal_size + 2] = old_armies;
+		journal_size += 3;
+		set(id, owner, num_armies);
+		for(int e=0; e<evaluators.length; e++)
+			evaluators[e].onApply(id, old_owner, old_armies);
+	}
+	
+	// Changes country id, keeping every statistic that depends on it up to date
+	private void set(int id, int owner, int num_armies) {
+		int old_owner = owners[id];
+		key ^= zobrist(id, old_owner, armies[id]) ^ zobrist(id, owner, num_armies);
+		if(old_owner != -1) {
+			armiesPerPlayer[old_owner] -= armies[id];
+			totalArmies -= armies[id];
+		}
+		if(owner != old_owner) {
+			int cont = conts[id];
+			if(old_owner != -1) {
+				occupationCounts[old_owner]--;
+				continentCounts[cont * maxPlayers + old_owner]--;
+			}
+			if(owner != -1) {
+				occupationCounts[owner]++;
+				continentCounts[cont * maxPlayers + owner]++;
+			}
+			// Nobody owns a continent a territory just changed hands in, unless the new owner now has all of it
+			if(owner != -1 && continentCounts[cont * maxPlayers + owner] == continentSizes[cont])
+				continentOwnership[cont] = owner;
+			else
+				continentOwnership[cont] = -1;
+			if(old_owner == game.me())
+				removeMine(id);
+			if(owner == game.me())
+				addMine(id);
+			owners[id] = owner;
+		}
+		armies[id] = num_armies;
+		if(owner != -1) {
+			armiesPerPlayer[owner] += num_armies;
+			totalArmies += num_armies;
 		}
 	}
 	
+	// A pseudo-random number standing for country id being occupied by owner with num_armies
+	private static long zobrist(int id, int owner, int num_armies) {
+		long z = ((long)id << 42) ^ ((long)(owner + 1) << 32) ^ (num_armies & 0xffffffffL);
+		z += 0x9E3779B97F4A7C15L;	// The splitmix64 mixing function
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	private void addMine(int id) {
+		myIndex[id] = numMyCountries;
+		myCountries[numMyCountries++] = id;
+	}
+	
+	private void removeMine(int id) {
+		int last = myCountries[--numMyCountries];
+		myCountries[myIndex[id]] = last;
+		myIndex[last] = myIndex[id];
+		myIndex[id] = -1;
+	}
+	
 	// Called to re-calculate all stat variables.
-	// Assumes all state variables like "countries" are up-to-date
+	// Assumes the board arrays are up-to-date
 	private void calculate() {
+		key = 0;
+		for(int i=0; i<owners.length; i++)
+			key ^= zobrist(i, owners[i], armies[i]);
 		calculateContentOwnership();
 		calculateArmyTotals();
 		calculateOccupationStats();
 	}
 	
 	/*
-	 * Responsible for filling in the continentOwnership array.
+	 * Responsible for filling in the continentCounts and continentOwnership arrays.
 	 * Each number is the player ID of someone that owns the entire continent.
 	 * If no one does, the int will be -1;
 	 */
 	private void calculateContentOwnership() {
-		continentOwnership = new int[game.getNumContinents()];
-		// Initialize each content ownership to -2, which indicates the
-		// continent has yet to be examined.
-		java.util.Arrays.fill(continentOwnership, -2);
-		for(int i=0; i<countries.length; i++) {
-			int cont = countries[i].getCont();
-			if(continentOwnership[cont] == -1)	// Already know no one owns it
-				continue;
-			if(!countries[i].isTaken())		// If it's unclaimed, no one owns it
-				continentOwnership[cont] = -1;
-			else if(continentOwnership[cont] == -2)
-				continentOwnership[cont] = countries[i].getPlayer();
-			else if(continentOwnership[cont] != countries[i].getPlayer())
-				continentOwnership[cont] = -1;
+		java.util.Arrays.fill(continentCounts, 0);
+		for(int i=0; i<owners.length; i++) {
+			if(owners[i] != -1)
+				continentCounts[conts[i] * maxPlayers + owners[i]]++;
+		}
+		java.util.Arrays.fill(continentOwnership, -1);
+		for(int c=0; c<continentOwnership.length; c++) {
+			for(int p=0; p<maxPlayers; p++) {
+				if(continentCounts[c * maxPlayers + p] == continentSizes[c])
+					continentOwnership[c] = p;
+			}
 		}
 	}
 	
 	/*
-	 * Responsible for filling in the armies array with army total for each player,
+	 * Responsible for filling in the armiesPerPlayer array with army total for each player,
 	 * as well as the totalArmies int.
 	 */
 	private void calculateArmyTotals() {
-		armies = new int[game.getMaxPlayerID()];
+		java.util.Arrays.fill(armiesPerPlayer, 0);
 		totalArmies = 0;
-		for(int i=0; i<countries.length; i++) {
-			if(countries[i].isTaken()) {
-				armies[countries[i].getPlayer()] += countries[i].getArmies();
-				totalArmies += countries[i].getArmies();
+		for(int i=0; i<owners.length; i++) {
+			if(owners[i] != -1) {
+				armiesPerPlayer[owners[i]] += armies[i];
+				totalArmies += armies[i];
 			}
 		}
 	}
 	
 	/*
-	 * Responsible for filling the occupationTotals array, and myCountries and frontier ArrayLists
-	 * occupationTotals[i] represents the number of territories occupied by the player with ID i
+	 * Responsible for filling the occupationCounts array, and the myCountries and frontier lists
+	 * occupationCounts[i] represents the number of territories occupied by the player with ID i
 	 * myCountries is a list of the country ID's belonging to this player.
 	 * frontier is a list of country ID's belonging to this player and adjacent to enemy territories.
 	 */
 	private void calculateOccupationStats() {
-		occupationCounts = new int[game.getMaxPlayerID()];
-		myCountries.clear();
-		frontier.clear();
-		for(int i=0; i<countries.length; i++) {
-			if(countries[i].isTaken()) {
-				occupationCounts[countries[i].getPlayer()]++;
-				if(countries[i].getPlayer() == game.me()) {
-					myCountries.add(new Integer(i));
-					int adj[] = world.getAdjacencies(i);
-					// Check to see if countries[i] is on the player's frontier
-					for(int a = 0; a<adj.length; a++) {
-						if(countries[adj[a]].getPlayer() != game.me()) {
-							frontier.add(new Integer(i));
+		java.util.Arrays.fill(occupationCounts, 0);
+		java.util.Arrays.fill(myIndex, -1);
+		numMyCountries = 0;
+		frontierSize = 0;
+		for(int i=0; i<owners.length; i++) {
+			if(owners[i] != -1) {
+				occupationCounts[owners[i]]++;
+				if(owners[i] == game.me()) {
+					addMine(i);
+					// Check to see if country i is on the player's frontier
+					for(int a = 0; a<world.getDegree(i); a++) {
+						if(owners[world.getAdjacency(i, a)] != game.me()) {
+							frontier[frontierSize++] = i;
 							break;
 						}
 					}
@@ -192,12 +371,11 @@ public class GameStats {
 		// For each continent, find its size and number of borders
 		int numTerritories[] = new int[game.getNumContinents()];
 		int numBorders[] = new int[game.getNumContinents()];
-		for(int i=0; i<countries.length; i++) {
-			numTerritories[countries[i].getCont()]++;
-			int adj[] = world.getAdjacencies(i);
-			for(int a = 0; a<adj.length; a++) {
-				if(countries[i].getCont() != countries[adj[a]].getCont()) {
-					numBorders[countries[i].getCont()]++;
+		for(int i=0; i<conts.length; i++) {
+			numTerritories[conts[i]]++;
+			for(int a = 0; a<world.getDegree(i); a++) {
+				if(conts[i] != conts[world.getAdjacency(i, a)]) {
+					numBorders[conts[i]]++;
 					break;
 				}
 			}
@@ -239,30 +417,30 @@ public class GameStats {
 		int enemiesPerCont[] = new int[game.getNumContinents()];
 		int friendlyArmiesPerCont[] = new int[game.getNumContinents()];	// Only counts "extra" armies, includes neighbors
 		int enemyArmiesPerCont[] = new int[game.getNumContinents()];	// Only counts "extra" armies
-		for(int i=0; i<countries.length; i++) {
-			int cont = countries[i].getCont();
+		for(int i=0; i<owners.length; i++) {
+			int cont = conts[i];
 			/*if(!countries[i].isTaken()) {		// Target is irrelevant in the beginning claiming phase
 				target = -1;
 				return;
 			}*/
-			if(countries[i].getPlayer() == game.me()) {
+			if(owners[i] == game.me()) {
 				friendliesPerCont[cont] += 1;
-				friendlyArmiesPerCont[cont] += countries[i].getArmies() - 1;
+				friendlyArmiesPerCont[cont] += armies[i] - 1;
 				
 				// Also include these armies in other continent counts
-				int adj[] = world.getAdjacencies(i);
 				boolean counts[] = new boolean[game.getNumContinents()];
-				for(int a=0; a<adj.length; a++) {
-					if(countries[adj[a]].getCont() != cont)
-						counts[countries[adj[a]].getCont()] = true;
+				for(int a=0; a<world.getDegree(i); a++) {
+					int adj_cont = conts[world.getAdjacency(i, a)];
+					if(adj_cont != cont)
+						counts[adj_cont] = true;
 				}
 				for(int a=0; a<counts.length; a++) {
 					if(counts[a])
-						friendlyArmiesPerCont[a] += countries[i].getArmies() - 1;
+						friendlyArmiesPerCont[a] += armies[i] - 1;
 				}
 			} else {
 				enemiesPerCont[cont] += 1;
-				enemyArmiesPerCont[cont] += countries[i].getArmies() - 1;
+				enemyArmiesPerCont[cont] += armies[i] - 1;
 			}
 		}
 		double occupationRatios[] = new double[game.getNumContinents()], armyRatios[] = new double[game.getNumContinents()];
@@ -289,14 +467,6 @@ public class GameStats {
 		//Risk.sayOutput("Target: " + target, OutputFormat.BLUE);
 	}
 	
-	private void setCountries() {
-		countries = new MutableCountryInfo[game.getNumCountries()];
-		CountryInfo realCountries[] = game.getCountryInfo();
-		for(int i=0; i<game.getNumCountries(); i++) {
-			countries[i] = new MutableCountryInfo(realCountries[i]);
-		}
-	}
-	
 	// Returns the number of continents
 	public int getNumContinents() {
 		return game.getNumContinents();
@@ -318,7 +488,7 @@ public class GameStats {
 	}
 	
 	public int[] getArmiesPerPlayer() {
-		return armies;
+		return armiesPerPlayer;
 	}
 	
 	public int getTotalArmies() {
@@ -337,21 +507,58 @@ public class GameStats {
 		return players;
 	}
 	
-	public MutableCountryInfo[] getCountries() {
-		if(countries == null) setCountries();
-		return countries;
+	public int getNumCountries() {
+		return owners.length;
+	}
+	
+	// A hash of the board as it is now, including anything applied. Equal boards have equal keys.
+	public long getKey() {
+		return key;
+	}
+	
+	// What the key k would be if country id were changed from what it is now to owner and num_armies
+	public long keyAfter(long k, int id, int owner, int num_armies) {
+		return k ^ zobrist(id, owners[id], armies[id]) ^ zobrist(id, owner, num_armies);
+	}
+	
+	// The ID of the player occupying country id (-1 if unclaimed)
+	public int getOwner(int id) {
+		return owners[id];
+	}
+	
+	public int getArmies(int id) {
+		return armies[id];
+	}
+	
+	public int getCont(int id) {
+		return conts[id];
+	}
+	
+	public boolean isTaken(int id) {
+		return owners[id] != -1;
 	}
 	
 	public World getWorld() {
 		return world;
 	}
 	
-	public ArrayList<Integer> getMyCountries() {
-		return myCountries;
+	// The number of countries belonging to this player
+	public int getNumMyCountries() {
+		return numMyCountries;
+	}
+	
+	// The i'th country belonging to this player (in no particular order)
+	public int getMyCountry(int i) {
+		return myCountries[i];
+	}
+	
+	public int getFrontierSize() {
+		return frontierSize;
 	}
 	
-	public ArrayList<Integer> getFrontier() {
-		return frontier;
+	// The i'th country of this player adjacent to an enemy territory
+	public int getFrontierCountry(int i) {
+		return frontier[i];
 	}
 	
 }
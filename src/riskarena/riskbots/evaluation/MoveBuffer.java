@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.riskbots.evaluation;
+/*
+ * A MoveBuffer holds a list of army movements to be scored together, like a list of
+ * ArmyChanges but packed into an int array that is reused from one candidate to the next.
+ * Each slot moves some number of armies from one territory to another. A territory of -1
+ * stands for off the board, so placing armies is a move from -1 and losing them in battle
+ * is a move to -1. Decisions should keep one MoveBuffer, clear() it for each candidate
+ * they try and pass it to Evaluation.score(), so trying a candidate creates no garbage.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public final class MoveBuffer {
+	private static final int FROM = 0, TO = 1, AMOUNT = 2, SLOT = 3;
+	private int slots[];
+	private int size = 0;	// Number of moves in the buffer
+
+	public MoveBuffer() {
+		this(4);
+	}
+
+	public MoveBuffer(int capacity) {
+		slots = new int[Math.max(capacity, 1) * SLOT];
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	// Moves amount armies from territory 'from' to territory 'to'. Either may be -1 (off the board).
+	public void add(int from, int to, int amount) {
+		if(size * SLOT == slots.length)
+			slots = Arrays.copyOf(slots, slots.length * 2);
+		slots[size * SLOT + FROM] = from;
+		slots[size * SLOT + TO] = to;
+		slots[size * SLOT + AMOUNT] = amount;
+		size++;
+	}
+
+	// Places amount new armies on territory id (a negative amount takes them away)
+	public void place(int id, int amount) {
+		add(-1, id, amount);
+	}
+
+	// Takes amount armies away from territory id, as happens when they're lost in battle
+	public void remove(int id, int amount) {
+		add(id, -1, amount);
+	}
+
+	// Makes this buffer hold the same moves as other
+	public void copyFrom(MoveBuffer other) {
+		if(slots.length < other.size * SLOT)
+			slots = new int[other.slots.length];
+		System.arraycopy(other.slots, 0, slots, 0, other.size * SLOT);
+		size = other.size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	// The territory move i takes armies from, or -1 if they are new
+	public int from(int i) {
+		return slots[i * SLOT + FROM];
+	}
+
+	// The territory move i takes armies to, or -1 if they are lost
+	public int to(int i) {
+		return slots[i * SLOT + TO];
+	}
+
+	public int amount(int i) {
+		return slots[i * SLOT + AMOUNT];
+	}
+
+	// Copies the moves in the buffer into ArmyChanges, for decisions that hand back their answer
+	public ArrayList<ArmyChange> toArmyChanges() {
+		ArrayList<ArmyChange> changes = new ArrayList<ArmyChange>(size * 2);
+		for(int i=0; i<size; i++) {
+			if(from(i) != -1)
+				changes.add(new ArmyChange(from(i), -1 * amount(i)));
+			if(to(i) != -1)
+				changes.add(new ArmyChange(to(i), amount(i)));
+		}
+		return changes;
+	}
+}
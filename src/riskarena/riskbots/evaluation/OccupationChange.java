@@ -14,6 +14,11 @@ public class OccupationChange {
 	private int enemiesKilled;
 	
 	public OccupationChange(int from, int to, int casualties, int enemiesKilled) {
+		set(from, to, casualties, enemiesKilled);
+	}
+	
+	// Reuses this OccupationChange for another attack, so scoring many of them creates no garbage
+	public void set(int from, int to, int casualties, int enemiesKilled) {
 		this.from = from;
 		this.to = to;
 		this.casualties = casualties;
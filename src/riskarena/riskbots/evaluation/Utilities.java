@@ -14,6 +14,11 @@ package riskarena.riskbots.evaluation;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.DecimalFormat;
 import java.lang.StringBuilder;
 
@@ -48,6 +53,15 @@ public class Utilities {
 		}
 		return Math.sqrt(total);
 	}
+
+	// Same as above, for an array of doubles
+	public static double norm(double find[]) {
+		double total = 0.0;
+		for(int i=0; i<find.length; i++) {
+			total += find[i] * find[i];
+		}
+		return Math.sqrt(total);
+	}
 	
 	 /*
 	 * Read the last line of a file
@@ -99,6 +113,36 @@ public class Utilities {
 		}
 	}
 	
+	/*
+	 * Replaces file with the bytes remaining in buffer. They are written to a temporary file
+	 * in the same directory first, which is then renamed over file, so whoever reads file at
+	 * the same time (eg a game that is just starting) never sees half of it.
+	 */
+	static void writeAtomically(File file, ByteBuffer buffer) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if(dir != null && !dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("could not create " + dir);
+		File temp = File.createTempFile(file.getName(), ".tmp", dir);
+		try {
+			RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+			try {
+				FileChannel channel = raf.getChannel();
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+				channel.force(true);
+			} finally {
+				raf.close();
+			}
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch(AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			temp.delete();	// Only still there if something went wrong
+		}
+	}
+
 	/* Given a thread, prints info. For now, simply its stack trace. */
 	public static void printThread(Thread thread) {
 		StackTraceElement z[] = thread.getStackTrace();
@@ -7,30 +7,29 @@
  ******************************************************************************/
 package riskarena.riskbots.evaluation;
 
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
-import java.io.Writer;
-import java.util.ArrayList;
-import java.util.Date;
+/*
+ * WeightManager holds the weight of each evaluator of an Evaluation, read from the WeightStore of
+ * the player's name, and trains them by TD(lambda) learning if should_train is true. Weights are kept in
+ * a double[] in the order of the evaluators, so Evaluation reads them by index. Rather than keeping
+ * every turn's score vector and summing them all again each turn, an eligibility trace holds their
+ * sum decayed by lambda, which takes one pass over the features to bring up to date.
+ */
+
 import java.util.HashMap;
-import java.util.Random;
 
 import riskarena.Risk;
 
 public class WeightManager {
 	private String myName;
-	private ArrayList<Double> weights;
-	private ArrayList<Double[]> previousScores;
+	private double weights[];
+	private double trace[];	// Score vectors of the turns so far, each decayed by lambda once a turn
+	private double lastScores[];	// The score vector of the last turn
+	private int rounds = 0;	// How many turns have been trained on this game
 	private HashMap<String,Integer> evalNameToID;
 	private final int numWeights;
-	private String weightsFileName = "src/data/weights/";
-	private File weightsFile;
+	private WeightStore store = null;	// Where the weights are read from and saved to, once initGame() is called
 	private boolean should_train;
+	private boolean detached = false;	// If true, the WeightStore is never read or written (see detach())
 	private int games_trained = 0;
 	private double lambda = 0.5;	// Higher = utilizer the further past more. Lower = learn only from more recent experiences
 
@@ -38,167 +37,149 @@ public class WeightManager {
 
 	public WeightManager(String name, String evals[], boolean should_train) {
 		myName = name;
-		weights = new ArrayList<Double>();
+		numWeights = evals.length;
+		weights = new double[numWeights];
+		trace = new double[numWeights];
+		lastScores = new double[numWeights];
 		evalNameToID = new HashMap<String,Integer>();
-		previousScores = new ArrayList<Double[]>();
-		weightsFileName += myName + ".txt";
 		this.should_train = should_train;
-		numWeights = evals.length;
 		for(int i=0; i<evals.length; i++)
-			evalNameToID.put(evals[i], new Integer(i));
+			evalNameToID.put(evals[i], i);
 	}
 
-	public void initGame() {
-		createWeightsFile();
-		if(weightsFile.exists())
-			loadWeights();
-		previousScores.clear();
+	/*
+	 * A copy of from's weights, detached from its WeightStore: nothing is read from or saved
+	 * to it. Its weights are trained, but are only saved by being merged back into from.
+	 */
+	private WeightManager(WeightManager from) {
+		myName = from.myName;
+		numWeights = from.numWeights;
+		weights = from.weights.clone();
+		trace = new double[numWeights];
+		lastScores = new double[numWeights];
+		evalNameToID = from.evalNameToID;
+		should_train = true;
+		detached = true;
+		games_trained = from.games_trained;
+		lambda = from.lambda;
 	}
 
-	public void train(Double scores[]) {
-		if(!should_train) return;
-		if(!previousScores.isEmpty())
-			train(applyWeights(scores), applyWeights(previousScores.get(previousScores.size()-1)));
-		previousScores.add(scores);
+	public void initGame() {
+		if(!detached) {
+			if(store == null)
+				store = WeightStore.get(myName, numWeights, should_train);
+			games_trained = store.read(weights);
+		}
+		rounds = 0;
+		for(int w=0; w<numWeights; w++)
+			trace[w] = 0.0;
 	}
 
-	public void endGame(Double scores[], int place, int numPlayers) {
-		if(should_train) {
-			train(reward(place, numPlayers), applyWeights(previousScores.get(previousScores.size()-1)));
-			games_trained++;
-			writeUpdate();
-		}
+	/*
+	 * Returns a detached copy of these weights, for a training worker that plays games on a thread of
+	 * its own (see riskarena.TrainingFarm). initGame() must have been called on this first.
+	 */
+	public WeightManager detach() {
+		return new WeightManager(this);
 	}
 
 	/*
-	 * If no weights file exists, create one using randomly initialized weights (that add up to weightSum)
+	 * Sets these weights to the average of the weights of detached copies, counts the games they
+	 * trained on since they were last in step with these, and saves the result to the WeightStore.
 	 */
-	private void createWeightsFile() {
-		weightsFile = new File(weightsFileName);
-		if(!weightsFile.exists()) {
-			double newWeights[] = makeRandomWeights();
-			if(should_train) {
-				PrintWriter writer = null;
-				try {
-					writer = new PrintWriter(weightsFileName, "UTF-8");
-				} catch (FileNotFoundException e) {
-					e.printStackTrace();
-				} catch (UnsupportedEncodingException e) {
-					e.printStackTrace();
-				}
-				writer.write("0");
-				for(int i=0; i<newWeights.length; i++)
-					writer.write(" " + newWeights[i]);
-				writer.close();
-				weightsFile = new File(weightsFileName);
-			} else {
-				for(int i=0; i<newWeights.length; i++)
-					weights.add(new Double(newWeights[i]));
-			}
+	public void mergeFrom(WeightManager copies[]) {
+		int games = 0;
+		for(int w=0; w<numWeights; w++) {
+			double sum = 0.0;
+			for(int i=0; i<copies.length; i++)
+				sum += copies[i].weights[w];
+			weights[w] = sum / copies.length;
 		}
+		for(int i=0; i<copies.length; i++)
+			games += copies[i].games_trained - games_trained;
+		games_trained += games;
+		store.save(weights, games_trained);
 	}
 
-	public void train(double current, double past) {
-		if(!should_train) return;
-		boolean debug = false;
-
-		int previousRounds = previousScores.size();
-		if(previousRounds > 0) {
-			// Perform precalculations
-			Double featureSums[] = new Double[numWeights];
-			for(int w = 0; w < numWeights; w++) {
-				featureSums[w] = new Double(0.0);
-				for(int round=0; round < previousRounds; round++) {
-					featureSums[w] += Math.pow(lambda, (double)previousRounds - (round + 1)) * previousScores.get(round)[w];
-				}
-			}
-			double norm = Utilities.norm(featureSums);
-			double prevNorm = Utilities.norm(previousScores.get(previousRounds-1));
-
-			double totalW = 0.0;
-			double smallestWeight = Double.MAX_VALUE;
-			// Perform updates
-			StringBuilder updates = new StringBuilder();
-			for(int w=0; w<numWeights; w++) {
-				double newWeight = weights.get(w);
-				double fraction = featureSums[w] / (norm * prevNorm);
-				//double fraction = featureSums[w] / (norm);
-				newWeight += alpha() * (current - past) * fraction;
-				totalW += Math.abs(newWeight);
-				if(newWeight < smallestWeight)
-					smallestWeight = newWeight;
-				weights.set(w, newWeight);
-			}
-			for(int w=0; w<numWeights; w++) {
-				double newWeight = weights.get(w);
-				newWeight = ((newWeight-smallestWeight) / totalW) * weightSum; // Normalize
-				weights.set(w, newWeight);
-				updates.append(Utilities.printDouble(newWeight) + " ");
-			}
-			if(debug)
-				Risk.sayOutput(games_trained + "\t" + updates.toString(), true);
-		}
+	// Puts these detached weights back in step with from, after it has merged them
+	public void copyFrom(WeightManager from) {
+		System.arraycopy(from.weights, 0, weights, 0, numWeights);
+		games_trained = from.games_trained;
 	}
 
-	private void loadWeights() {
-		weights.clear();
-		File weightsFile = new File(weightsFileName);
-		String lastLine = Utilities.tail(weightsFile);
-		String weightStrings[] = lastLine.split(" ");
-		if(weightStrings.length - 1 != numWeights) {
-			System.err.println("Incorrect number of weights in " + weightsFileName + ": expected " + numWeights + ", got " + (weightStrings.length - 1));
-			System.exit(-1);
-		}
-		games_trained = new Integer(weightStrings[0]);
-		for(int i=1; i<weightStrings.length; i++) {
-			weights.add( new Double(weightStrings[i]) );
-		}
+	public int getGamesTrained() {
+		return games_trained;
 	}
 
-	private void writeUpdate() {
-		try {
-			Writer output = new BufferedWriter( new FileWriter(weightsFile, true) );
-			StringBuilder sb = new StringBuilder();
-			sb.append("\n");
-			sb.append(games_trained);
-			for(Double w : weights) {
-				sb.append(" " + w);
-			}
-			output.write(sb.toString());
-			output.close();
-		} catch (IOException e) {
-			Risk.sayError(weightsFileName + " not found!");
-			e.printStackTrace();
+	/*
+	 * Trains on the score vector of the turn that just ended. The vector is copied, so the
+	 * caller may reuse it.
+	 */
+	public void train(double scores[]) {
+		if(!should_train) return;
+		if(rounds > 0)
+			train(applyWeights(scores), applyWeights(lastScores));
+		for(int w=0; w<numWeights; w++) {
+			trace[w] = lambda * trace[w] + scores[w];
+			lastScores[w] = scores[w];
 		}
-
+		rounds++;
 	}
 
-	public double weightOf(String evalName) {
-		//System.out.println(evalName + " " +evalNameToID.get(evalName) + " " + weights.size());
-		return weights.get(evalNameToID.get(evalName));
+	public void endGame(double scores[], int place, int numPlayers) {
+		if(should_train) {
+			if(rounds > 0)
+				train(reward(place, numPlayers), applyWeights(lastScores));
+			games_trained++;
+			if(!detached)
+				store.save(weights, games_trained);
+		}
 	}
 
 	/*
-	 * Makes random weights that add up to weightSum
+	 * Moves the weights towards making the score of the past turn closer to current, along the
+	 * eligibility trace of the turns before it
 	 */
-	private double[] makeRandomWeights() {
-		Random gen = new Random((new Date()).getTime());
-		double sum = 0.0;
-		double rands[] = new double[numWeights];
-		for(int i=0; i<numWeights;i++) {
-			rands[i] = gen.nextDouble();
-			sum += rands[i];
+	private void train(double current, double past) {
+		boolean debug = false;
+
+		double norm = Utilities.norm(trace);
+		double prevNorm = Utilities.norm(lastScores);
+		double step = alpha() * (current - past) / (norm * prevNorm);
+
+		double totalW = 0.0;
+		double smallestWeight = Double.MAX_VALUE;
+		// Perform updates
+		for(int w=0; w<numWeights; w++) {
+			double newWeight = weights[w] + step * trace[w];
+			totalW += Math.abs(newWeight);
+			if(newWeight < smallestWeight)
+				smallestWeight = newWeight;
+			weights[w] = newWeight;
 		}
-		for(int i=0; i<numWeights;i++) {
-			rands[i] = (rands[i] / sum) * weightSum;
+		for(int w=0; w<numWeights; w++)
+			weights[w] = ((weights[w]-smallestWeight) / totalW) * weightSum; // Normalize
+		if(debug) {
+			StringBuilder updates = new StringBuilder();
+			for(int w=0; w<numWeights; w++)
+				updates.append(Utilities.printDouble(weights[w]) + " ");
+			Risk.sayOutput(games_trained + "\t" + updates.toString(), true);
 		}
-		return rands;
 	}
 
-	private double applyWeights(Double to[]) {
+	// The weight of evaluator number id, in the order of the evals the WeightManager was made with
+	public double weightOf(int id) {
+		return weights[id];
+	}
+
+	public double weightOf(String evalName) {
+		return weights[evalNameToID.get(evalName)];
+	}
+
+	private double applyWeights(double to[]) {
 		double total = 0.0;
 		for(int i=0; i<to.length; i++) {
-			total += weights.get(i) * to[i];
+			total += weights[i] * to[i];
 		}
 		return total;
 	}
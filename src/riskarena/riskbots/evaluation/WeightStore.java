@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.riskbots.evaluation;
+
+/*
+ * WeightStore keeps the current weights of a name (see WeightManager) in a small binary file,
+ * src/data/weights/<name>.weights:
+ *   int MAGIC, int VERSION, int games trained, int number of weights, then the weights (doubles)
+ * all big-endian. It is rewritten whole every time the weights are saved (see Utilities.writeAtomically).
+ * The file is read once per JVM: every WeightManager of the same name shares one WeightStore,
+ * which hands out the weights from memory.
+ *
+ * The history of the weights goes to <name>.txt, the text format weights files used to have:
+ * a line of the games trained and the weights, written every HISTORY_EVERY games trained.
+ * If there is no .weights file but there is a .txt, the weights are taken from its last line
+ * and the .weights file is made from them.
+ */
+
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Random;
+
+import riskarena.Risk;
+
+class WeightStore {
+	private static final int MAGIC = 0x52415754;	// "RAWT"
+	private static final int VERSION = 1;
+	private static final String WEIGHTS_DIR = "src/data/weights/";
+	private static final int HISTORY_EVERY = 100;	// A line is added to the history every this many games trained (1 for every game, 0 for none)
+	private static final double WEIGHT_SUM = 0.3;	// Random weights add up to this, like trained ones
+	private static final HashMap<String,WeightStore> stores = new HashMap<String,WeightStore>();	// name -> its WeightStore
+
+	private final String name;
+	private final File file, history;
+	private final double weights[];
+	private int games_trained = 0;
+	private boolean saved = false;	// Whether the weights are in the file (rather than random ones nobody has saved yet)
+
+	/*
+	 * Returns the WeightStore of name, reading its weights the first time it is asked for. If there
+	 * are no weights saved under name, random ones are chosen, and if should_train is true they're
+	 * saved right away.
+	 */
+	static synchronized WeightStore get(String name, int num_weights, boolean should_train) {
+		WeightStore store = stores.get(name);
+		if(store == null) {
+			store = new WeightStore(name, num_weights);
+			stores.put(name, store);
+		}
+		if(store.weights.length != num_weights) {
+			Risk.sayError("Incorrect number of weights for " + name + ": expected " + num_weights + ", got " + store.weights.length);
+			System.exit(-1);
+		}
+		if(should_train && !store.saved)
+			store.save(store.weights, store.games_trained);
+		return store;
+	}
+
+	private WeightStore(String name, int num_weights) {
+		this.name = name;
+		file = new File(WEIGHTS_DIR + name + ".weights");
+		history = new File(WEIGHTS_DIR + name + ".txt");
+		if(file.isFile()) {
+			weights = read(num_weights);
+			saved = true;
+		} else if(history.isFile()) {
+			weights = readHistory(num_weights);
+			try {
+				write();
+				saved = true;
+			} catch(IOException e) {
+				Risk.sayError("Could not save the weights of " + name + ": " + e.getMessage(), true);
+			}
+		} else {
+			weights = randomWeights(num_weights);
+		}
+	}
+
+	/*
+	 * Copies the weights into into, returning the number of games they were trained on
+	 */
+	synchronized int read(double into[]) {
+		System.arraycopy(weights, 0, into, 0, weights.length);
+		return games_trained;
+	}
+
+	/*
+	 * Sets the weights to from, trained on games games, and saves them to the file
+	 */
+	synchronized void save(double from[], int games) {
+		int last_games = games_trained;
+		System.arraycopy(from, 0, weights, 0, weights.length);
+		games_trained = games;
+		try {
+			write();
+			if(history.length() == 0 || (HISTORY_EVERY > 0 && games/HISTORY_EVERY != last_games/HISTORY_EVERY))
+				writeHistory();
+			saved = true;
+		} catch(IOException e) {
+			Risk.sayError("Could not save the weights of " + name + ": " + e.getMessage(), true);
+		}
+	}
+
+	private double[] read(int num_weights) {
+		double read[] = new double[num_weights];
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+			try {
+				if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+					Risk.sayError(file + " is not a weights file of version " + VERSION + ".");
+					System.exit(-1);
+				}
+				games_trained = in.readInt();
+				int count = in.readInt();
+				if(count != num_weights) {
+					Risk.sayError("Incorrect number of weights in " + file + ": expected " + num_weights + ", got " + count);
+					System.exit(-1);
+				}
+				for(int i=0; i<num_weights; i++)
+					read[i] = in.readDouble();
+			} finally {
+				in.close();
+			}
+		} catch(IOException e) {
+			Risk.sayError("Could not read the weights in " + file + ": " + e.getMessage());
+			System.exit(-1);
+		}
+		return read;
+	}
+
+	// Reads the weights from the last line of the history, like weights files were read before they were binary
+	private double[] readHistory(int num_weights) {
+		String weightStrings[] = Utilities.tail(history).trim().split(" ");
+		if(weightStrings.length - 1 != num_weights) {
+			Risk.sayError("Incorrect number of weights in " + history + ": expected " + num_weights + ", got " + (weightStrings.length - 1));
+			System.exit(-1);
+		}
+		double read[] = new double[num_weights];
+		games_trained = Integer.parseInt(weightStrings[0]);
+		for(int i=1; i<weightStrings.length; i++)
+			read[i-1] = Double.parseDouble(weightStrings[i]);
+		return read;
+	}
+
+	private void write() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4 * 4 + weights.length * 8);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(games_trained).putInt(weights.length);
+		for(int i=0; i<weights.length; i++)
+			buffer.putDouble(weights[i]);
+		buffer.rewind();
+		Utilities.writeAtomically(file, buffer);
+	}
+
+	private void writeHistory() throws IOException {
+		boolean started = history.length() > 0;
+		Writer output = new BufferedWriter(new FileWriter(history, true));
+		try {
+			StringBuilder sb = new StringBuilder();
+			if(started)
+				sb.append("\n");
+			sb.append(games_trained);
+			for(int i=0; i<weights.length; i++)
+				sb.append(" ").append(weights[i]);
+			output.write(sb.toString());
+		} finally {
+			output.close();
+		}
+	}
+
+	/*
+	 * Makes random weights that add up to WEIGHT_SUM
+	 */
+	private static double[] randomWeights(int num_weights) {
+		Random gen = new Random((new Date()).getTime());
+		double sum = 0.0;
+		double rands[] = new double[num_weights];
+		for(int i=0; i<num_weights;i++) {
+			rands[i] = gen.nextDouble();
+			sum += rands[i];
+		}
+		for(int i=0; i<num_weights;i++) {
+			rands[i] = (rands[i] / sum) * WEIGHT_SUM;
+		}
+		return rands;
+	}
+}
@@ -7,11 +7,9 @@
  ******************************************************************************/
 package riskarena.riskbots.evaluation.evals;
 
-import java.util.ArrayList;
-
 import riskarena.GameInfo;
-import riskarena.riskbots.evaluation.ArmyChange;
 import riskarena.riskbots.evaluation.GameStats;
+import riskarena.riskbots.evaluation.MoveBuffer;
 import riskarena.riskbots.evaluation.OccupationChange;
 
 public abstract class AbstractEvaluator {
@@ -32,8 +30,8 @@ public abstract class AbstractEvaluator {
 	// A double representing how good the game state is for this player (higher = better). Usually [0,1], but not always.
 	abstract public double getScore();
 	
-	// A double representing the game state score that would result from applying every ArmyChange in this ArrayList
-	abstract public double getScore(ArrayList<ArmyChange> changes);
+	// A double representing the game state score that would result from applying every move in this MoveBuffer
+	abstract public double getScore(MoveBuffer moves);
 	
 	// A double representing the game state score that would result from applying an OccupationChange
 	abstract public double getScore(OccupationChange change);
@@ -42,6 +40,22 @@ public abstract class AbstractEvaluator {
 	// Usually this should prompt some kind of recalcuation.
 	abstract public void refresh();
 	
+	/*
+	 * Hypothetical changes are made to GameStats one territory at a time, and undone in reverse.
+	 * Evaluators that keep a running score should override these to update it, only looking at
+	 * the territory that changed. The getScore(change) methods are called once the whole change
+	 * has been applied.
+	 */
+	
+	// Country id has just changed from being occupied by old_owner with old_armies to what GameStats now says
+	public void onApply(int id, int old_owner, int old_armies) {
+	}
+	
+	// A change to country id has just been undone. It was occupied by undone_owner with undone_armies,
+	// and is now back to what GameStats says.
+	public void onUndo(int id, int undone_owner, int undone_armies) {
+	}
+	
 	public String getName() {
 		return name;
 	}
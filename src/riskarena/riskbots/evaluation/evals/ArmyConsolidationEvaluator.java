@@ -11,13 +11,9 @@ package riskarena.riskbots.evaluation.evals;
  * This encourages the consolidation of armies into larger ones. The best case of everything in
  * one army isn't usually a good strategy, so dampen that score from 1.0 to 0.5
  */
-import java.util.ArrayList;
-
-import riskarena.CountryInfo;
-import riskarena.CountryInterface;
 import riskarena.GameInfo;
-import riskarena.riskbots.evaluation.ArmyChange;
 import riskarena.riskbots.evaluation.GameStats;
+import riskarena.riskbots.evaluation.MoveBuffer;
 import riskarena.riskbots.evaluation.OccupationChange;
 
 public class ArmyConsolidationEvaluator extends AbstractEvaluator {
@@ -32,38 +28,32 @@ public class ArmyConsolidationEvaluator extends AbstractEvaluator {
 	}
 	
 	public double getScore(OccupationChange change) {
-		if(change.casualties() == stats.getCountries()[change.from()].getArmies() - 2)
+		if(stats.getArmies(change.from()) == 2)
 			return calculate(fortifiedTerritories - 1);
 		else
 			return getScore();
 	}
 	
-	public double getScore(ArrayList<ArmyChange> changes) {
-		CountryInterface countries[] = stats.getCountries();
-		int newFortifiedTerritories = fortifiedTerritories;
-		for(ArmyChange change : changes) {
-			if(countries[change.ID()].getPlayer() == game.me()) {
-				int oldA = countries[change.ID()].getArmies();
-				int newA = oldA += change.amount();
-				if(oldA > 1 && newA == 1) {
-					newFortifiedTerritories--;
-				}
-				if(oldA == 1 && newA > 1) {
-					newFortifiedTerritories++;
-				}
-			}
-		}
-		return calculate(newFortifiedTerritories);
+	public double getScore(MoveBuffer moves) {
+		return getScore();
 	}
 	
 	public void refresh() {
 		fortifiedTerritories = 0;
-		CountryInterface countries[] = stats.getCountries();
-		for(Integer friendly : stats.getMyCountries()) {
-			if(countries[friendly].getArmies() > 1) {
-				fortifiedTerritories++;
-			}
-		}
+		for(int i=0; i<stats.getNumMyCountries(); i++)
+			fortifiedTerritories += fortified(game.me(), stats.getArmies(stats.getMyCountry(i)));
+	}
+	
+	public void onApply(int id, int old_owner, int old_armies) {
+		fortifiedTerritories += fortified(stats.getOwner(id), stats.getArmies(id)) - fortified(old_owner, old_armies);
+	}
+	
+	public void onUndo(int id, int undone_owner, int undone_armies) {
+		fortifiedTerritories += fortified(stats.getOwner(id), stats.getArmies(id)) - fortified(undone_owner, undone_armies);
+	}
+	
+	private int fortified(int owner, int num_armies) {
+		return owner == game.me() && num_armies > 1 ? 1 : 0;
 	}
 	
 	private double calculate(int numFortifiedTerritories) {
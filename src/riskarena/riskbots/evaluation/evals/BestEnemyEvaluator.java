@@ -11,12 +11,10 @@ package riskarena.riskbots.evaluation.evals;
  * Makes it negative, since a higher enemy score is bad
  */
 
-import java.util.ArrayList;
-
 import riskarena.GameInfo;
 import riskarena.PlayerInfo;
-import riskarena.riskbots.evaluation.ArmyChange;
 import riskarena.riskbots.evaluation.GameStats;
+import riskarena.riskbots.evaluation.MoveBuffer;
 import riskarena.riskbots.evaluation.OccupationChange;
 
 public class BestEnemyEvaluator extends AbstractEvaluator {
@@ -36,7 +34,7 @@ public class BestEnemyEvaluator extends AbstractEvaluator {
 		return recalculate();
 	}
 	
-	public double getScore(ArrayList<ArmyChange> changes) {
+	public double getScore(MoveBuffer moves) {
 		return recalculate();
 	}
 	
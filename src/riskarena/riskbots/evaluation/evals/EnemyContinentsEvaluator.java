@@ -10,10 +10,9 @@ package riskarena.riskbots.evaluation.evals;
  * Scores the negative percentage of continent army bonuses being obtained by enemy players
  */
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import riskarena.GameInfo;
-import riskarena.riskbots.evaluation.ArmyChange;
 import riskarena.riskbots.evaluation.OccupationChange;
 /*
  * The EnemyContinentsEvaluator measures how many continent bonus armies enemy players receive (together)
@@ -21,13 +20,17 @@ import riskarena.riskbots.evaluation.OccupationChange;
  * Negative because it's bad.
  */
 import riskarena.riskbots.evaluation.GameStats;
+import riskarena.riskbots.evaluation.MoveBuffer;
 
 public class EnemyContinentsEvaluator extends AbstractEvaluator {
 	private int bonusThem = 0, bonusAll = 0;
+	private int contBonuses[];
+	private boolean counted[];	// counted[c] is true if continent c's bonus is in bonusThem
 	
 	public EnemyContinentsEvaluator(String name, GameStats stats, GameInfo game) {
 		super(name, stats, game);
-		int contBonuses[] = game.getContinentBonuses();
+		counted = new boolean[game.getNumContinents()];
+		contBonuses = game.getContinentBonuses();
 		for(int i=0; i<contBonuses.length; i++) {
 			bonusAll += contBonuses[i];
 		}
@@ -38,29 +41,43 @@ public class EnemyContinentsEvaluator extends AbstractEvaluator {
 		return -1 * bonusThem / (double)bonusAll;
 	}
 
-	public double getScore(ArrayList<ArmyChange> changes) {
+	public double getScore(MoveBuffer moves) {
 		return getScore();
 	}
 	
 	public double getScore(OccupationChange change) {
-		int priorThem = bonusThem;
-		recalculate();
-		double score = getScore();
-		bonusThem = priorThem;
-		return score;
+		return getScore();
 	}
 	
 	public void refresh() {
 		recalculate();
 	}
 	
+	public void onApply(int id, int old_owner, int old_armies) {
+		if(old_owner != stats.getOwner(id))
+			update(stats.getCont(id));
+	}
+	
+	public void onUndo(int id, int undone_owner, int undone_armies) {
+		if(undone_owner != stats.getOwner(id))
+			update(stats.getCont(id));
+	}
+	
 	private void recalculate() {
-		int contBonuses[] = game.getContinentBonuses();
-		int contOwnership[] = stats.getContinentOwnership();
 		bonusThem = 0;
-		for(int i=0; i<contBonuses.length; i++) {
-			if(contOwnership[i] != game.me() && contOwnership[i] != -1)
-				bonusThem += contBonuses[i];
+		Arrays.fill(counted, false);
+		for(int i=0; i<counted.length; i++)
+			update(i);
+	}
+	
+	// Brings continent cont's part of bonusThem up to date with GameStats
+	private void update(int cont) {
+		int owner = stats.getContinentOwnership()[cont];
+		boolean theirs = owner != game.me() && owner != -1;
+		if(theirs != counted[cont]) {
+			int bonus = contBonuses[cont];
+			bonusThem += theirs ? bonus : -bonus;
+			counted[cont] = theirs;
 		}
 	}
 	
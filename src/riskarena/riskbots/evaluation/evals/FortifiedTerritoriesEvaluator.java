@@ -11,13 +11,9 @@ package riskarena.riskbots.evaluation.evals;
  *	have more than 1 army on them (are "fortified") 
  */
 
-import java.util.ArrayList;
-
-import riskarena.CountryInfo;
-import riskarena.CountryInterface;
 import riskarena.GameInfo;
-import riskarena.riskbots.evaluation.ArmyChange;
 import riskarena.riskbots.evaluation.GameStats;
+import riskarena.riskbots.evaluation.MoveBuffer;
 import riskarena.riskbots.evaluation.OccupationChange;
 
 public class FortifiedTerritoriesEvaluator extends AbstractEvaluator {
@@ -32,38 +28,36 @@ public class FortifiedTerritoriesEvaluator extends AbstractEvaluator {
 		return calculate(fortifiedTerritories);
 	}
 	
+	// The attacking territory is left with its casualties taken away. If that leaves it with 2 armies,
+	// it won't be fortified once one has moved into the conquered territory.
 	public double getScore(OccupationChange change) {
-		if(change.casualties() == stats.getCountries()[change.from()].getArmies() - 2)
+		if(stats.getArmies(change.from()) == 2)
 			return calculate(fortifiedTerritories - 1);
 		else
 			return getScore();
 	}
 	
-	public double getScore(ArrayList<ArmyChange> changes) {
-		CountryInterface countries[] = stats.getCountries();
-		int newFortifiedTerritories = fortifiedTerritories;
-		for(ArmyChange change : changes) {
-			if(countries[change.ID()].getPlayer() == game.me()) {
-				int oldA = countries[change.ID()].getArmies();
-				int newA = oldA += change.amount();
-				if(oldA > 1 && newA == 1) {
-					newFortifiedTerritories--;
-				}
-				if(oldA == 1 && newA > 1) {
-					newFortifiedTerritories++;
-				}
-			}
-		}
-		return calculate(newFortifiedTerritories);
+	public double getScore(MoveBuffer moves) {
+		return getScore();
 	}
 	
 	public void refresh() {
 		fortifiedTerritories = 0;
-		CountryInterface countries[] = stats.getCountries();
-		for(int i=0; i<countries.length;i++) {
-			if(countries[i].isTaken() && countries[i].getPlayer() == game.me() && countries[i].getArmies() > 1)
-				fortifiedTerritories++;
-		}
+		for(int i=0; i<stats.getNumCountries();i++)
+			fortifiedTerritories += fortified(stats.getOwner(i), stats.getArmies(i));
+	}
+	
+	public void onApply(int id, int old_owner, int old_armies) {
+		fortifiedTerritories += fortified(stats.getOwner(id), stats.getArmies(id)) - fortified(old_owner, old_armies);
+	}
+	
+	public void onUndo(int id, int undone_owner, int undone_armies) {
+		fortifiedTerritories += fortified(stats.getOwner(id), stats.getArmies(id)) - fortified(undone_owner, undone_armies);
+	}
+	
+	// 1 if a territory occupied by owner with num_armies counts as fortified, otherwise 0
+	private int fortified(int owner, int num_armies) {
+		return owner == game.me() && num_armies > 1 ? 1 : 0;
 	}
 	
 	private double calculate(int forts) {
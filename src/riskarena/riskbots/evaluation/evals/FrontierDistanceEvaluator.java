@@ -16,28 +16,23 @@ package riskarena.riskbots.evaluation.evals;
  * where moveableArmies = TotalFriendlyArmies - numFriendlyTerritories
  */
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-
-import com.sun.tools.javac.util.Pair;
-
-import riskarena.CountryInfo;
-import riskarena.CountryInterface;
 import riskarena.GameInfo;
-import riskarena.OutputFormat;
-import riskarena.Risk;
-import riskarena.riskbots.evaluation.ArmyChange;
+import riskarena.World;
 import riskarena.riskbots.evaluation.GameStats;
+import riskarena.riskbots.evaluation.MoveBuffer;
 import riskarena.riskbots.evaluation.OccupationChange;
 
 public class FrontierDistanceEvaluator extends AbstractEvaluator {
 	private double score;
-	private int distances[];
-	private int armies[];
+	private int distances[];	// distances[i] is how far friendly territory i is from the frontier, as of the last refresh
+	private int queue[];		// Used by the breadth first search in calculateFrontierDistances()
 	private int maxDist;
+	private int added;			// The sum over friendly territories of #moveableArmiesinTerritory * frontierDist
 	
 	public FrontierDistanceEvaluator(String name, GameStats stats, GameInfo game) {
 		super(name, stats, game);
+		distances = new int[game.getNumCountries()];
+		queue = new int[game.getNumCountries()];
 		refresh();
 	}
 	
@@ -49,35 +44,38 @@ public class FrontierDistanceEvaluator extends AbstractEvaluator {
 		return score;
 	}
 	
-	public double getScore(ArrayList<ArmyChange> changes) {
-		// Apply army changes
-		for(ArmyChange change : changes) {
-			armies[change.ID()] += change.amount();
-		}
-		double result = recalculate();
-		// Unapply army changes
-		for(ArmyChange change : changes) {
-			armies[change.ID()] -= change.amount();
-		}
-		return result;
+	public double getScore(MoveBuffer moves) {
+		return recalculate();
 	}
 	
 	public void refresh() {
 		calculateFrontierDistances();
-		CountryInterface countries[] = stats.getCountries();
-		armies = new int[countries.length];
-		for(int i=0; i<countries.length; i++)
-			armies[i] = countries[i].getArmies();
+		added = 0;
+		for(int i=0; i<stats.getNumMyCountries(); i++) {
+			int friendly = stats.getMyCountry(i);
+			added += moveableDistance(friendly, game.me(), stats.getArmies(friendly));
+		}
 		score = recalculate();
 	}
 	
-	// Sets the score variable
+	public void onApply(int id, int old_owner, int old_armies) {
+		added += moveableDistance(id, stats.getOwner(id), stats.getArmies(id)) - moveableDistance(id, old_owner, old_armies);
+	}
+	
+	public void onUndo(int id, int undone_owner, int undone_armies) {
+		added += moveableDistance(id, stats.getOwner(id), stats.getArmies(id)) - moveableDistance(id, undone_owner, undone_armies);
+	}
+	
+	// Country id's part of "added" if it were occupied by owner with num_armies
+	private int moveableDistance(int id, int owner, int num_armies) {
+		if(owner != game.me() || distances[id] == Integer.MAX_VALUE)
+			return 0;
+		return (num_armies - 1) * distances[id];
+	}
+	
+	// Returns the score for the current value of "added"
 	private double recalculate() {
-		int added = 0;
-		for(Integer friendly : stats.getMyCountries()) {
-			added += (armies[friendly] - 1) * distances[friendly];
-		}
-		int worstScore = (stats.getArmiesPerPlayer()[game.me()] - stats.getMyCountries().size()) * maxDist;
+		int worstScore = (stats.getArmiesPerPlayer()[game.me()] - stats.getNumMyCountries()) * maxDist;
 		if(worstScore == 0)
 			return 1.0;		// Everything's on the frontier
 		else
@@ -85,36 +83,35 @@ public class FrontierDistanceEvaluator extends AbstractEvaluator {
 	}
 	
 	/*
-	 * Filles the distnaces array where distances[i] is the min number of territories needed
-	 * to reach the frontier (undefined for enemy territories)
+	 * Fills the distances array where distances[i] is the min number of territories needed
+	 * to reach the frontier (Integer.MAX_VALUE for enemy territories), using a breadth first
+	 * search out from the frontier through friendly territories.
 	 */
 	private void calculateFrontierDistances() {
-		distances = new int[game.getNumCountries()];
 		maxDist = Integer.MIN_VALUE;
-		
-		CountryInterface countries[] = stats.getCountries();
 		java.util.Arrays.fill(distances, Integer.MAX_VALUE);
-		ArrayDeque< Pair<Integer, Integer> > Q = new ArrayDeque< Pair<Integer, Integer> >();
-		for(Integer frontier : stats.getFrontier()) {
-			Q.push( new Pair<Integer, Integer>(new Integer(frontier), 0) );
+		int head = 0, tail = 0;
+		for(int i=0; i<stats.getFrontierSize(); i++) {
+			int frontier = stats.getFrontierCountry(i);
+			distances[frontier] = 0;
+			queue[tail++] = frontier;
 		}
-		while(!Q.isEmpty()) {
-			Pair<Integer, Integer> current = Q.pop();
-			if(countries[current.fst].getPlayer() != game.me())
-				continue;
-			if(distances[current.fst] > current.snd ) {
-				distances[current.fst] = current.snd;
-				int adj[] = stats.getWorld().getAdjacencies(current.fst);
-				for(int a = 0; a<adj.length; a++)
-					Q.push(new Pair<Integer,Integer>(adj[a], current.snd + 1));
+		World world = stats.getWorld();
+		while(head < tail) {
+			int current = queue[head++];
+			for(int a = 0; a<world.getDegree(current); a++) {
+				int adj = world.getAdjacency(current, a);
+				if(stats.getOwner(adj) == game.me() && distances[adj] == Integer.MAX_VALUE) {
+					distances[adj] = distances[current] + 1;
+					queue[tail++] = adj;
+				}
 			}
 		}
-		for(Integer friendly : stats.getMyCountries()) {
+		for(int i=0; i<stats.getNumMyCountries(); i++) {
+			int friendly = stats.getMyCountry(i);
 			if(distances[friendly] > maxDist)
 				maxDist = distances[friendly];
 		}
-		//for(Integer friendly : stats.getMyCountries())
-		//	Risk.sayOutput(countries[friendly].getName() + ": " + distances[friendly], OutputFormat.BLUE);
 	}
 	
 }
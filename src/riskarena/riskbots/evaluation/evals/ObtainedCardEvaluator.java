@@ -7,16 +7,14 @@
  ******************************************************************************/
 package riskarena.riskbots.evaluation.evals;
 
-import java.util.ArrayList;
-
 import riskarena.GameInfo;
-import riskarena.riskbots.evaluation.ArmyChange;
 /*
  * Evaluates whether or not the player will pick up a card at the end of their turn.
  * Formula:		0 if no, CARD_REWARD*sqrt(game turn #)
  */
 import riskarena.riskbots.evaluation.CardIndicator;
 import riskarena.riskbots.evaluation.GameStats;
+import riskarena.riskbots.evaluation.MoveBuffer;
 import riskarena.riskbots.evaluation.OccupationChange;
 
 public class ObtainedCardEvaluator extends AbstractEvaluator {
@@ -44,7 +42,7 @@ public class ObtainedCardEvaluator extends AbstractEvaluator {
 			return score;
 	}
 	
-	public double getScore(ArrayList<ArmyChange> changes) {
+	public double getScore(MoveBuffer moves) {
 		return getScore();
 	}
 	
@@ -7,16 +7,14 @@
  ******************************************************************************/
 package riskarena.riskbots.evaluation.evals;
 
-import java.util.ArrayList;
-
 import riskarena.GameInfo;
-import riskarena.riskbots.evaluation.ArmyChange;
 import riskarena.riskbots.evaluation.OccupationChange;
 /*
  * The OccurpiedTerritories measures how many territories the player owns.
  * It returns this number divided by the total number of territories on the board.
  */
 import riskarena.riskbots.evaluation.GameStats;
+import riskarena.riskbots.evaluation.MoveBuffer;
 
 
 public class OccupiedTerritoriesEvaluator extends AbstractEvaluator {
@@ -35,7 +33,7 @@ public class OccupiedTerritoriesEvaluator extends AbstractEvaluator {
 		return calculate();
 	}
 	
-	public double getScore(ArrayList<ArmyChange> changes) {
+	public double getScore(MoveBuffer moves) {
 		return calculate();
 	}
 	
@@ -44,7 +42,7 @@ public class OccupiedTerritoriesEvaluator extends AbstractEvaluator {
 	}
 	
 	private double calculate() {
-		return stats.getOccupationCounts()[game.me()] / (double)stats.getCountries().length;
+		return stats.getOccupationCounts()[game.me()] / (double)stats.getNumCountries();
 	}
 	
 }
@@ -7,18 +7,16 @@
  ******************************************************************************/
 package riskarena.riskbots.evaluation.evals;
 
-import java.util.ArrayList;
-
 import riskarena.GameInfo;
 import riskarena.OutputFormat;
 import riskarena.Risk;
-import riskarena.riskbots.evaluation.ArmyChange;
 import riskarena.riskbots.evaluation.OccupationChange;
 /*
  * The OwnArmiesEvaluator measures how many armies the player has on the board.
  * It returns this number divided by the total number of armies on the board.
  */
 import riskarena.riskbots.evaluation.GameStats;
+import riskarena.riskbots.evaluation.MoveBuffer;
 
 public class OwnArmiesEvaluator extends AbstractEvaluator {
 	private double score;
@@ -36,7 +34,7 @@ public class OwnArmiesEvaluator extends AbstractEvaluator {
 		return calculate();
 	}
 	
-	public double getScore(ArrayList<ArmyChange> changes) {
+	public double getScore(MoveBuffer moves) {
 		return calculate();
 	}
 	
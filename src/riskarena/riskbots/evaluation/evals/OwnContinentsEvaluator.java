@@ -11,19 +11,22 @@ package riskarena.riskbots.evaluation.evals;
  * It returns this number divided by the total number of army continent bonuses.
  */
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import riskarena.GameInfo;
-import riskarena.riskbots.evaluation.ArmyChange;
 import riskarena.riskbots.evaluation.GameStats;
+import riskarena.riskbots.evaluation.MoveBuffer;
 import riskarena.riskbots.evaluation.OccupationChange;
 
 public class OwnContinentsEvaluator extends AbstractEvaluator {
 	private int bonusMe = 0, bonusAll = 0;
+	private int contBonuses[];
+	private boolean counted[];	// counted[c] is true if continent c's bonus is in bonusMe
 	
 	public OwnContinentsEvaluator(String name, GameStats stats, GameInfo game) {
 		super(name, stats, game);
-		int contBonuses[] = game.getContinentBonuses();
+		counted = new boolean[game.getNumContinents()];
+		contBonuses = game.getContinentBonuses();
 		for(int i=0; i<contBonuses.length; i++) {
 			bonusAll += contBonuses[i];
 		}
@@ -35,14 +38,10 @@ public class OwnContinentsEvaluator extends AbstractEvaluator {
 	}
 	
 	public double getScore(OccupationChange change) {
-		int priorMe = bonusMe;
-		recalculate();
-		double score = getScore();
-		bonusMe = priorMe;
-		return score;
+		return getScore();
 	}
 	
-	public double getScore(ArrayList<ArmyChange> changes) {
+	public double getScore(MoveBuffer moves) {
 		return getScore();
 	}
 	
@@ -50,13 +49,30 @@ public class OwnContinentsEvaluator extends AbstractEvaluator {
 		recalculate();
 	}
 	
+	public void onApply(int id, int old_owner, int old_armies) {
+		if(old_owner != stats.getOwner(id))
+			update(stats.getCont(id));
+	}
+	
+	public void onUndo(int id, int undone_owner, int undone_armies) {
+		if(undone_owner != stats.getOwner(id))
+			update(stats.getCont(id));
+	}
+	
 	private void recalculate() {
-		int contBonuses[] = game.getContinentBonuses();
-		int contOwnership[] = stats.getContinentOwnership();
 		bonusMe = 0;
-		for(int i=0; i<contBonuses.length; i++) {
-			if(contOwnership[i] == game.me())
-				bonusMe += contBonuses[i];
+		Arrays.fill(counted, false);
+		for(int i=0; i<counted.length; i++)
+			update(i);
+	}
+	
+	// Brings continent cont's part of bonusMe up to date with GameStats
+	private void update(int cont) {
+		boolean mine = stats.getContinentOwnership()[cont] == game.me();
+		if(mine != counted[cont]) {
+			int bonus = contBonuses[cont];
+			bonusMe += mine ? bonus : -bonus;
+			counted[cont] = mine;
 		}
 	}
 	
@@ -11,15 +11,12 @@ package riskarena.riskbots.evaluation.evals;
  * increases to actions that result in a focus on that continent. Its general score is always 0.0
  */
 
-import java.util.ArrayList;
-
-import riskarena.CountryInfo;
-import riskarena.CountryInterface;
 import riskarena.GameInfo;
 import riskarena.OutputFormat;
 import riskarena.Risk;
-import riskarena.riskbots.evaluation.ArmyChange;
+import riskarena.World;
 import riskarena.riskbots.evaluation.GameStats;
+import riskarena.riskbots.evaluation.MoveBuffer;
 import riskarena.riskbots.evaluation.OccupationChange;
 
 public class TargetContEvaluator extends AbstractEvaluator {
@@ -37,35 +34,41 @@ public class TargetContEvaluator extends AbstractEvaluator {
 	/*
 	 * Finds the net favorable change of armies in the target continent, normalizes by the number
 	 * of armies in the continent before.
-	 * @see riskarena.riskbots.evaluation.evals.AbstractEvaluator#getScore(java.util.ArrayList)
+	 * @see riskarena.riskbots.evaluation.evals.AbstractEvaluator#getScore(riskarena.riskbots.evaluation.MoveBuffer)
 	 */
-	public double getScore(ArrayList<ArmyChange> changes) {
+	public double getScore(MoveBuffer moves) {
 		double net = 0;
-		CountryInterface countries[] = stats.getCountries();
-		for(ArmyChange change : changes) {
-			if(countries[change.ID()].getCont() == stats.getTarget()) {
-				if(countries[change.ID()].getPlayer() == game.me()) {
-					double bonusMultiplier = 1.0;
-					if(change.amount() > 0) {
-						// Give bonus if there's an enemy next door in the target continent (for attack planning)
-						int adj[] = stats.getWorld().getAdjacencies(change.ID());
-						for(int a = 0; a<adj.length; a++) {
-							if(countries[adj[a]].getCont() == stats.getTarget() && countries[adj[a]].getPlayer() != game.me())
-								bonusMultiplier = 1.5;
-						}
-					}
-					net += bonusMultiplier * change.amount();
-				} else {
-					net -= change.amount();
-				}
-			}
+		for(int i=0; i<moves.size(); i++) {
+			if(moves.from(i) != -1)
+				net += netChange(moves.from(i), -1 * moves.amount(i));
+			if(moves.to(i) != -1)
+				net += netChange(moves.to(i), moves.amount(i));
 		}
 		double result = net / (double)armiesInTarget;
 		return result;
 	}
 	
+	// How favorable a change of amount armies on country id is, if it is in the target continent
+	private double netChange(int id, int amount) {
+		if(stats.getCont(id) != stats.getTarget())
+			return 0.0;
+		if(stats.getOwner(id) != game.me())
+			return -1 * amount;
+		double bonusMultiplier = 1.0;
+		if(amount > 0) {
+			// Give bonus if there's an enemy next door in the target continent (for attack planning)
+			World world = stats.getWorld();
+			for(int a = 0; a<world.getDegree(id); a++) {
+				int adj = world.getAdjacency(id, a);
+				if(stats.getCont(adj) == stats.getTarget() && stats.getOwner(adj) != game.me())
+					bonusMultiplier = 1.5;
+			}
+		}
+		return bonusMultiplier * amount;
+	}
+	
 	public double getScore(OccupationChange change) {
-		if(stats.getCountries()[change.to()].getCont() == stats.getTarget()) {
+		if(stats.getCont(change.to()) == stats.getTarget()) {
 			return reward;
 		} else
 			return 0.0;
@@ -73,10 +76,9 @@ public class TargetContEvaluator extends AbstractEvaluator {
 	
 	public void refresh() {
 		armiesInTarget = 0;
-		CountryInterface countries[] = stats.getCountries();
 		for(int i=0; i<game.getNumCountries(); i++) {
-			if(countries[i].getCont() == stats.getTarget())
-				armiesInTarget += countries[i].getArmies();
+			if(stats.getCont(i) == stats.getTarget())
+				armiesInTarget += stats.getArmies(i);
 		}
 	}
 	
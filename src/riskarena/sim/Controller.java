@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.sim;
+/*
+ * A Controller makes the decisions of one player in a Simulator, the way a RiskBot does in a
+ * Game, except that answers are returned (or written into the answer array) rather than sent,
+ * and the game is seen through the SimState being played. The state must not be changed.
+ * Decisions are asked for at the same points and checked by the same rules as in Game; a
+ * Controller that breaks them stops the game with an IllegalStateException.
+ *
+ * Evan Radkoff
+ */
+
+public interface Controller {
+
+	// Returns the ID of an unclaimed territory to claim
+	public int claimTerritory(SimState state);
+
+	/*
+	 * Sets answer[0] to the ID of one of the player's territories and answer[1] to how many
+	 * armies to place on it, from 1 to num_to_place. Asked again until all are placed.
+	 */
+	public void fortifyTerritory(SimState state, int num_to_place, int answer[]);
+
+	/*
+	 * Sets answer[0] to the territory to attack from, or a negative number to stop attacking,
+	 * answer[1] to the territory to attack and answer[2] to the number of dice (1 to 3).
+	 * Each answer is one roll of the dice.
+	 */
+	public void launchAttack(SimState state, int answer[]);
+
+	// Returns how many armies, from min to max, to move from attacker into the captured defender
+	public int fortifyAfterVictory(SimState state, int attacker, int defender, int min, int max);
+
+	// Returns whether to turn in a set of cards, when it isn't required
+	public boolean chooseToTurnInSet(SimState state);
+
+	/*
+	 * Returns which set of cards to turn in, from 0 to num_sets-1. Set i is the card types
+	 * sets[3*i], sets[3*i+1] and sets[3*i+2], in the order of Deck.possibleCardTriples().
+	 */
+	public int chooseCardSet(SimState state, int sets[], int num_sets);
+
+	/*
+	 * Sets answer[0] to a territory to move armies from, or a negative number not to, answer[1]
+	 * to the neighboring territory of the player's to move them to and answer[2] to how many.
+	 */
+	public void fortifyPosition(SimState state, int answer[]);
+
+	// Called when the player is out of the game, or has won it, with the place they finished in
+	public void endGame(SimState state, int place);
+}
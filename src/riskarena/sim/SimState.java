@@ -0,0 +1,579 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.sim;
+/*
+ * A SimState is a compact copy of a game of Risk that can be played forward as fast as
+ * possible, for bots that search through possible futures. Everything that changes during a
+ * game is kept in int arrays, so a SimState is copied with copyFrom() in a handful of
+ * arraycopys, and none of the rules allocate. The rules are the same as Game's: how many
+ * armies a player gets from territories, continents and sets of cards (see Deck), the odds
+ * of each roll (see Dice), capturing and eliminating, drawing cards and fortifying.
+ * A SimState only knows the rules, not whose decisions to ask for or when; it's up to
+ * whoever plays it (like Simulator) to call the methods in the order Game would.
+ *
+ * A SimState made from a GameInfo sees the game like the bot does: the types of the other
+ * players' cards aren't known, so determinize() deals them out from the cards the bot can't
+ * see, and should be called on each copy that is played out.
+ *
+ * Evan Radkoff
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+
+import riskarena.BoardView;
+import riskarena.Dice;
+import riskarena.GameInfo;
+import riskarena.PlayerInfo;
+import riskarena.World;
+
+public final class SimState {
+	public static final int CARD_TYPES = 4;		// Infantry, cavalry, artillery and wildcards
+	public static final int MAX_SETS = 14;		// The most sets of cards any hand can be turned in as
+	private static final int DECK[] = { 14, 14, 14, 2 };	// The cards of each type in a full deck
+	private static final int DECK_SIZE = 44;
+
+	// The map, shared by every copy
+	private final World world;
+	private final int NUM_COUNTRIES, NUM_PLAYERS, NUM_CONTINENTS;
+	private final int conts[];		// conts[i] is the continent of territory i
+	private final int cont_bonuses[], cont_sizes[];
+
+	// The game
+	private final int owners[];		// owners[i] is the player occupying territory i (-1 if unclaimed)
+	private final int armies[];
+	private final int territory_counts[];	// Territories held by each player
+	private final int army_counts[];	// Armies on the board of each player
+	private final int cont_counts[];	// cont_counts[p*NUM_CONTINENTS + c] is how much of continent c player p holds
+	private final int cards[];		// cards[p*CARD_TYPES + t] is how many cards of type t player p holds
+	private final int deck[] = new int[DECK_SIZE];	// The cards left to draw, in the same order Deck keeps them
+	private int deck_size;
+	private final boolean out[];	// Which players have been eliminated
+	private int players_left;
+	private int current;			// The player whose turn it is
+	private int armies_from_next_set;
+	private boolean conquered;		// Whether the current player has captured a territory this turn
+	private int viewer;		// The player whose cards are the only ones known, or -1 if all are
+
+	/*
+	 * An empty board of the given map for num_players players, with a full deck and player 0 to go
+	 */
+	public SimState(World w, int continents[], int bonuses[], int num_players) {
+		world = w;
+		NUM_COUNTRIES = continents.length;
+		NUM_PLAYERS = num_players;
+		NUM_CONTINENTS = bonuses.length;
+		conts = continents.clone();
+		cont_bonuses = bonuses.clone();
+		cont_sizes = new int[NUM_CONTINENTS];
+		for(int i=0;i<NUM_COUNTRIES;i++)
+			cont_sizes[conts[i]]++;
+		owners = new int[NUM_COUNTRIES];
+		armies = new int[NUM_COUNTRIES];
+		territory_counts = new int[NUM_PLAYERS];
+		army_counts = new int[NUM_PLAYERS];
+		cont_counts = new int[NUM_PLAYERS * NUM_CONTINENTS];
+		cards = new int[NUM_PLAYERS * CARD_TYPES];
+		out = new boolean[NUM_PLAYERS];
+		reset();
+	}
+
+	/*
+	 * The game as the player using game sees it, at a point where it's their turn. Call determinize()
+	 * before playing it out.
+	 */
+	public SimState(GameInfo game) {
+		this(game.getWorldInfo(), continentsOf(game.getBoardView()), game.getContinentBonuses(), game.getMaxPlayerID());
+		load(game);
+	}
+
+	// A copy of other, sharing its map
+	public SimState(SimState other) {
+		world = other.world;
+		NUM_COUNTRIES = other.NUM_COUNTRIES;
+		NUM_PLAYERS = other.NUM_PLAYERS;
+		NUM_CONTINENTS = other.NUM_CONTINENTS;
+		conts = other.conts;
+		cont_bonuses = other.cont_bonuses;
+		cont_sizes = other.cont_sizes;
+		owners = new int[NUM_COUNTRIES];
+		armies = new int[NUM_COUNTRIES];
+		territory_counts = new int[NUM_PLAYERS];
+		army_counts = new int[NUM_PLAYERS];
+		cont_counts = new int[NUM_PLAYERS * NUM_CONTINENTS];
+		cards = new int[NUM_PLAYERS * CARD_TYPES];
+		out = new boolean[NUM_PLAYERS];
+		copyFrom(other);
+	}
+
+	private static int[] continentsOf(BoardView board) {
+		int c[] = new int[board.getNumCountries()];
+		for(int i=0;i<c.length;i++)
+			c[i] = board.getCont(i);
+		return c;
+	}
+
+	/*
+	 * Makes this state the game as the player using game sees it now. The map must be the same one.
+	 */
+	public void load(GameInfo game) {
+		BoardView board = game.getBoardView();
+		Arrays.fill(territory_counts, 0);
+		Arrays.fill(army_counts, 0);
+		Arrays.fill(cont_counts, 0);
+		Arrays.fill(cards, 0);
+		for(int i=0;i<NUM_COUNTRIES;i++) {
+			owners[i] = board.getOwner(i);
+			armies[i] = board.getArmies(i);
+			if(owners[i] != -1)
+				count(i, owners[i], armies[i], 1);
+		}
+		// Only players that haven't been eliminated are listed. Only the number of cards the others hold
+		// is known, so for now they're counted as wildcards, and determinize() deals out the types.
+		Arrays.fill(out, true);
+		PlayerInfo players[] = game.getPlayerInfo();
+		for(int i=0;i<players.length;i++) {
+			out[players[i].getId()] = false;
+			cards[players[i].getId() * CARD_TYPES + 3] = players[i].getNumCards();
+		}
+		players_left = players.length;
+		viewer = game.me();
+		int mine[] = game.getCardInfo();
+		for(int t=0;t<CARD_TYPES;t++)
+			cards[viewer * CARD_TYPES + t] = mine[t];
+		current = viewer;
+		armies_from_next_set = game.getArmiesFromNextSet();
+		conquered = false;
+		determinize(null);
+	}
+
+	/*
+	 * Deals the cards that the viewer can't see, those in the other players' hands and the deck, at
+	 * random from the cards the viewer doesn't hold. Each player keeps the number of cards they have.
+	 * With a null Random, they are dealt in order instead.
+	 */
+	public void determinize(Random rand) {
+		if(viewer == -1)
+			return;
+		deck_size = 0;
+		for(int t=0;t<CARD_TYPES;t++) {
+			for(int k=cards[viewer * CARD_TYPES + t]; k<DECK[t]; k++)
+				deck[deck_size++] = t;
+		}
+		for(int p=0;p<NUM_PLAYERS;p++) {
+			if(p == viewer)
+				continue;
+			int hand = getNumCards(p);
+			for(int t=0;t<CARD_TYPES;t++)
+				cards[p * CARD_TYPES + t] = 0;
+			for(int k=0;k<hand && deck_size > 0;k++) {
+				int index = rand == null ? deck_size - 1 : rand.nextInt(deck_size);
+				cards[p * CARD_TYPES + deck[index]]++;
+				deck[index] = deck[--deck_size];
+			}
+		}
+	}
+
+	// Makes this state a new game: an empty board, a full deck, everyone in and player 0 to go
+	public void reset() {
+		Arrays.fill(owners, -1);
+		Arrays.fill(armies, 0);
+		Arrays.fill(territory_counts, 0);
+		Arrays.fill(army_counts, 0);
+		Arrays.fill(cont_counts, 0);
+		Arrays.fill(cards, 0);
+		Arrays.fill(out, false);
+		deck_size = 0;
+		for(int k=0;k<DECK[0];k++) {	// In the same order as Deck
+			deck[deck_size++] = 0;
+			deck[deck_size++] = 1;
+			deck[deck_size++] = 2;
+		}
+		deck[deck_size++] = 3;
+		deck[deck_size++] = 3;
+		players_left = NUM_PLAYERS;
+		current = 0;
+		armies_from_next_set = 4;
+		conquered = false;
+		viewer = -1;
+	}
+
+	// Makes this state the same game as other, which must be of the same map
+	public void copyFrom(SimState other) {
+		System.arraycopy(other.owners, 0, owners, 0, NUM_COUNTRIES);
+		System.arraycopy(other.armies, 0, armies, 0, NUM_COUNTRIES);
+		System.arraycopy(other.territory_counts, 0, territory_counts, 0, NUM_PLAYERS);
+		System.arraycopy(other.army_counts, 0, army_counts, 0, NUM_PLAYERS);
+		System.arraycopy(other.cont_counts, 0, cont_counts, 0, cont_counts.length);
+		System.arraycopy(other.cards, 0, cards, 0, cards.length);
+		System.arraycopy(other.deck, 0, deck, 0, other.deck_size);
+		System.arraycopy(other.out, 0, out, 0, NUM_PLAYERS);
+		deck_size = other.deck_size;
+		players_left = other.players_left;
+		current = other.current;
+		armies_from_next_set = other.armies_from_next_set;
+		conquered = other.conquered;
+		viewer = other.viewer;
+	}
+
+	// Adds (sign 1) or takes away (sign -1) territory id, held by owner with the given armies, from the running counts
+	private void count(int id, int owner, int a, int sign) {
+		territory_counts[owner] += sign;
+		army_counts[owner] += sign * a;
+		cont_counts[owner * NUM_CONTINENTS + conts[id]] += sign;
+	}
+
+	/***** The rules *****/
+
+	// The number of armies each player starts with, like Game.placeInitialArmies()
+	public int startingArmies() {
+		switch(NUM_PLAYERS) {
+		case 2: return 45;
+		case 3: return 35;
+		case 4: return 30;
+		case 5: return 25;
+		default: return 20;
+		}
+	}
+
+	/*
+	 * The current player claims territory id with one army. Returns false if it has already been claimed.
+	 */
+	public boolean claim(int id) {
+		if(armies[id] != 0)
+			return false;
+		owners[id] = current;
+		armies[id] = 1;
+		count(id, current, 1, 1);
+		return true;
+	}
+
+	/*
+	 * The current player places n armies on territory id. Returns false if it isn't theirs.
+	 */
+	public boolean place(int id, int n) {
+		if(owners[id] != current)
+			return false;
+		armies[id] += n;
+		army_counts[current] += n;
+		return true;
+	}
+
+	// The armies the current player gets for the territories they hold, like Game.armiesFromTerritories()
+	public int armiesFromTerritories() {
+		return armiesFromTerritories(current);
+	}
+
+	public int armiesFromTerritories(int player) {
+		return Math.max(territory_counts[player] / 3, 3);
+	}
+
+	// The armies the current player gets for the continents they hold, like Game.armiesFromContinents()
+	public int armiesFromContinents() {
+		return armiesFromContinents(current);
+	}
+
+	public int armiesFromContinents(int player) {
+		int bonus = 0;
+		for(int c=0;c<NUM_CONTINENTS;c++) {
+			if(cont_counts[player * NUM_CONTINENTS + c] == cont_sizes[c])
+				bonus += cont_bonuses[c];
+		}
+		return bonus;
+	}
+
+	/*
+	 * Fills sets with the sets of cards the current player could turn in, three card types each, in
+	 * the same order as Deck.possibleCardTriples(). sets must hold at least MAX_SETS*3 ints.
+	 * Returns the number of sets.
+	 */
+	public int possibleSets(int sets[]) {
+		int base = current * CARD_TYPES;
+		int i = cards[base], c = cards[base + 1], a = cards[base + 2], w = cards[base + 3];
+		int n = 0;
+		if(i > 0 && c > 0 && a > 0)
+			n = set(sets, n, 0, 1, 2);
+		if(i >= 3)
+			n = set(sets, n, 0, 0, 0);
+		if(c >= 3)
+			n = set(sets, n, 1, 1, 1);
+		if(a >= 3)
+			n = set(sets, n, 2, 2, 2);
+		if(w >= 1) {
+			if(i >= 2)
+				n = set(sets, n, 0, 0, 3);
+			if(c >= 2)
+				n = set(sets, n, 1, 1, 3);
+			if(a >= 2)
+				n = set(sets, n, 2, 2, 3);
+			if(i >= 1 && c >= 1)
+				n = set(sets, n, 0, 1, 3);
+			if(i >= 1 && a >= 1)
+				n = set(sets, n, 0, 2, 3);
+			if(c >= 1 && a >= 1)
+				n = set(sets, n, 1, 2, 3);
+		}
+		if(w >= 2) {
+			if(i >= 1)
+				n = set(sets, n, 0, 0, 3);
+			if(c >= 1)
+				n = set(sets, n, 1, 1, 3);
+			if(a >= 1)
+				n = set(sets, n, 2, 2, 3);
+		}
+		if(w >= 3)
+			n = set(sets, n, 3, 3, 3);
+		return n;
+	}
+
+	private static int set(int sets[], int n, int a, int b, int c) {
+		sets[n * 3] = a;
+		sets[n * 3 + 1] = b;
+		sets[n * 3 + 2] = c;
+		return n + 1;
+	}
+
+	/*
+	 * The current player turns in a set of cards of types a, b and c, which go back into the deck.
+	 * Returns the number of armies it's worth. Like Game, this doesn't check that the player has them.
+	 */
+	public int turnInSet(int a, int b, int c) {
+		int base = current * CARD_TYPES;
+		cards[base + a]--;
+		cards[base + b]--;
+		cards[base + c]--;
+		deck[deck_size++] = a;
+		deck[deck_size++] = b;
+		deck[deck_size++] = c;
+		int worth = armies_from_next_set;
+		if(armies_from_next_set < 12) armies_from_next_set += 2;	// Like GameData.advanceCardArmies()
+		else if(armies_from_next_set == 12) armies_from_next_set += 3;
+		else armies_from_next_set += 5;
+		return worth;
+	}
+
+	/*
+	 * One roll of the dice, attacking territory 'to' from 'from' with attack_dice dice. The defender
+	 * rolls two dice unless they only have one army. The odds, and the way a roll is chosen from
+	 * rand, are the same as Dice's. Returns true if 'to' has no armies left.
+	 */
+	public boolean roll(int from, int to, int attack_dice, Random rand) {
+		int def_dice = armies[to] == 1 ? 1 : 2;
+		float roll = rand.nextFloat();
+		int attacker_loss = 0, defender_loss = 0;
+		if(def_dice == 1 || attack_dice == 1) {
+			double p;
+			if(def_dice == 2)
+				p = Dice.ONE_ATTACKER_VS_TWO;
+			else if(attack_dice == 1)
+				p = Dice.ONE_ATTACKER_VS_ONE;
+			else if(attack_dice == 2)
+				p = Dice.TWO_ATTACKERS_VS_ONE;
+			else
+				p = Dice.THREE_ATTACKERS_VS_ONE;
+			if(roll < p)
+				defender_loss = 1;
+			else
+				attacker_loss = 1;
+		} else {
+			double both = attack_dice == 2 ? Dice.TWO_VS_TWO_DEFENDER_LOSES_TWO : Dice.THREE_VS_TWO_DEFENDER_LOSES_TWO;
+			double lost = attack_dice == 2 ? Dice.TWO_VS_TWO_ATTACKER_LOSES_TWO : Dice.THREE_VS_TWO_ATTACKER_LOSES_TWO;
+			if(roll < both)
+				defender_loss = 2;
+			else if(roll < both + lost)
+				attacker_loss = 2;
+			else {
+				attacker_loss = 1;
+				defender_loss = 1;
+			}
+		}
+		armies[from] -= attacker_loss;
+		army_counts[owners[from]] -= attacker_loss;
+		armies[to] -= defender_loss;
+		army_counts[owners[to]] -= defender_loss;
+		return armies[to] == 0;
+	}
+
+	/*
+	 * The current player takes territory id, which has no armies left. If that was the last territory
+	 * of its owner, they are eliminated and (unless the game is over) their cards go to the current player.
+	 * Returns the ID of the eliminated player, or -1 if no one was.
+	 */
+	public int capture(int id) {
+		int loser = owners[id];
+		count(id, loser, 0, -1);
+		owners[id] = current;
+		count(id, current, 0, 1);
+		conquered = true;
+		if(territory_counts[loser] > 0)
+			return -1;
+		out[loser] = true;
+		players_left--;
+		if(players_left > 1) {
+			for(int t=0;t<CARD_TYPES;t++) {
+				cards[current * CARD_TYPES + t] += cards[loser * CARD_TYPES + t];
+				cards[loser * CARD_TYPES + t] = 0;
+			}
+		}
+		return loser;
+	}
+
+	/*
+	 * Moves n armies from one territory to another of the same player, for occupying a captured
+	 * territory or fortifying. Like Game, this doesn't check that they're adjacent.
+	 */
+	public void move(int from, int to, int n) {
+		armies[from] -= n;
+		armies[to] += n;
+	}
+
+	/*
+	 * Draws a card for the current player, like Deck.drawCard(). Returns the type of card, or -1 if
+	 * the deck is empty.
+	 */
+	public int drawCard(Random rand) {
+		if(deck_size == 0)
+			return -1;
+		int index = rand.nextInt(deck_size);
+		int card = deck[index];
+		System.arraycopy(deck, index + 1, deck, index, deck_size - index - 1);	// Keep the order, like ArrayList.remove()
+		deck_size--;
+		cards[current * CARD_TYPES + card]++;
+		return card;
+	}
+
+	/*
+	 * Ends the current player's turn, going on to the next player still in, like Game.advanceTurn()
+	 */
+	public void advanceTurn() {
+		conquered = false;
+		if(players_left == 0)
+			return;
+		do {
+			current = current == NUM_PLAYERS - 1 ? 0 : current + 1;
+		} while(out[current]);
+	}
+
+	public boolean isOver() {
+		return players_left <= 1;
+	}
+
+	// The last player standing, or -1 if the game isn't over
+	public int getWinner() {
+		if(players_left != 1)
+			return -1;
+		for(int p=0;p<NUM_PLAYERS;p++) {
+			if(!out[p])
+				return p;
+		}
+		return -1;
+	}
+
+	/***** Getters *****/
+
+	public World getWorld() {
+		return world;
+	}
+
+	public int getNumCountries() {
+		return NUM_COUNTRIES;
+	}
+
+	public int getNumPlayers() {
+		return NUM_PLAYERS;
+	}
+
+	public int getNumContinents() {
+		return NUM_CONTINENTS;
+	}
+
+	public int getOwner(int id) {
+		return owners[id];
+	}
+
+	public int getArmies(int id) {
+		return armies[id];
+	}
+
+	public int getCont(int id) {
+		return conts[id];
+	}
+
+	public int getContinentBonus(int cont) {
+		return cont_bonuses[cont];
+	}
+
+	public int getContinentSize(int cont) {
+		return cont_sizes[cont];
+	}
+
+	// How many territories of continent cont player holds
+	public int getContinentCount(int cont, int player) {
+		return cont_counts[player * NUM_CONTINENTS + cont];
+	}
+
+	public int getTerritoryCount(int player) {
+		return territory_counts[player];
+	}
+
+	public int getArmyCount(int player) {
+		return army_counts[player];
+	}
+
+	public int getNumCards(int player) {
+		int base = player * CARD_TYPES;
+		return cards[base] + cards[base + 1] + cards[base + 2] + cards[base + 3];
+	}
+
+	public int getNumCardType(int player, int type) {
+		return cards[player * CARD_TYPES + type];
+	}
+
+	public int getDeckSize() {
+		return deck_size;
+	}
+
+	public boolean isOut(int player) {
+		return out[player];
+	}
+
+	public int getPlayersLeft() {
+		return players_left;
+	}
+
+	public int getCurrentPlayer() {
+		return current;
+	}
+
+	public void setCurrentPlayer(int player) {
+		current = player;
+	}
+
+	public int getArmiesFromNextSet() {
+		return armies_from_next_set;
+	}
+
+	// Whether the current player has captured a territory this turn, and so will draw a card
+	public boolean hasConquered() {
+		return conquered;
+	}
+
+	public void setConquered(boolean c) {
+		conquered = c;
+	}
+
+	// Whether territory id borders a territory of another player
+	public boolean isFrontier(int id) {
+		int owner = owners[id];
+		for(int k=0;k<world.getDegree(id);k++) {
+			if(owners[world.getAdjacency(id, k)] != owner)
+				return true;
+		}
+		return false;
+	}
+}
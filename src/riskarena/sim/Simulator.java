@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2012-2014 Evan Radkoff.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available in LICENSE.txt or at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package riskarena.sim;
+/*
+ * Simulator plays whole games of Risk by the same rules as Game, but with nothing else: no
+ * output, logs, graphics or bot threads. Each player is a Controller that is asked for its
+ * decisions directly. Claiming, the initial placement, reinforcements (armiesFromCards,
+ * armiesFromContinents and armiesFromTerritories), attacking, drawing cards, taking the cards
+ * of an eliminated player and fortifying all happen in the same order as in Game.play(), and
+ * the seeded Random is drawn from the same way (choosing the first player, each roll of the
+ * dice, each card drawn), so given the same decisions a game plays out exactly like Game's.
+ * The map is read once, and play() can be called any number of times, for tuning bots over
+ * millions of games.
+ *
+ * Evan Radkoff
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+
+import riskarena.MapModel;
+import riskarena.Risk;
+import riskarena.World;
+
+public class Simulator {
+	private final SimState state;
+	private final Controller players[];
+	private final int NUM_PLAYERS, NUM_COUNTRIES;
+	private World world;
+	private Random rand = new Random();
+	private int answer[] = new int[3];		// Where Controllers write their decisions
+	private int sets[] = new int[SimState.MAX_SETS * 3];
+	private int results[];			// Player IDs in the order they were eliminated, the winner last
+	private int num_results = 0;
+	private int turn_number = 0;
+
+	/*
+	 * A Simulator of the given map for the given players, who take the player IDs 0 to c.length-1
+	 */
+	public Simulator(String map_file, Controller c[]) {
+		players = c;
+		NUM_PLAYERS = c.length;
+		MapModel map = null;
+		try {
+			map = MapModel.get(map_file);
+		} catch(Exception e) {
+			Risk.sayError("Something is wrong with " + map_file + ": " + e.getMessage());
+			System.exit(-1);
+		}
+		NUM_COUNTRIES = map.getNumCountries();
+		world = map.getWorld();
+		state = new SimState(world, map.getContinentIDs(), map.getContinentBonuses(), NUM_PLAYERS);
+		results = new int[NUM_PLAYERS];
+	}
+
+	/*
+	 * Plays one whole game with the given seed. Returns the ID of the winner.
+	 */
+	public int play(long seed) {
+		rand.setSeed(seed);
+		state.reset();
+		num_results = 0;
+		turn_number = 0;
+		int first = rand.nextInt(NUM_PLAYERS);		// Like Game.setPlayerThatGoesFirst()
+		state.setCurrentPlayer(first);
+		placeInitialArmies();
+		state.setCurrentPlayer(first);
+		while(!state.isOver()) {
+			turn_number++;
+			fortifyArmies();
+			attackCountries();
+			if(!state.isOver()) {
+				fortifyPosition();
+				state.advanceTurn();
+			}
+		}
+		int winner = state.getWinner();
+		results[num_results++] = winner;
+		players[winner].endGame(state, 1);
+		return winner;
+	}
+
+	// Claiming, then placing the rest of everyone's starting armies in turns
+	private void placeInitialArmies() {
+		int pile[] = new int[NUM_PLAYERS];
+		Arrays.fill(pile, state.startingArmies());
+		for(int i=0;i<NUM_COUNTRIES;i++) {
+			int claimed = players[state.getCurrentPlayer()].claimTerritory(state);
+			if(claimed < 0 || claimed >= NUM_COUNTRIES || !state.claim(claimed))
+				badController("tried to claim " + claimed + ", which isn't an unclaimed territory.");
+			pile[state.getCurrentPlayer()]--;
+			state.advanceTurn();
+		}
+		while(true) {
+			int p = state.getCurrentPlayer();
+			players[p].fortifyTerritory(state, pile[p], answer);
+			int armies = answer[1];
+			if(answer[0] < 0 || answer[0] >= NUM_COUNTRIES || armies < 1 || armies > pile[p] || !state.place(answer[0], armies))
+				badController("tried to place " + armies + " armies on " + answer[0] + " during the initial placement.");
+			pile[p] -= armies;
+			boolean done = false;
+			for(int i=0;;i++) {		// On to the next player with armies left, like Game
+				if(i > NUM_PLAYERS) {
+					done = true;
+					break;
+				}
+				state.advanceTurn();
+				if(pile[state.getCurrentPlayer()] > 0)
+					break;
+			}
+			if(done)
+				break;
+		}
+	}
+
+	// Step 1 of a turn: armies from cards, continents and territories
+	private void fortifyArmies() {
+		int armies = armiesFromCards();
+		armies += state.armiesFromContinents();
+		armies += state.armiesFromTerritories();
+		placeArmies(armies);
+	}
+
+	private int armiesFromCards() {
+		int armies = 0;
+		if(state.getNumCards(state.getCurrentPlayer()) >= 5)
+			armies += turnInSet(false);
+		if(state.possibleSets(sets) > 0)
+			armies += turnInSet(true);
+		return armies;
+	}
+
+	// Turns in a set of the current player's cards (if optional, only if they choose to) and returns the armies it's worth
+	private int turnInSet(boolean optional) {
+		Controller player = players[state.getCurrentPlayer()];
+		int num_sets = state.possibleSets(sets);
+		if(optional && !player.chooseToTurnInSet(state))
+			return 0;
+		int choice = 0;
+		if(num_sets > 1) {
+			choice = player.chooseCardSet(state, sets, num_sets);
+			if(choice < 0 || choice >= num_sets)
+				badController("chose card set " + choice + " of " + num_sets + ".");
+		}
+		return state.turnInSet(sets[choice * 3], sets[choice * 3 + 1], sets[choice * 3 + 2]);
+	}
+
+	private void placeArmies(int armies) {
+		Controller player = players[state.getCurrentPlayer()];
+		while(armies > 0) {
+			player.fortifyTerritory(state, armies, answer);
+			int n = answer[1];
+			if(answer[0] < 0 || answer[0] >= NUM_COUNTRIES || n < 1 || n > armies || !state.place(answer[0], n))
+				badController("tried to place " + n + " armies on " + answer[0] + ".");
+			armies -= n;
+		}
+	}
+
+	// Step 2 of a turn: attacking until the player stops, then drawing a card if they captured a territory
+	private void attackCountries() {
+		int me = state.getCurrentPlayer();
+		Controller player = players[me];
+		while(true) {
+			player.launchAttack(state, answer);
+			int from = answer[0], to = answer[1], dice = answer[2];
+			if(from < 0)
+				break;
+			if(from >= NUM_COUNTRIES || state.getOwner(from) != me || state.getArmies(from) <= 1)
+				badController("tried to attack from " + from + ".");
+			if(world.getDegree(from) == 0)	// Game lets this one go
+				continue;
+			if(to < 0 || to >= NUM_COUNTRIES || !world.isAdjacent(from, to) || state.getOwner(to) == me)
+				badController("tried to attack from " + from + " to " + to + ", which is not a valid target.");
+			if(dice < 1 || dice > 3)
+				badController("tried to attack with " + dice + " dice.");
+			if(attack(from, to, dice) && state.isOver())
+				return;
+		}
+		if(state.hasConquered())
+			state.drawCard(rand);
+	}
+
+	/*
+	 * One roll of an attack. Returns true if the defender's territory was captured.
+	 */
+	private boolean attack(int from, int to, int dice) {
+		if(!state.roll(from, to, dice, rand))
+			return false;
+		int loser = state.capture(to);
+		if(loser != -1) {
+			results[num_results++] = loser;
+			players[loser].endGame(state, NUM_PLAYERS - num_results + 1);
+			if(state.isOver())
+				return true;
+			if(state.getNumCards(state.getCurrentPlayer()) >= 6) {	// Too many cards from the eliminated player
+				int armies = turnInSet(false);
+				while(state.getNumCards(state.getCurrentPlayer()) > 4)
+					armies += turnInSet(false);
+				placeArmies(armies);
+			}
+		}
+		int moved = dice;
+		if(state.getArmies(from) - dice > 1) {
+			moved = players[state.getCurrentPlayer()].fortifyAfterVictory(state, from, to, dice, state.getArmies(from) - 1);
+			if(moved < dice || moved > state.getArmies(from) - 1)
+				badController("tried to move " + moved + " armies in for occupation.");
+		}
+		state.move(from, to, moved);
+		return true;
+	}
+
+	// Step 3 of a turn: the optional move of armies between neighbors
+	private void fortifyPosition() {
+		int me = state.getCurrentPlayer();
+		players[me].fortifyPosition(state, answer);
+		int from = answer[0], to = answer[1], armies = answer[2];
+		if(from < 0)
+			return;
+		if(from >= NUM_COUNTRIES || state.getOwner(from) != me || state.getArmies(from) <= 1)
+			badController("tried to fortify from " + from + ".");
+		if(to < 0 || to >= NUM_COUNTRIES || armies < 1 || armies > state.getArmies(from) - 1)
+			badController("tried to fortify " + to + " with " + armies + " armies.");
+		if(!world.isAdjacent(from, to) || state.getOwner(to) != me)
+			badController("tried to fortify from " + from + " to " + to + ", but they don't connect.");
+		state.move(from, to, armies);
+	}
+
+	private void badController(String what) {
+		throw new IllegalStateException("Player " + state.getCurrentPlayer() + " " + what);
+	}
+
+	// The game being played, or the last one played
+	public SimState getState() {
+		return state;
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	// The player IDs of the last game from 1st place to last place
+	public int[] getResults() {
+		int ranking[] = new int[num_results];
+		for(int i=0;i<num_results;i++)
+			ranking[i] = results[num_results - 1 - i];
+		return ranking;
+	}
+
+	// The number of turns taken in the last game
+	public int getTurns() {
+		return turn_number;
+	}
+}